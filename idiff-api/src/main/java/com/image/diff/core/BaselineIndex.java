@@ -0,0 +1,88 @@
+package com.image.diff.core;
+
+public class BaselineIndex {
+
+    public static final int BLOCK_SIZE = 16;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final byte[] contentHash;
+    private final int width;
+    private final int height;
+    private final long[] blockHashes;
+    private final byte[] gray;
+
+    public BaselineIndex(byte[] contentHash, int width, int height, long[] blockHashes, byte[] gray) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid image dimensions: " + width + "x" + height);
+        }
+        if (blockHashes.length != getColumns(width) * getRows(height) || gray.length != width * height) {
+            throw new IllegalArgumentException("Block hashes and gray raster should match image dimensions: " + width + "x" + height);
+        }
+        this.contentHash = contentHash;
+        this.width = width;
+        this.height = height;
+        this.blockHashes = blockHashes;
+        this.gray = gray;
+    }
+
+    public byte[] getContentHash() {
+        return contentHash;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getColumns() {
+        return getColumns(width);
+    }
+
+    public int getRows() {
+        return getRows(height);
+    }
+
+    public long getBlockHash(int column, int row) {
+        return blockHashes[row * getColumns() + column];
+    }
+
+    public long[] getBlockHashes() {
+        return blockHashes;
+    }
+
+    // shared, not a copy
+    public byte[] getGray() {
+        return gray;
+    }
+
+    public static int getColumns(int width) {
+        return (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    public static int getRows(int height) {
+        return (height + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    // 64-bit FNV-1a
+    public static long hashBlock(byte[] gray, int offset, int stride, int width, int height) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int y = 0; y < height; y++) {
+            int start = offset + y * stride;
+            for (int i = start; i < start + width; i++) {
+                hash ^= gray[i] & 0xff;
+                hash *= FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "BaselineIndex{" + "width=" + width + ", height=" + height + ", blocks=" + blockHashes.length + '}';
+    }
+}
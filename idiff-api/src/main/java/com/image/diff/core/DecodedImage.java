@@ -0,0 +1,48 @@
+package com.image.diff.core;
+
+// rows are not padded, the pixel array may be a reused buffer longer than the image
+public class DecodedImage {
+
+    private final int width;
+    private final int height;
+    private final PixelFormat format;
+    private final byte[] pixels;
+
+    public DecodedImage(int width, int height, PixelFormat format, byte[] pixels) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid image dimensions: " + width + "x" + height);
+        }
+        if (pixels.length < (long) width * height * format.channels()) {
+            throw new IllegalArgumentException("Pixels are too short for " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.format = format;
+        this.pixels = pixels;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public PixelFormat getFormat() {
+        return format;
+    }
+
+    public byte[] getPixels() {
+        return pixels;
+    }
+
+    public int getRowSize() {
+        return width * format.channels();
+    }
+
+    @Override
+    public String toString() {
+        return "DecodedImage{" + "width=" + width + ", height=" + height + ", format=" + format + '}';
+    }
+}
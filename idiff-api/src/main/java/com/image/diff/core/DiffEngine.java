@@ -0,0 +1,17 @@
+package com.image.diff.core;
+
+public enum DiffEngine {
+
+    OPENCV,
+    RASTER;
+
+    public static DiffEngine fromName(String name) {
+        for (DiffEngine engine : DiffEngine.values()) {
+            if (engine.name().equalsIgnoreCase(name)) {
+                return engine;
+            }
+        }
+
+        throw new IllegalArgumentException("Diff engine not supported: " + name);
+    }
+}
@@ -0,0 +1,42 @@
+package com.image.diff.core;
+
+import java.nio.ByteBuffer;
+
+// rows are copied out of the buffer, usually a mapped file, one by one. Not thread safe
+public class GrayRaster {
+
+    private final int width;
+    private final int height;
+    private final ByteBuffer data;
+
+    public GrayRaster(int width, int height, ByteBuffer data) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid raster dimensions: " + width + "x" + height);
+        }
+        if (data.remaining() < (long) width * height) {
+            throw new IllegalArgumentException("Raster data is too short for " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        // own view, positioning it does not affect the caller
+        this.data = data.slice();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void getRow(int x, int y, int length, byte[] target, int offset) {
+        data.position(y * width + x);
+        data.get(target, offset, length);
+    }
+
+    @Override
+    public String toString() {
+        return "GrayRaster{" + "width=" + width + ", height=" + height + '}';
+    }
+}
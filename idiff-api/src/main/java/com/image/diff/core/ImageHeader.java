@@ -0,0 +1,31 @@
+package com.image.diff.core;
+
+public class ImageHeader {
+
+    private final String formatName;
+    private final int width;
+    private final int height;
+
+    public ImageHeader(String formatName, int width, int height) {
+        this.formatName = formatName;
+        this.width = width;
+        this.height = height;
+    }
+
+    public String getFormatName() {
+        return formatName;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public String toString() {
+        return "ImageHeader{" + "formatName=" + formatName + ", width=" + width + ", height=" + height + '}';
+    }
+}
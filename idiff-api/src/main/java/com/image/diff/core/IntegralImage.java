@@ -0,0 +1,70 @@
+package com.image.diff.core;
+
+import org.apache.commons.lang3.Validate;
+
+public class IntegralImage {
+
+    // the largest window whose pixel sum fits into an int
+    public static final int MAX_WINDOW_AREA = Integer.MAX_VALUE / 255;
+
+    private final int width;
+    private final int height;
+    // (width + 1) x (height + 1), the first row and column are zero. Plain sums wrap around, but the wrapped
+    // differences of a window are exact while the window sum fits into an int
+    private final int[] sums;
+    private final long[] squaredSums;
+
+    public IntegralImage(byte[] pixels, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid raster dimensions: " + width + "x" + height);
+        }
+        long size = (long) (width + 1) * (height + 1);
+        Validate.isTrue(size <= Integer.MAX_VALUE, "Raster is too large for an integral image: " + width + "x" + height);
+        this.width = width;
+        this.height = height;
+        int stride = width + 1;
+        this.sums = new int[(int) size];
+        this.squaredSums = new long[(int) size];
+        for (int y = 0; y < height; y++) {
+            int rowSum = 0;
+            long rowSquaredSum = 0;
+            for (int x = 0; x < width; x++) {
+                int pixel = pixels[y * width + x] & 0xff;
+                rowSum += pixel;
+                rowSquaredSum += pixel * pixel;
+                int index = (y + 1) * stride + x + 1;
+                sums[index] = sums[index - stride] + rowSum;
+                squaredSums[index] = squaredSums[index - stride] + rowSquaredSum;
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getSum(int x, int y, int windowWidth, int windowHeight) {
+        Validate.isTrue((long) windowWidth * windowHeight <= MAX_WINDOW_AREA,
+            "Window area should not be greater than " + MAX_WINDOW_AREA + ". Passed: " + windowWidth + "x" + windowHeight);
+        int stride = width + 1;
+        int top = y * stride;
+        int bottom = (y + windowHeight) * stride;
+        return sums[bottom + x + windowWidth] - sums[bottom + x] - sums[top + x + windowWidth] + sums[top + x];
+    }
+
+    public long getSquaredSum(int x, int y, int windowWidth, int windowHeight) {
+        int stride = width + 1;
+        int top = y * stride;
+        int bottom = (y + windowHeight) * stride;
+        return squaredSums[bottom + x + windowWidth] - squaredSums[bottom + x] - squaredSums[top + x + windowWidth] + squaredSums[top + x];
+    }
+
+    @Override
+    public String toString() {
+        return "IntegralImage{" + "width=" + width + ", height=" + height + '}';
+    }
+}
@@ -8,12 +8,18 @@ public class MatchContainer {
     private final IplImage templateImage;
     private final IplImage resultImage;
     private final TemplateMatchMethod matchMethod;
+    private final MatchEngine matchEngine;
 
     public MatchContainer(IplImage sourceImage, IplImage templateImage, IplImage resultImage, TemplateMatchMethod matchMethod) {
+        this(sourceImage, templateImage, resultImage, matchMethod, MatchEngine.SPATIAL);
+    }
+
+    public MatchContainer(IplImage sourceImage, IplImage templateImage, IplImage resultImage, TemplateMatchMethod matchMethod, MatchEngine matchEngine) {
         this.sourceImage = sourceImage;
         this.templateImage = templateImage;
         this.resultImage = resultImage;
         this.matchMethod = matchMethod;
+        this.matchEngine = matchEngine;
     }
 
     public IplImage getSourceImage() {
@@ -31,4 +37,9 @@ public class MatchContainer {
     public TemplateMatchMethod getMatchMethod() {
         return matchMethod;
     }
+
+    // never AUTO
+    public MatchEngine getMatchEngine() {
+        return matchEngine;
+    }
 }
@@ -25,6 +25,28 @@ public class MatchContext {
     private final List<Roi> rois = new ArrayList<Roi>();
     private boolean findSpecified;
     private boolean diffSpecified;
+    private int tileSize;
+    private int stripeHeight;
+    private int parallelism;
+    private DiffEngine diffEngine;
+    private boolean coarseToFine;
+    private boolean baselineIndex;
+    private int bandHeight;
+    private File rasterCacheDirectory;
+    private long rasterCacheSize;
+    private int pyramidLevels;
+    private MatchEngine matchEngine;
+    private File templateCacheDirectory;
+    private long templateCacheSize;
+    private boolean existenceCheck;
+    private double minScale;
+    private double maxScale;
+    private double scaleStep;
+    private ResultArtifacts resultArtifacts;
+    private ResultFormat resultFormat;
+    private int compressionLevel;
+    private PngFilter pngFilter;
+    private boolean identicalCheckSpecified;
 
     public boolean isShowResult() {
         return showResult;
@@ -42,14 +64,29 @@ public class MatchContext {
         return image2;
     }
 
+    // decoded on first use, baseline index diff never needs it
     public BufferedImage getBufferedImage1() {
+        if (bufferedImage1 == null) {
+            bufferedImage1 = readImage(image1, "first");
+        }
         return bufferedImage1;
     }
 
     public BufferedImage getBufferedImage2() {
+        if (bufferedImage2 == null) {
+            bufferedImage2 = readImage(image2, "second");
+        }
         return bufferedImage2;
     }
 
+    private BufferedImage readImage(File image, String name) {
+        try {
+            return ImageIO.read(image);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not read " + name + " image: " + image.getAbsolutePath(), ex);
+        }
+    }
+
     public File getResultImage() {
         return resultImage;
     }
@@ -90,9 +127,106 @@ public class MatchContext {
         return diffSpecified;
     }
 
+    public boolean isIdenticalCheckSpecified() {
+        return identicalCheckSpecified;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getStripeHeight() {
+        return stripeHeight;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public DiffEngine getDiffEngine() {
+        return diffEngine;
+    }
+
+    public boolean isCoarseToFine() {
+        return coarseToFine;
+    }
+
+    public boolean isBaselineIndex() {
+        return baselineIndex;
+    }
+
+    public int getBandHeight() {
+        return bandHeight;
+    }
+
+    public File getRasterCacheDirectory() {
+        return rasterCacheDirectory;
+    }
+
+    public long getRasterCacheSize() {
+        return rasterCacheSize;
+    }
+
+    public int getPyramidLevels() {
+        return pyramidLevels;
+    }
+
+    public MatchEngine getMatchEngine() {
+        return matchEngine;
+    }
+
+    public File getTemplateCacheDirectory() {
+        return templateCacheDirectory;
+    }
+
+    public long getTemplateCacheSize() {
+        return templateCacheSize;
+    }
+
+    public boolean isExistenceCheck() {
+        return existenceCheck;
+    }
+
+    public double getMinScale() {
+        return minScale;
+    }
+
+    public double getMaxScale() {
+        return maxScale;
+    }
+
+    public double getScaleStep() {
+        return scaleStep;
+    }
+
+    public ResultArtifacts getResultArtifacts() {
+        return resultArtifacts;
+    }
+
+    public ResultFormat getResultFormat() {
+        return resultFormat;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public PngFilter getPngFilter() {
+        return pngFilter;
+    }
+
+    public List<Double> getScales() {
+        List<Double> scales = new ArrayList<Double>();
+        // the tolerance keeps the maximum scale despite rounding of the steps
+        for (int i = 0; minScale + i * scaleStep <= maxScale + 1e-9; i++) {
+            scales.add(minScale + i * scaleStep);
+        }
+        return scales;
+    }
+
     @Override
     public String toString() {
-        return "MatchContext{" + "showResult=" + showResult + ", title=" + title + ", image1=" + image1 + ", image2=" + image2 + ", bufferedImage1=" + bufferedImage1 + ", bufferedImage2=" + bufferedImage2 + ", resultImage=" + resultImage + ", resultSourceImage=" + resultSourceImage + ", matchSimilarity=" + matchSimilarity + ", matchMethod=" + matchMethod + ", limit=" + limit + ", rois=" + rois + ", findSpecified=" + findSpecified + ", diffSpecified=" + diffSpecified + '}';
+        return "MatchContext{" + "showResult=" + showResult + ", title=" + title + ", image1=" + image1 + ", image2=" + image2 + ", bufferedImage1=" + bufferedImage1 + ", bufferedImage2=" + bufferedImage2 + ", resultImage=" + resultImage + ", resultSourceImage=" + resultSourceImage + ", matchSimilarity=" + matchSimilarity + ", matchMethod=" + matchMethod + ", limit=" + limit + ", rois=" + rois + ", findSpecified=" + findSpecified + ", diffSpecified=" + diffSpecified + ", identicalCheckSpecified=" + identicalCheckSpecified + ", tileSize=" + tileSize + ", stripeHeight=" + stripeHeight + ", parallelism=" + parallelism + ", diffEngine=" + diffEngine + ", coarseToFine=" + coarseToFine + ", baselineIndex=" + baselineIndex + ", bandHeight=" + bandHeight + ", rasterCacheDirectory=" + rasterCacheDirectory + ", rasterCacheSize=" + rasterCacheSize + ", pyramidLevels=" + pyramidLevels + ", matchEngine=" + matchEngine + ", templateCacheDirectory=" + templateCacheDirectory + ", templateCacheSize=" + templateCacheSize + ", existenceCheck=" + existenceCheck + ", minScale=" + minScale + ", maxScale=" + maxScale + ", scaleStep=" + scaleStep + ", resultArtifacts=" + resultArtifacts + ", resultFormat=" + resultFormat + ", compressionLevel=" + compressionLevel + ", pngFilter=" + pngFilter + '}';
     }
 
     public static class Builder {
@@ -109,6 +243,30 @@ public class MatchContext {
         private final List<Roi> rois = new ArrayList<Roi>();
         private boolean findSpecified;
         private boolean diffSpecified;
+        private int tileSize;
+        private int stripeHeight;
+        private int parallelism;
+        private DiffEngine diffEngine = DiffEngine.OPENCV;
+        private boolean coarseToFine;
+        private boolean baselineIndex;
+        private int bandHeight;
+        private File rasterCacheDirectory;
+        // 1 GiB
+        private long rasterCacheSize = 1024L * 1024 * 1024;
+        private int pyramidLevels;
+        private MatchEngine matchEngine = MatchEngine.AUTO;
+        private File templateCacheDirectory;
+        // 1 GiB
+        private long templateCacheSize = 1024L * 1024 * 1024;
+        private boolean existenceCheck;
+        private double minScale = 1;
+        private double maxScale = 1;
+        private double scaleStep = 0.25;
+        private ResultArtifacts resultArtifacts = ResultArtifacts.ON_MATCHES;
+        private ResultFormat resultFormat = ResultFormat.PNG;
+        private int compressionLevel = 1;
+        private PngFilter pngFilter = PngFilter.ADAPTIVE;
+        private boolean identicalCheckSpecified;
 
         public Builder showResult() {
             this.showResult = true;
@@ -190,31 +348,155 @@ public class MatchContext {
             return this;
         }
 
+        public Builder identicalCheck() {
+            this.identicalCheckSpecified = true;
+            return this;
+        }
+
+        public Builder identicalCheck(boolean identicalCheckSpecified) {
+            this.identicalCheckSpecified = identicalCheckSpecified;
+            return this;
+        }
+
+        // 0 disables tiling
+        public Builder tileSize(int tileSize) {
+            this.tileSize = tileSize;
+            return this;
+        }
+
+        // 0 disables stripes
+        public Builder stripeHeight(int stripeHeight) {
+            this.stripeHeight = stripeHeight;
+            return this;
+        }
+
+        // 0 means the number of processors
+        public Builder parallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public Builder diffEngine(DiffEngine diffEngine) {
+            this.diffEngine = diffEngine;
+            return this;
+        }
+
+        public Builder coarseToFine() {
+            this.coarseToFine = true;
+            return this;
+        }
+
+        public Builder coarseToFine(boolean coarseToFine) {
+            this.coarseToFine = coarseToFine;
+            return this;
+        }
+
+        public Builder baselineIndex() {
+            this.baselineIndex = true;
+            return this;
+        }
+
+        public Builder baselineIndex(boolean baselineIndex) {
+            this.baselineIndex = baselineIndex;
+            return this;
+        }
+
+        // 0 disables streaming
+        public Builder bandHeight(int bandHeight) {
+            this.bandHeight = bandHeight;
+            return this;
+        }
+
+        // null disables the cache
+        public Builder rasterCacheDirectory(File rasterCacheDirectory) {
+            this.rasterCacheDirectory = rasterCacheDirectory;
+            return this;
+        }
+
+        public Builder rasterCacheSize(long rasterCacheSize) {
+            this.rasterCacheSize = rasterCacheSize;
+            return this;
+        }
+
+        // number of halvings, 0 disables the pyramid search
+        public Builder pyramidLevels(int pyramidLevels) {
+            this.pyramidLevels = pyramidLevels;
+            return this;
+        }
+
+        public Builder matchEngine(MatchEngine matchEngine) {
+            this.matchEngine = matchEngine;
+            return this;
+        }
+
+        public Builder templateCacheDirectory(File templateCacheDirectory) {
+            this.templateCacheDirectory = templateCacheDirectory;
+            return this;
+        }
+
+        public Builder templateCacheSize(long templateCacheSize) {
+            this.templateCacheSize = templateCacheSize;
+            return this;
+        }
+
+        public Builder existenceCheck() {
+            this.existenceCheck = true;
+            return this;
+        }
+
+        // the search stops at the first match over the similarity
+        public Builder existenceCheck(boolean existenceCheck) {
+            this.existenceCheck = existenceCheck;
+            return this;
+        }
+
+        // scale 1 is the native size of the template
+        public Builder scaleRange(double minScale, double maxScale, double scaleStep) {
+            this.minScale = minScale;
+            this.maxScale = maxScale;
+            this.scaleStep = scaleStep;
+            return this;
+        }
+
+        public Builder resultArtifacts(ResultArtifacts resultArtifacts) {
+            this.resultArtifacts = resultArtifacts;
+            return this;
+        }
+
+        public Builder resultFormat(ResultFormat resultFormat) {
+            this.resultFormat = resultFormat;
+            return this;
+        }
+
+        // 0 (stored) to 9, defaults to 1
+        public Builder compressionLevel(int compressionLevel) {
+            this.compressionLevel = compressionLevel;
+            return this;
+        }
+
+        public Builder pngFilter(PngFilter pngFilter) {
+            this.pngFilter = pngFilter;
+            return this;
+        }
+
         public MatchContext build() {
             Validate.notNull(image1, "First image must not be null");
             Validate.notNull(image2, "Second image must not be null");
-
-            BufferedImage bufferedImage1;
-            try {
-                bufferedImage1 = ImageIO.read(image1);
-            } catch (IOException ex) {
-                throw new IllegalStateException("Could not read first image: " + image1.getAbsolutePath(), ex);
+            // images are decoded on first use, only make sure they can be read
+            if (!image1.canRead()) {
+                throw new IllegalStateException("Could not read first image: " + image1.getAbsolutePath());
             }
-
-            BufferedImage bufferedImage2;
-            try {
-                bufferedImage2 = ImageIO.read(image2);
-            } catch (IOException ex) {
-                throw new IllegalStateException("Could not read second image: " + image2.getAbsolutePath(), ex);
+            if (!image2.canRead()) {
+                throw new IllegalStateException("Could not read second image: " + image2.getAbsolutePath());
             }
+            Validate.isTrue(minScale > 0 && maxScale >= minScale && scaleStep > 0,
+                "Expected scale range should be 0 < min <= max with step greater than 0. Passed: " + minScale + ":" + maxScale + ":" + scaleStep);
 
             MatchContext context = new MatchContext();
             context.showResult = showResult;
             context.title = title;
             context.image1 = image1;
             context.image2 = image2;
-            context.bufferedImage1 = bufferedImage1;
-            context.bufferedImage2 = bufferedImage2;
             context.resultImage = resultImage;
             context.resultSourceImage = resultSourceImage;
             context.matchSimilarity = matchSimilarity;
@@ -222,6 +504,28 @@ public class MatchContext {
             context.limit = limit;
             context.findSpecified = findSpecified;
             context.diffSpecified = diffSpecified;
+            context.identicalCheckSpecified = identicalCheckSpecified;
+            context.tileSize = tileSize;
+            context.stripeHeight = stripeHeight;
+            context.parallelism = parallelism;
+            context.diffEngine = diffEngine;
+            context.coarseToFine = coarseToFine;
+            context.baselineIndex = baselineIndex;
+            context.bandHeight = bandHeight;
+            context.rasterCacheDirectory = rasterCacheDirectory;
+            context.rasterCacheSize = rasterCacheSize;
+            context.pyramidLevels = pyramidLevels;
+            context.matchEngine = matchEngine;
+            context.templateCacheDirectory = templateCacheDirectory;
+            context.templateCacheSize = templateCacheSize;
+            context.existenceCheck = existenceCheck;
+            context.minScale = minScale;
+            context.maxScale = maxScale;
+            context.scaleStep = scaleStep;
+            context.resultArtifacts = resultArtifacts;
+            context.resultFormat = resultFormat;
+            context.compressionLevel = compressionLevel;
+            context.pngFilter = pngFilter;
 
             if (!rois.isEmpty()) {
                 context.addRois(rois);
@@ -0,0 +1,18 @@
+package com.image.diff.core;
+
+public enum MatchEngine {
+
+    AUTO,
+    SPATIAL,
+    FFT;
+
+    public static MatchEngine fromName(String name) {
+        for (MatchEngine engine : MatchEngine.values()) {
+            if (engine.name().equalsIgnoreCase(name)) {
+                return engine;
+            }
+        }
+
+        throw new IllegalArgumentException("Match engine not supported: " + name);
+    }
+}
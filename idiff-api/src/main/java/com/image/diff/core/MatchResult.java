@@ -6,10 +6,23 @@ public class MatchResult implements Match {
 
     private final double score;
     private final Rectangle rectangle;
+    private final MatchEngine matchEngine;
+    private final double scale;
 
     public MatchResult(double score, int x, int y, int width, int height) {
+        this(score, x, y, width, height, null);
+    }
+
+    // match engine is null for differences
+    public MatchResult(double score, int x, int y, int width, int height, MatchEngine matchEngine) {
+        this(score, x, y, width, height, matchEngine, 1);
+    }
+
+    public MatchResult(double score, int x, int y, int width, int height, MatchEngine matchEngine, double scale) {
         this.score = score;
         this.rectangle = new Rectangle(x, y, width, height);
+        this.matchEngine = matchEngine;
+        this.scale = scale;
     }
 
     @Override
@@ -37,6 +50,14 @@ public class MatchResult implements Match {
         return rectangle.height;
     }
 
+    public MatchEngine getMatchEngine() {
+        return matchEngine;
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
     @Override
     public boolean contains(int x, int y) {
         return rectangle.contains(x, y);
@@ -68,6 +89,9 @@ public class MatchResult implements Match {
     public String toString() {
         int roundedScore = (int) (score * 100);
 
-        return "score=" + roundedScore + "%, [x=" + rectangle.x + ", y=" + rectangle.y + ", width=" + rectangle.width + ", height=" + rectangle.height + "]";
+        String engine = matchEngine != null ? ", engine=" + matchEngine.name().toLowerCase() : "";
+        String scaled = scale != 1 ? ", scale=" + scale : "";
+
+        return "score=" + roundedScore + "%, [x=" + rectangle.x + ", y=" + rectangle.y + ", width=" + rectangle.width + ", height=" + rectangle.height + "]" + engine + scaled;
     }
 }
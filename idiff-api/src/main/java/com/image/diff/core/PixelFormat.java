@@ -0,0 +1,18 @@
+package com.image.diff.core;
+
+public enum PixelFormat {
+
+    // converted the same way as OpenCV CV_BGR2GRAY
+    GRAY(1),
+    RGB(3);
+
+    private final int channels;
+
+    private PixelFormat(int channels) {
+        this.channels = channels;
+    }
+
+    public int channels() {
+        return channels;
+    }
+}
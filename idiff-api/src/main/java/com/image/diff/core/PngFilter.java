@@ -0,0 +1,32 @@
+package com.image.diff.core;
+
+public enum PngFilter {
+
+    NONE(0),
+    SUB(1),
+    UP(2),
+    AVERAGE(3),
+    PAETH(4),
+    ADAPTIVE(-1);
+
+    private final int type;
+
+    private PngFilter(int type) {
+        this.type = type;
+    }
+
+    // -1 for adaptive filter
+    public int type() {
+        return type;
+    }
+
+    public static PngFilter fromName(String name) {
+        for (PngFilter filter : PngFilter.values()) {
+            if (filter.name().equalsIgnoreCase(name)) {
+                return filter;
+            }
+        }
+
+        throw new IllegalArgumentException("PNG filter not supported: " + name);
+    }
+}
@@ -0,0 +1,78 @@
+package com.image.diff.core;
+
+import java.util.Arrays;
+
+// all regions are kept in one array, which is reused by the next diff
+public class RegionTable {
+
+    private static final int FIELDS = 6;
+    private int[] data = new int[FIELDS * 64];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(int x, int y, int width, int height, int pixels, int startX) {
+        if ((size + 1) * FIELDS > data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        int offset = size * FIELDS;
+        data[offset] = x;
+        data[offset + 1] = y;
+        data[offset + 2] = width;
+        data[offset + 3] = height;
+        data[offset + 4] = pixels;
+        data[offset + 5] = startX;
+        size++;
+    }
+
+    public void translate(int dx, int dy) {
+        for (int offset = 0; offset < size * FIELDS; offset += FIELDS) {
+            data[offset] += dx;
+            data[offset + 1] += dy;
+            data[offset + 5] += dx;
+        }
+    }
+
+    public int getX(int region) {
+        return data[region * FIELDS];
+    }
+
+    public int getY(int region) {
+        return data[region * FIELDS + 1];
+    }
+
+    public int getWidth(int region) {
+        return data[region * FIELDS + 2];
+    }
+
+    public int getHeight(int region) {
+        return data[region * FIELDS + 3];
+    }
+
+    public int getPixels(int region) {
+        return data[region * FIELDS + 4];
+    }
+
+    public int getStartX(int region) {
+        return data[region * FIELDS + 5];
+    }
+
+    public double getScore(int region) {
+        return getPixels(region) / ((double) getWidth(region) * getHeight(region));
+    }
+
+    @Override
+    public String toString() {
+        return "RegionTable{" + "size=" + size + '}';
+    }
+}
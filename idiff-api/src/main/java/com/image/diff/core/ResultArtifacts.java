@@ -0,0 +1,18 @@
+package com.image.diff.core;
+
+public enum ResultArtifacts {
+
+    ALWAYS,
+    ON_MATCHES,
+    NONE;
+
+    public static ResultArtifacts fromName(String name) {
+        for (ResultArtifacts artifacts : ResultArtifacts.values()) {
+            if (artifacts.name().equalsIgnoreCase(name)) {
+                return artifacts;
+            }
+        }
+
+        throw new IllegalArgumentException("Result artifacts not supported: " + name);
+    }
+}
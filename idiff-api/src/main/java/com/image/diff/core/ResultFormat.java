@@ -0,0 +1,36 @@
+package com.image.diff.core;
+
+public enum ResultFormat {
+
+    PNG("png"),
+    TIFF("tiff", "tif");
+
+    private final String[] formatNames;
+
+    private ResultFormat(String... formatNames) {
+        this.formatNames = formatNames;
+    }
+
+    public String getExtension() {
+        return formatNames[0];
+    }
+
+    public boolean isFormatOf(String formatName) {
+        for (String name : formatNames) {
+            if (name.equalsIgnoreCase(formatName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static ResultFormat fromName(String name) {
+        for (ResultFormat format : ResultFormat.values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+
+        throw new IllegalArgumentException("Result format not supported: " + name);
+    }
+}
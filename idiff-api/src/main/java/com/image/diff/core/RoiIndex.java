@@ -0,0 +1,126 @@
+package com.image.diff.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+// every grid cell keeps its ROIs, so a row query only looks at the cells it touches
+public class RoiIndex {
+
+    private static final int CELL_SIZE = 64;
+
+    private final int columns;
+    private final int rows;
+    // clipped ROIs as left, top, right and bottom, right and bottom exclusive
+    private final int[] bounds;
+    private final int[][] cells;
+    private final int[] cellSizes;
+    private int minX = Integer.MAX_VALUE;
+    private int minY = Integer.MAX_VALUE;
+    private int maxX = Integer.MIN_VALUE;
+    private int maxY = Integer.MIN_VALUE;
+    private int size;
+
+    public RoiIndex(List<Roi> rois, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid image dimensions: " + width + "x" + height);
+        }
+
+        this.columns = (width + CELL_SIZE - 1) / CELL_SIZE;
+        this.rows = (height + CELL_SIZE - 1) / CELL_SIZE;
+        this.bounds = new int[rois.size() * 4];
+        this.cells = new int[columns * rows][];
+        this.cellSizes = new int[columns * rows];
+
+        for (Roi roi : rois) {
+            int left = Math.max(roi.getX(), 0);
+            int top = Math.max(roi.getY(), 0);
+            int right = Math.min(roi.getX() + roi.getWidth(), width);
+            int bottom = Math.min(roi.getY() + roi.getHeight(), height);
+            if (left >= right || top >= bottom) {
+                // outside of the image
+                continue;
+            }
+
+            add(left, top, right, bottom);
+        }
+    }
+
+    private void add(int left, int top, int right, int bottom) {
+        int index = size++;
+        bounds[index * 4] = left;
+        bounds[index * 4 + 1] = top;
+        bounds[index * 4 + 2] = right;
+        bounds[index * 4 + 3] = bottom;
+
+        minX = Math.min(minX, left);
+        minY = Math.min(minY, top);
+        maxX = Math.max(maxX, right);
+        maxY = Math.max(maxY, bottom);
+
+        for (int row = top / CELL_SIZE; row <= (bottom - 1) / CELL_SIZE; row++) {
+            for (int column = left / CELL_SIZE; column <= (right - 1) / CELL_SIZE; column++) {
+                int cell = row * columns + column;
+                if (cells[cell] == null) {
+                    cells[cell] = new int[4];
+                } else if (cellSizes[cell] == cells[cell].length) {
+                    cells[cell] = Arrays.copyOf(cells[cell], cellSizes[cell] * 2);
+                }
+                cells[cell][cellSizes[cell]++] = index;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public Roi getBounds() {
+        if (isEmpty()) {
+            return null;
+        }
+        return new Roi(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    // covered pixels get 255, mask[offset] stands for the pixel at x
+    public int fillRowMask(int y, int x, int width, byte[] mask, int offset) {
+        Arrays.fill(mask, offset, offset + width, (byte) 0);
+        if (y < minY || y >= maxY) {
+            return 0;
+        }
+
+        int end = Math.min(x + width, maxX);
+        int row = y / CELL_SIZE;
+        int covered = 0;
+        for (int column = Math.max(x, minX) / CELL_SIZE; column * CELL_SIZE < end; column++) {
+            int cell = row * columns + column;
+            // every cell fills only its own columns, so a ROI spanning several cells is not filled twice
+            int cellLeft = Math.max(column * CELL_SIZE, x);
+            int cellRight = Math.min((column + 1) * CELL_SIZE, end);
+            for (int i = 0; i < cellSizes[cell]; i++) {
+                int roi = cells[cell][i] * 4;
+                if (y < bounds[roi + 1] || y >= bounds[roi + 3]) {
+                    continue;
+                }
+                int left = Math.max(bounds[roi], cellLeft);
+                int right = Math.min(bounds[roi + 2], cellRight);
+                for (int pixel = offset + left - x; pixel < offset + right - x; pixel++) {
+                    if (mask[pixel] == 0) {
+                        mask[pixel] = (byte) 255;
+                        covered++;
+                    }
+                }
+            }
+        }
+
+        return covered;
+    }
+
+    @Override
+    public String toString() {
+        return "RoiIndex{" + "size=" + size + ", columns=" + columns + ", rows=" + rows + '}';
+    }
+}
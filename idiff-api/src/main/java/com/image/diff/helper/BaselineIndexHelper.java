@@ -0,0 +1,149 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.BaselineIndex;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class BaselineIndexHelper {
+
+    private static final String INDEX_FILE_SUFFIX = ".idiff-index";
+    private static final int INDEX_FILE_MAGIC = 0x49445849;
+    private static final int INDEX_FILE_VERSION = 1;
+
+    private Logger logger = LoggerFactory.getLogger(getClass());
+    private final RasterHelper rasterHelper = new RasterHelper();
+    private final FileHelper fileHelper = new FileHelper();
+
+    // stale or missing sidecar is rebuilt, failure to write it is only logged
+    public BaselineIndex getIndex(File baseline) {
+        Validate.notNull(baseline, "Baseline image must not be null");
+
+        byte[] contentHash = fileHelper.hashContent(baseline);
+        File indexFile = getIndexFile(baseline);
+        if (indexFile.exists()) {
+            try {
+                BaselineIndex index = readIndex(indexFile, contentHash);
+                if (index != null) {
+                    logger.debug("Baseline index read from {}", indexFile);
+                    return index;
+                }
+                logger.debug("Baseline index {} is stale and will be rebuilt", indexFile);
+            } catch (IOException ex) {
+                logger.warn("Could not read baseline index: " + indexFile.getAbsolutePath(), ex);
+            }
+        }
+
+        BufferedImage image;
+        try {
+            image = ImageIO.read(baseline);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not read baseline image: " + baseline.getAbsolutePath(), ex);
+        }
+        if (image == null) {
+            throw new IllegalStateException("Baseline image format is not supported: " + baseline.getAbsolutePath());
+        }
+
+        BaselineIndex index = createIndex(contentHash, image);
+        try {
+            writeIndex(indexFile, index);
+        } catch (IOException ex) {
+            logger.warn("Could not write baseline index: " + indexFile.getAbsolutePath(), ex);
+        }
+
+        return index;
+    }
+
+    public BaselineIndex createIndex(byte[] contentHash, BufferedImage image) {
+        Validate.notNull(image, "Baseline image must not be null");
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] gray = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            rasterHelper.readGrayRow(image, 0, y, width, gray, y * width);
+        }
+
+        int columns = BaselineIndex.getColumns(width);
+        int rows = BaselineIndex.getRows(height);
+        long[] blockHashes = new long[columns * rows];
+        for (int row = 0; row < rows; row++) {
+            int blockHeight = Math.min(BaselineIndex.BLOCK_SIZE, height - row * BaselineIndex.BLOCK_SIZE);
+            for (int column = 0; column < columns; column++) {
+                int blockWidth = Math.min(BaselineIndex.BLOCK_SIZE, width - column * BaselineIndex.BLOCK_SIZE);
+                int offset = row * BaselineIndex.BLOCK_SIZE * width + column * BaselineIndex.BLOCK_SIZE;
+                blockHashes[row * columns + column] = BaselineIndex.hashBlock(gray, offset, width, blockWidth, blockHeight);
+            }
+        }
+
+        return new BaselineIndex(contentHash, width, height, blockHashes, gray);
+    }
+
+    public File getIndexFile(File baseline) {
+        return new File(baseline.getPath() + INDEX_FILE_SUFFIX);
+    }
+
+    // null if the index was built for other content
+    private BaselineIndex readIndex(File indexFile, byte[] contentHash) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+        try {
+            if (input.readInt() != INDEX_FILE_MAGIC || input.readInt() != INDEX_FILE_VERSION) {
+                return null;
+            }
+            byte[] storedHash = new byte[input.readInt()];
+            input.readFully(storedHash);
+            if (!Arrays.equals(storedHash, contentHash) || input.readInt() != BaselineIndex.BLOCK_SIZE) {
+                return null;
+            }
+
+            int width = input.readInt();
+            int height = input.readInt();
+            long[] blockHashes = new long[BaselineIndex.getColumns(width) * BaselineIndex.getRows(height)];
+            for (int i = 0; i < blockHashes.length; i++) {
+                blockHashes[i] = input.readLong();
+            }
+            byte[] gray = new byte[width * height];
+            input.readFully(gray);
+
+            return new BaselineIndex(contentHash, width, height, blockHashes, gray);
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    private void writeIndex(File indexFile, BaselineIndex index) throws IOException {
+        // write aside and move, so a reader never sees a half written index
+        File temporaryFile = new File(indexFile.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+        try {
+            output.writeInt(INDEX_FILE_MAGIC);
+            output.writeInt(INDEX_FILE_VERSION);
+            output.writeInt(index.getContentHash().length);
+            output.write(index.getContentHash());
+            output.writeInt(BaselineIndex.BLOCK_SIZE);
+            output.writeInt(index.getWidth());
+            output.writeInt(index.getHeight());
+            for (long blockHash : index.getBlockHashes()) {
+                output.writeLong(blockHash);
+            }
+            output.write(index.getGray());
+            output.close();
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+
+        fileHelper.move(temporaryFile, indexFile);
+    }
+}
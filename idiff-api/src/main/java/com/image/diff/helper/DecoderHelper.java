@@ -0,0 +1,126 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.DecodedImage;
+import com.image.diff.core.ImageHeader;
+import com.image.diff.core.PixelFormat;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceLoader;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import org.apache.commons.lang3.Validate;
+
+// service loader decoders first, then PNG, JPEG and ImageIO as the last resort
+public class DecoderHelper {
+
+    private final List<ImageDecoder> decoders;
+
+    public DecoderHelper() {
+        List<ImageDecoder> defaults = new ArrayList<ImageDecoder>();
+        for (ImageDecoder decoder : ServiceLoader.load(ImageDecoder.class)) {
+            defaults.add(decoder);
+        }
+        defaults.add(new PngDecoder());
+        defaults.add(new JpegDecoder());
+        defaults.add(new ImageIoDecoder());
+        this.decoders = Collections.unmodifiableList(defaults);
+    }
+
+    public DecoderHelper(List<ImageDecoder> decoders) {
+        Validate.notEmpty(decoders, "Decoders must not be empty");
+        Validate.noNullElements(decoders, "Decoders must not contain null");
+        this.decoders = Collections.unmodifiableList(new ArrayList<ImageDecoder>(decoders));
+    }
+
+    public List<ImageDecoder> getDecoders() {
+        return decoders;
+    }
+
+    public ImageHeader readHeader(File image) {
+        Validate.notNull(image, "Image must not be null");
+
+        ImageInputStream input = null;
+        ImageReader reader = null;
+        try {
+            input = ImageIO.createImageInputStream(image);
+            if (input == null) {
+                throw new IllegalStateException("Could not open image: " + image.getAbsolutePath());
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IllegalStateException("Image format is not supported: " + image.getAbsolutePath());
+            }
+            reader = readers.next();
+            reader.setInput(input, true, true);
+            return new ImageHeader(reader.getFormatName(), reader.getWidth(0), reader.getHeight(0));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not read image: " + image.getAbsolutePath(), ex);
+        } finally {
+            if (reader != null) {
+                reader.dispose();
+            }
+            closeQuietly(input);
+        }
+    }
+
+    // pixels are shared, not copied
+    public BufferedImage createBufferedImage(DecodedImage decodedImage) {
+        Validate.notNull(decodedImage, "Decoded image must not be null");
+        Validate.isTrue(decodedImage.getFormat() == PixelFormat.RGB, "Decoded image should be RGB. Passed: " + decodedImage.getFormat());
+
+        int width = decodedImage.getWidth();
+        int height = decodedImage.getHeight();
+        WritableRaster raster = Raster.createInterleavedRaster(new DataBufferByte(decodedImage.getPixels(), width * height * 3),
+            width, height, width * 3, 3, new int[]{0, 1, 2}, null);
+        ColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), false, false, Transparency.OPAQUE,
+            DataBuffer.TYPE_BYTE);
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    private void closeQuietly(ImageInputStream input) {
+        if (input == null) {
+            return;
+        }
+        try {
+            input.close();
+        } catch (IOException ex) {
+            // nothing to do, the stream was only read
+        }
+    }
+
+    public DecodedImage decodeGray(File image) {
+        return decode(image, PixelFormat.GRAY, 1, null);
+    }
+
+    public DecodedImage decode(File image, PixelFormat format, int subsampling, byte[] buffer) {
+        Validate.notNull(image, "Image must not be null");
+        Validate.notNull(format, "Pixel format must not be null");
+        Validate.isTrue(subsampling > 0, "Subsampling should be greater than 0. Passed: " + subsampling);
+
+        try {
+            for (ImageDecoder decoder : decoders) {
+                DecodedImage decoded = decoder.decode(image, format, subsampling, buffer);
+                if (decoded != null) {
+                    return decoded;
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not read image: " + image.getAbsolutePath(), ex);
+        }
+        throw new IllegalStateException("Image format is not supported: " + image.getAbsolutePath());
+    }
+}
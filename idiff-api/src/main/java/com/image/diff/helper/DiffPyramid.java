@@ -0,0 +1,219 @@
+package com.image.diff.helper;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Arrays;
+
+// a clean block at any level has no different pixel at full resolution. Not thread safe
+public class DiffPyramid {
+
+    public static final int BLOCK_SIZE = 16;
+
+    private byte[][] levels = new byte[0][];
+    private int[] levelColumns = new int[0];
+    private int[] levelRows = new int[0];
+    private int fromX;
+    private int fromY;
+    private int width;
+    private int height;
+    private int[] firstRgbRow = new int[0];
+    private int[] secondRgbRow = new int[0];
+
+    public void build(BufferedImage firstImage, BufferedImage secondImage, int fromX, int fromY, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid area dimensions: " + width + "x" + height);
+        }
+        this.fromX = fromX;
+        this.fromY = fromY;
+        this.width = width;
+        this.height = height;
+
+        allocateLevels();
+        if (RasterHelper.hasSamePackedLayout(firstImage, secondImage)) {
+            markPackedBlocks(firstImage, secondImage);
+        } else {
+            markRgbBlocks(firstImage, secondImage);
+        }
+
+        for (int level = 1; level < levels.length; level++) {
+            poolLevel(level);
+        }
+    }
+
+    public int getLevels() {
+        return levels.length;
+    }
+
+    public int getColumns() {
+        return levelColumns[0];
+    }
+
+    public int getRows() {
+        return levelRows[0];
+    }
+
+    public boolean isDirty(int level, int column, int row) {
+        return levels[level][row * levelColumns[level] + column] != 0;
+    }
+
+    public boolean isDirty() {
+        return isDirty(levels.length - 1, 0, 0);
+    }
+
+    // -1 if there is none
+    public int nextDirtyColumn(int row, int column) {
+        int columns = levelColumns[0];
+        while (column < columns) {
+            int level = levels.length - 1;
+            while (level >= 0 && isDirty(level, column >> level, row >> level)) {
+                level--;
+            }
+            if (level < 0) {
+                return column;
+            }
+            // clean at this level, go to the next block of the same level
+            column = ((column >> level) + 1) << level;
+        }
+
+        return -1;
+    }
+
+    public int nextCleanColumn(int row, int column) {
+        int columns = levelColumns[0];
+        while (column < columns && isDirty(0, column, row)) {
+            column++;
+        }
+        return column;
+    }
+
+    private void allocateLevels() {
+        int columns = (width + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int rows = (height + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int count = 1;
+        for (int size = Math.max(columns, rows); size > 1; size = (size + 1) / 2) {
+            count++;
+        }
+
+        if (levels.length != count) {
+            levels = new byte[count][];
+            levelColumns = new int[count];
+            levelRows = new int[count];
+        }
+        for (int level = 0; level < count; level++) {
+            levelColumns[level] = columns;
+            levelRows[level] = rows;
+            if (levels[level] == null || levels[level].length < columns * rows) {
+                levels[level] = new byte[columns * rows];
+            } else {
+                Arrays.fill(levels[level], 0, columns * rows, (byte) 0);
+            }
+            columns = (columns + 1) / 2;
+            rows = (rows + 1) / 2;
+        }
+    }
+
+    private void poolLevel(int level) {
+        byte[] below = levels[level - 1];
+        byte[] current = levels[level];
+        int belowColumns = levelColumns[level - 1];
+        int belowRows = levelRows[level - 1];
+        for (int row = 0; row < belowRows; row++) {
+            int offset = row * belowColumns;
+            int currentOffset = (row >> 1) * levelColumns[level];
+            for (int column = 0; column < belowColumns; column++) {
+                current[currentOffset + (column >> 1)] |= below[offset + column];
+            }
+        }
+    }
+
+    private void markPackedBlocks(BufferedImage firstImage, BufferedImage secondImage) {
+        DataBuffer firstBuffer = firstImage.getRaster().getDataBuffer();
+        DataBuffer secondBuffer = secondImage.getRaster().getDataBuffer();
+        byte[] dirty = levels[0];
+        int columns = levelColumns[0];
+
+        if (firstBuffer instanceof DataBufferByte) {
+            byte[] first = ((DataBufferByte) firstBuffer).getData();
+            byte[] second = ((DataBufferByte) secondBuffer).getData();
+            ComponentSampleModel model = (ComponentSampleModel) firstImage.getSampleModel();
+            int pixelStride = model.getPixelStride();
+            int scanlineStride = model.getScanlineStride();
+
+            for (int y = 0; y < height; y++) {
+                int rowOffset = (y / BLOCK_SIZE) * columns;
+                int offset = (fromY + y) * scanlineStride + fromX * pixelStride;
+                for (int column = 0; column < columns; column++) {
+                    if (dirty[rowOffset + column] != 0) {
+                        // already known to differ, nothing to compare
+                        continue;
+                    }
+                    int start = offset + column * BLOCK_SIZE * pixelStride;
+                    int end = offset + Math.min((column + 1) * BLOCK_SIZE, width) * pixelStride;
+                    for (int i = start; i < end; i++) {
+                        if (first[i] != second[i]) {
+                            dirty[rowOffset + column] = 1;
+                            break;
+                        }
+                    }
+                }
+            }
+            return;
+        }
+
+        int[] first = ((DataBufferInt) firstBuffer).getData();
+        int[] second = ((DataBufferInt) secondBuffer).getData();
+        SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) firstImage.getSampleModel();
+        int scanlineStride = model.getScanlineStride();
+        int pixelMask = 0;
+        for (int bitMask : model.getBitMasks()) {
+            pixelMask |= bitMask;
+        }
+
+        for (int y = 0; y < height; y++) {
+            int rowOffset = (y / BLOCK_SIZE) * columns;
+            int offset = (fromY + y) * scanlineStride + fromX;
+            for (int column = 0; column < columns; column++) {
+                if (dirty[rowOffset + column] != 0) {
+                    continue;
+                }
+                int start = offset + column * BLOCK_SIZE;
+                int end = offset + Math.min((column + 1) * BLOCK_SIZE, width);
+                for (int i = start; i < end; i++) {
+                    if (((first[i] ^ second[i]) & pixelMask) != 0) {
+                        dirty[rowOffset + column] = 1;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private void markRgbBlocks(BufferedImage firstImage, BufferedImage secondImage) {
+        if (firstRgbRow.length < width) {
+            firstRgbRow = new int[width];
+            secondRgbRow = new int[width];
+        }
+        byte[] dirty = levels[0];
+        int columns = levelColumns[0];
+
+        for (int y = 0; y < height; y++) {
+            int rowOffset = (y / BLOCK_SIZE) * columns;
+            firstImage.getRGB(fromX, fromY + y, width, 1, firstRgbRow, 0, width);
+            secondImage.getRGB(fromX, fromY + y, width, 1, secondRgbRow, 0, width);
+            for (int x = 0; x < width; x++) {
+                if (firstRgbRow[x] != secondRgbRow[x]) {
+                    dirty[rowOffset + x / BLOCK_SIZE] = 1;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DiffPyramid{" + "width=" + width + ", height=" + height + ", levels=" + levels.length + '}';
+    }
+}
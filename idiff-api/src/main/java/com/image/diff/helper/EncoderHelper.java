@@ -0,0 +1,15 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.MatchContext;
+import com.image.diff.core.ResultFormat;
+
+public class EncoderHelper {
+
+    public ImageEncoder createEncoder(MatchContext context) {
+        if (context.getResultFormat() == ResultFormat.TIFF) {
+            return new TiffEncoder();
+        }
+
+        return new PngEncoder(context.getCompressionLevel(), context.getPngFilter(), context.getParallelism());
+    }
+}
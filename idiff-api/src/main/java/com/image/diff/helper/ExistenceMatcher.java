@@ -0,0 +1,197 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.IntegralImage;
+import com.image.diff.core.MatchResult;
+import com.image.diff.core.TemplateMatchMethod;
+import java.awt.Point;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+
+// stops at the first window reaching the similarity, windows are abandoned once the rows left can not lift them
+public class ExistenceMatcher {
+
+    public MatchResult findFirst(byte[] source, int sourceWidth, IntegralImage integralImage, byte[] template, int templateWidth,
+        int templateHeight, TemplateMatchMethod matchMethod, double minSimilarity, List<Point> seeds, int radius) {
+        Validate.isTrue(templateWidth > 0 && templateHeight > 0, "Invalid template dimensions: " + templateWidth + "x" + templateHeight);
+        Validate.isTrue(integralImage.getWidth() >= templateWidth && integralImage.getHeight() >= templateHeight,
+            "Template must not be larger than the source");
+        Validate.notNull(matchMethod, "Match method must not be null");
+
+        Scan scan = new Scan(source, sourceWidth, integralImage, template, templateWidth, templateHeight, matchMethod);
+        if (scan.flat) {
+            // flat template correlates with everything, the similarity of 1 is still rejected like any other
+            if (minSimilarity >= 1) {
+                return null;
+            }
+            Point first = seeds.isEmpty() ? new Point(0, 0) : clip(seeds.get(0), scan.resultWidth, scan.resultHeight);
+            return new MatchResult(1, first.x, first.y, templateWidth, templateHeight);
+        }
+
+        boolean[] visited = new boolean[scan.resultWidth * scan.resultHeight];
+        for (Point seed : seeds) {
+            Point center = clip(seed, scan.resultWidth, scan.resultHeight);
+            for (int y = Math.max(center.y - radius, 0); y <= Math.min(center.y + radius, scan.resultHeight - 1); y++) {
+                for (int x = Math.max(center.x - radius, 0); x <= Math.min(center.x + radius, scan.resultWidth - 1); x++) {
+                    MatchResult match = visit(scan, visited, x, y, minSimilarity);
+                    if (match != null) {
+                        return match;
+                    }
+                }
+            }
+        }
+
+        for (int y = 0; y < scan.resultHeight; y++) {
+            for (int x = 0; x < scan.resultWidth; x++) {
+                MatchResult match = visit(scan, visited, x, y, minSimilarity);
+                if (match != null) {
+                    return match;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private MatchResult visit(Scan scan, boolean[] visited, int x, int y, double minSimilarity) {
+        int index = y * scan.resultWidth + x;
+        if (visited[index]) {
+            return null;
+        }
+        visited[index] = true;
+
+        double similarity = scan.getSimilarity(x, y, minSimilarity);
+        if (similarity <= minSimilarity) {
+            return null;
+        }
+
+        // climb to the peak, the first window over the similarity is usually on its slope
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            int bestX = x;
+            int bestY = y;
+            for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, scan.resultHeight - 1); ny++) {
+                for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, scan.resultWidth - 1); nx++) {
+                    double neighbour = scan.getSimilarity(nx, ny, similarity);
+                    if (neighbour > similarity) {
+                        similarity = neighbour;
+                        bestX = nx;
+                        bestY = ny;
+                    }
+                }
+            }
+            moved = bestX != x || bestY != y;
+            x = bestX;
+            y = bestY;
+        }
+
+        // similarity is the score, the same as peaks of the full search report
+        return new MatchResult(similarity, x, y, scan.templateWidth, scan.templateHeight);
+    }
+
+    private Point clip(Point point, int width, int height) {
+        return new Point(Math.max(0, Math.min(point.x, width - 1)), Math.max(0, Math.min(point.y, height - 1)));
+    }
+
+    private static class Scan {
+
+        private final byte[] source;
+        private final int sourceWidth;
+        private final IntegralImage integralImage;
+        private final int templateWidth;
+        private final int templateHeight;
+        private final TemplateMatchMethod matchMethod;
+        private final int resultWidth;
+        private final int resultHeight;
+        private final double area;
+        // template values, centered for CV_TM_CCOEFF_NORMED
+        private final double[] values;
+        // squared sums of the values from the row on, the last item is 0
+        private final double[] restNorms2;
+        private final double templateSum2;
+        private final boolean flat;
+
+        private Scan(byte[] source, int sourceWidth, IntegralImage integralImage, byte[] template, int templateWidth, int templateHeight,
+            TemplateMatchMethod matchMethod) {
+            this.source = source;
+            this.sourceWidth = sourceWidth;
+            this.integralImage = integralImage;
+            this.templateWidth = templateWidth;
+            this.templateHeight = templateHeight;
+            this.matchMethod = matchMethod;
+            this.resultWidth = integralImage.getWidth() - templateWidth + 1;
+            this.resultHeight = integralImage.getHeight() - templateHeight + 1;
+            this.area = (double) templateWidth * templateHeight;
+
+            double sum = 0;
+            double sum2 = 0;
+            for (int i = 0; i < template.length; i++) {
+                int pixel = template[i] & 0xff;
+                sum += pixel;
+                sum2 += pixel * pixel;
+            }
+            this.templateSum2 = sum2;
+
+            boolean centered = matchMethod == TemplateMatchMethod.CV_TM_CCOEFF_NORMED;
+            double mean = centered ? sum / area : 0;
+            this.values = new double[templateWidth * templateHeight];
+            this.restNorms2 = new double[templateHeight + 1];
+            for (int y = templateHeight - 1; y >= 0; y--) {
+                double rowNorm2 = 0;
+                for (int x = 0; x < templateWidth; x++) {
+                    double value = (template[y * templateWidth + x] & 0xff) - mean;
+                    values[y * templateWidth + x] = value;
+                    rowNorm2 += value * value;
+                }
+                restNorms2[y] = restNorms2[y + 1] + rowNorm2;
+            }
+            this.flat = centered && restNorms2[0] / area < MatchScores.DBL_EPSILON;
+        }
+
+        // any value not above the similarity when the window can not exceed it, the same as peaks are rejected
+        private double getSimilarity(int x, int y, double minSimilarity) {
+            long windowSum = integralImage.getSum(x, y, templateWidth, templateHeight);
+            long windowSum2 = integralImage.getSquaredSum(x, y, templateWidth, templateHeight);
+            boolean sqdiff = matchMethod == TemplateMatchMethod.CV_TM_SQDIFF_NORMED;
+            double windowNorm2 = matchMethod == TemplateMatchMethod.CV_TM_CCOEFF_NORMED
+                ? windowSum2 - (double) windowSum * windowSum / area
+                : windowSum2;
+            double norm = Math.sqrt(Math.max(windowNorm2, 0) * (sqdiff ? templateSum2 : restNorms2[0]));
+            if (norm == 0) {
+                // cvMatchTemplate gives the score of a mismatch
+                return Double.NEGATIVE_INFINITY;
+            }
+
+            double number = 0;
+            for (int row = 0; row < templateHeight; row++) {
+                int offset = (y + row) * sourceWidth + x;
+                int templateOffset = row * templateWidth;
+                for (int column = 0; column < templateWidth; column++) {
+                    double pixel = source[offset + column] & 0xff;
+                    if (sqdiff) {
+                        double difference = values[templateOffset + column] - pixel;
+                        number += difference * difference;
+                    } else {
+                        number += values[templateOffset + column] * pixel;
+                    }
+                }
+
+                // squared differences only grow, correlation of the rows left is bounded by their norms
+                int rowsLeft = templateHeight - row - 1;
+                if (sqdiff) {
+                    if (1 - number / norm <= minSimilarity) {
+                        return Double.NEGATIVE_INFINITY;
+                    }
+                } else if (rowsLeft > 0) {
+                    double rest2 = integralImage.getSquaredSum(x, y + row + 1, templateWidth, rowsLeft);
+                    if ((number + Math.sqrt(restNorms2[row + 1] * rest2)) / norm <= minSimilarity) {
+                        return Double.NEGATIVE_INFINITY;
+                    }
+                }
+            }
+
+            double score = MatchScores.normalize(number, norm, matchMethod);
+            return sqdiff ? 1 - score : score;
+        }
+    }
+}
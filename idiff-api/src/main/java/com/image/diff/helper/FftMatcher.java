@@ -0,0 +1,342 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.IntegralImage;
+import com.image.diff.core.Roi;
+import com.image.diff.core.TemplateMatchMethod;
+import java.util.Arrays;
+import org.apache.commons.lang3.Validate;
+
+// overlap-save FFT correlation, scores follow the cvMatchTemplate formulas. Not thread safe
+public class FftMatcher {
+
+    private static final int MIN_BLOCK_SIZE = 64;
+    // rounding of the bound must not reject a window reaching the similarity
+    private static final double REJECT_TOLERANCE = 1e-6;
+
+    private int blockWidth;
+    private int blockHeight;
+    private double[] blockReal = new double[0];
+    private double[] blockImaginary = new double[0];
+    private double[] templateReal = new double[0];
+    private double[] templateImaginary = new double[0];
+    private double[] lineReal = new double[0];
+    private double[] lineImaginary = new double[0];
+
+    public static double estimateOperations(int resultWidth, int resultHeight, int templateWidth, int templateHeight) {
+        int blockWidth = getBlockSize(templateWidth, resultWidth + templateWidth - 1);
+        int blockHeight = getBlockSize(templateHeight, resultHeight + templateHeight - 1);
+        long blocks = (long) ceilDivide(resultWidth, blockWidth - templateWidth + 1) * ceilDivide(resultHeight, blockHeight - templateHeight + 1);
+        double blockArea = (double) blockWidth * blockHeight;
+        double log = Math.log(blockArea) / Math.log(2);
+        // forward and inverse transform of complex data, the product and normalisation
+        return blocks * (2 * 5 * blockArea * log + 6 * blockArea) + 20.0 * resultWidth * resultHeight;
+    }
+
+    public float[] matchTemplate(byte[] source, int sourceWidth, int sourceHeight, byte[] template, int templateWidth, int templateHeight,
+        TemplateMatchMethod matchMethod) {
+        return matchTemplate(source, sourceWidth, new IntegralImage(source, sourceWidth, sourceHeight), new Roi(0, 0, sourceWidth, sourceHeight),
+            template, templateWidth, templateHeight, matchMethod);
+    }
+
+    public float[] matchTemplate(byte[] source, int sourceWidth, IntegralImage integralImage, Roi window, byte[] template,
+        int templateWidth, int templateHeight, TemplateMatchMethod matchMethod) {
+        return matchTemplate(source, sourceWidth, integralImage, window, template, templateWidth, templateHeight, matchMethod, Double.NEGATIVE_INFINITY);
+    }
+
+    // skipped windows get the score of a mismatch
+    public float[] matchTemplate(byte[] source, int sourceWidth, IntegralImage integralImage, Roi window, byte[] template,
+        int templateWidth, int templateHeight, TemplateMatchMethod matchMethod, double minSimilarity) {
+        int resultHeight = window.getHeight() - templateHeight + 1;
+        return matchTemplate(source, sourceWidth, integralImage, window, template, templateWidth, templateHeight, matchMethod, minSimilarity,
+            0, resultHeight);
+    }
+
+    // number of result rows one row of blocks covers, stripes starting at its multiples are computed from the same blocks
+    public static int getBlockRows(int templateHeight, int windowHeight) {
+        return getBlockSize(templateHeight, windowHeight) - templateHeight + 1;
+    }
+
+    // scores of the result rows from the first one on only, bit-identical to the same rows of the whole window
+    public float[] matchTemplate(byte[] source, int sourceWidth, IntegralImage integralImage, Roi window, byte[] template,
+        int templateWidth, int templateHeight, TemplateMatchMethod matchMethod, double minSimilarity, int firstRow, int rows) {
+        Validate.isTrue(templateWidth > 0 && templateHeight > 0, "Invalid template dimensions: " + templateWidth + "x" + templateHeight);
+        Validate.isTrue(window.getWidth() >= templateWidth && window.getHeight() >= templateHeight, "Template must not be larger than the window");
+        Validate.isTrue(window.getX() >= 0 && window.getY() >= 0 && window.getX() + window.getWidth() <= integralImage.getWidth()
+            && window.getY() + window.getHeight() <= integralImage.getHeight(), "Window must lie inside of the source: " + window);
+        Validate.notNull(matchMethod, "Match method must not be null");
+        int resultHeight = window.getHeight() - templateHeight + 1;
+        int blockRows = getBlockRows(templateHeight, window.getHeight());
+        Validate.isTrue(firstRow >= 0 && rows > 0 && firstRow + rows <= resultHeight, "Rows must lie inside of the result: " + firstRow + "+" + rows);
+        Validate.isTrue(firstRow % blockRows == 0 && (rows % blockRows == 0 || firstRow + rows == resultHeight),
+            "Rows must be aligned to the blocks of " + blockRows + " result rows");
+
+        int resultWidth = window.getWidth() - templateWidth + 1;
+        float[] result = new float[resultWidth * rows];
+        double templateSum = 0;
+        double templateSum2 = 0;
+        for (int i = 0; i < templateWidth * templateHeight; i++) {
+            int pixel = template[i] & 0xff;
+            templateSum += pixel;
+            templateSum2 += pixel * pixel;
+        }
+
+        boolean[] rejected = reject(integralImage, window, templateWidth, templateHeight, templateSum, templateSum2, matchMethod, minSimilarity,
+            firstRow, rows);
+        double[] correlation = correlate(source, sourceWidth, window, template, templateWidth, templateHeight, rejected, firstRow, rows);
+        normalize(correlation, integralImage, window, templateWidth, templateHeight, templateSum, templateSum2, matchMethod, rejected, result,
+            firstRow, rows);
+
+        return result;
+    }
+
+    // Cauchy-Schwarz bound of the window score
+    private boolean[] reject(IntegralImage integralImage, Roi window, int templateWidth, int templateHeight, double templateSum,
+        double templateSum2, TemplateMatchMethod matchMethod, double minSimilarity, int firstRow, int rows) {
+        int resultWidth = window.getWidth() - templateWidth + 1;
+        boolean[] rejected = new boolean[resultWidth * rows];
+        double area = (double) templateWidth * templateHeight;
+        double templateNorm2 = Math.max(templateSum2 - templateSum * templateSum / area, 0);
+        if (matchMethod == TemplateMatchMethod.CV_TM_CCOEFF_NORMED && templateNorm2 / area < MatchScores.DBL_EPSILON) {
+            // flat template correlates with everything
+            return rejected;
+        }
+
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < resultWidth; x++) {
+                long windowSum = integralImage.getSum(window.getX() + x, window.getY() + firstRow + y, templateWidth, templateHeight);
+                long windowSum2 = integralImage.getSquaredSum(window.getX() + x, window.getY() + firstRow + y, templateWidth, templateHeight);
+                double windowNorm2 = Math.max(windowSum2 - (double) windowSum * windowSum / area, 0);
+
+                double bound;
+                if (matchMethod == TemplateMatchMethod.CV_TM_CCOEFF_NORMED) {
+                    // flat window scores 0, any other may score 1
+                    bound = windowNorm2 / area < MatchScores.DBL_EPSILON ? 0 : 1;
+                } else {
+                    double norm = Math.sqrt(templateSum2 * windowSum2);
+                    if (norm == 0) {
+                        continue;
+                    }
+                    double product = Math.sqrt(templateNorm2 * windowNorm2) + templateSum * windowSum / area;
+                    bound = matchMethod == TemplateMatchMethod.CV_TM_CCORR_NORMED
+                        ? product / norm
+                        : 1 - (templateSum2 + windowSum2 - 2 * product) / norm;
+                }
+                rejected[y * resultWidth + x] = bound + REJECT_TOLERANCE < minSimilarity;
+            }
+        }
+
+        return rejected;
+    }
+
+    private double[] correlate(byte[] source, int sourceWidth, Roi window, byte[] template, int templateWidth, int templateHeight,
+        boolean[] rejected, int firstRow, int rows) {
+        int resultWidth = window.getWidth() - templateWidth + 1;
+        int resultHeight = window.getHeight() - templateHeight + 1;
+        prepareBlocks(getBlockSize(templateWidth, window.getWidth()), getBlockSize(templateHeight, window.getHeight()));
+
+        // template spectrum, conjugated so the product gives correlation instead of convolution
+        clear(templateReal, templateImaginary);
+        for (int y = 0; y < templateHeight; y++) {
+            for (int x = 0; x < templateWidth; x++) {
+                templateReal[y * blockWidth + x] = template[y * templateWidth + x] & 0xff;
+            }
+        }
+        transform(templateReal, templateImaginary, false);
+        for (int i = 0; i < templateImaginary.length; i++) {
+            templateImaginary[i] = -templateImaginary[i];
+        }
+
+        double[] correlation = new double[resultWidth * rows];
+        int stepX = blockWidth - templateWidth + 1;
+        int stepY = blockHeight - templateHeight + 1;
+        double scale = 1.0 / ((double) blockWidth * blockHeight);
+        // blocks are laid out over the whole window, so they are the same whichever rows are computed
+        for (int blockY = firstRow; blockY < firstRow + rows; blockY += stepY) {
+            for (int blockX = 0; blockX < resultWidth; blockX += stepX) {
+                // only positions whose window lies inside of the block are valid
+                int validWidth = Math.min(stepX, resultWidth - blockX);
+                int validHeight = Math.min(stepY, resultHeight - blockY);
+                if (isRejected(rejected, resultWidth, blockX, blockY - firstRow, validWidth, validHeight)) {
+                    continue;
+                }
+
+                clear(blockReal, blockImaginary);
+                int width = Math.min(blockWidth, window.getWidth() - blockX);
+                int height = Math.min(blockHeight, window.getHeight() - blockY);
+                for (int y = 0; y < height; y++) {
+                    int offset = (window.getY() + blockY + y) * sourceWidth + window.getX() + blockX;
+                    for (int x = 0; x < width; x++) {
+                        blockReal[y * blockWidth + x] = source[offset + x] & 0xff;
+                    }
+                }
+
+                transform(blockReal, blockImaginary, false);
+                for (int i = 0; i < blockReal.length; i++) {
+                    double real = blockReal[i] * templateReal[i] - blockImaginary[i] * templateImaginary[i];
+                    double imaginary = blockReal[i] * templateImaginary[i] + blockImaginary[i] * templateReal[i];
+                    blockReal[i] = real;
+                    blockImaginary[i] = imaginary;
+                }
+                transform(blockReal, blockImaginary, true);
+
+                for (int y = 0; y < validHeight; y++) {
+                    int offset = (blockY - firstRow + y) * resultWidth + blockX;
+                    for (int x = 0; x < validWidth; x++) {
+                        correlation[offset + x] = blockReal[y * blockWidth + x] * scale;
+                    }
+                }
+            }
+        }
+
+        return correlation;
+    }
+
+    private boolean isRejected(boolean[] rejected, int resultWidth, int x, int y, int width, int height) {
+        for (int row = y; row < y + height; row++) {
+            for (int column = x; column < x + width; column++) {
+                if (!rejected[row * resultWidth + column]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void normalize(double[] correlation, IntegralImage integralImage, Roi window, int templateWidth, int templateHeight,
+        double templateSum, double templateSum2, TemplateMatchMethod matchMethod, boolean[] rejected, float[] result, int firstRow, int rows) {
+        double area = (double) templateWidth * templateHeight;
+
+        boolean centered = matchMethod == TemplateMatchMethod.CV_TM_CCOEFF_NORMED;
+        double templateMean = centered ? templateSum / area : 0;
+        double templateNorm2 = centered ? Math.max(templateSum2 - templateSum * templateMean, 0) : templateSum2;
+        if (centered && templateNorm2 / area < MatchScores.DBL_EPSILON) {
+            // flat template correlates with everything
+            Arrays.fill(result, 1f);
+            return;
+        }
+        double templateNorm = Math.sqrt(templateNorm2);
+
+        int resultWidth = window.getWidth() - templateWidth + 1;
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < resultWidth; x++) {
+                if (rejected[y * resultWidth + x]) {
+                    result[y * resultWidth + x] = matchMethod != TemplateMatchMethod.CV_TM_SQDIFF_NORMED ? 0 : 1;
+                    continue;
+                }
+                long windowSum = integralImage.getSum(window.getX() + x, window.getY() + firstRow + y, templateWidth, templateHeight);
+                long windowSum2 = integralImage.getSquaredSum(window.getX() + x, window.getY() + firstRow + y, templateWidth, templateHeight);
+
+                double number = correlation[y * resultWidth + x];
+                double windowNorm2 = windowSum2;
+                if (centered) {
+                    number -= windowSum * templateMean;
+                    windowNorm2 -= (double) windowSum * windowSum / area;
+                } else if (matchMethod == TemplateMatchMethod.CV_TM_SQDIFF_NORMED) {
+                    number = windowSum2 - 2 * number + templateSum2;
+                }
+
+                double norm = Math.sqrt(Math.max(windowNorm2, 0)) * templateNorm;
+                result[y * resultWidth + x] = (float) MatchScores.normalize(number, norm, matchMethod);
+            }
+        }
+    }
+
+    private void prepareBlocks(int width, int height) {
+        blockWidth = width;
+        blockHeight = height;
+        int size = width * height;
+        if (blockReal.length != size) {
+            blockReal = new double[size];
+            blockImaginary = new double[size];
+            templateReal = new double[size];
+            templateImaginary = new double[size];
+        }
+        int line = Math.max(width, height);
+        if (lineReal.length < line) {
+            lineReal = new double[line];
+            lineImaginary = new double[line];
+        }
+    }
+
+    private void transform(double[] real, double[] imaginary, boolean inverse) {
+        for (int y = 0; y < blockHeight; y++) {
+            System.arraycopy(real, y * blockWidth, lineReal, 0, blockWidth);
+            System.arraycopy(imaginary, y * blockWidth, lineImaginary, 0, blockWidth);
+            transform(lineReal, lineImaginary, blockWidth, inverse);
+            System.arraycopy(lineReal, 0, real, y * blockWidth, blockWidth);
+            System.arraycopy(lineImaginary, 0, imaginary, y * blockWidth, blockWidth);
+        }
+        for (int x = 0; x < blockWidth; x++) {
+            for (int y = 0; y < blockHeight; y++) {
+                lineReal[y] = real[y * blockWidth + x];
+                lineImaginary[y] = imaginary[y * blockWidth + x];
+            }
+            transform(lineReal, lineImaginary, blockHeight, inverse);
+            for (int y = 0; y < blockHeight; y++) {
+                real[y * blockWidth + x] = lineReal[y];
+                imaginary[y * blockWidth + x] = lineImaginary[y];
+            }
+        }
+    }
+
+    // the inverse transform is not scaled
+    private void transform(double[] real, double[] imaginary, int n, boolean inverse) {
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                double swap = real[i];
+                real[i] = real[j];
+                real[j] = swap;
+                swap = imaginary[i];
+                imaginary[i] = imaginary[j];
+                imaginary[j] = swap;
+            }
+        }
+
+        for (int length = 2; length <= n; length <<= 1) {
+            double angle = 2 * Math.PI / length * (inverse ? 1 : -1);
+            double stepReal = Math.cos(angle);
+            double stepImaginary = Math.sin(angle);
+            int half = length >> 1;
+            for (int start = 0; start < n; start += length) {
+                double wReal = 1;
+                double wImaginary = 0;
+                for (int k = 0; k < half; k++) {
+                    int even = start + k;
+                    int odd = even + half;
+                    double oddReal = real[odd] * wReal - imaginary[odd] * wImaginary;
+                    double oddImaginary = real[odd] * wImaginary + imaginary[odd] * wReal;
+                    real[odd] = real[even] - oddReal;
+                    imaginary[odd] = imaginary[even] - oddImaginary;
+                    real[even] += oddReal;
+                    imaginary[even] += oddImaginary;
+
+                    double nextReal = wReal * stepReal - wImaginary * stepImaginary;
+                    wImaginary = wReal * stepImaginary + wImaginary * stepReal;
+                    wReal = nextReal;
+                }
+            }
+        }
+    }
+
+    private void clear(double[] real, double[] imaginary) {
+        Arrays.fill(real, 0);
+        Arrays.fill(imaginary, 0);
+    }
+
+    private static int getBlockSize(int templateSize, int sourceSize) {
+        return Math.min(getPowerOfTwo(Math.max(2 * templateSize, MIN_BLOCK_SIZE)), getPowerOfTwo(sourceSize));
+    }
+
+    private static int getPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    private static int ceilDivide(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
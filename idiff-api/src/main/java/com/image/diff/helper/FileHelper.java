@@ -0,0 +1,104 @@
+package com.image.diff.helper;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class FileHelper {
+
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    public byte[] hashContent(File file) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-1 is not available", ex);
+        }
+
+        InputStream input = null;
+        try {
+            input = new FileInputStream(file);
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not read file: " + file.getAbsolutePath(), ex);
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+
+        return digest.digest();
+    }
+
+    public String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    public void move(File source, File target) throws IOException {
+        if (target.exists() && !target.delete()) {
+            throw new IOException("Could not replace " + target.getAbsolutePath());
+        }
+        if (!source.renameTo(target)) {
+            throw new IOException("Could not move " + source.getAbsolutePath() + " to " + target.getAbsolutePath());
+        }
+    }
+
+    public File[] listFiles(File directory, final String suffix) {
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(suffix);
+            }
+        });
+        return files == null ? new File[0] : files;
+    }
+
+    // the given file is kept
+    public void evictLeastRecentlyUsed(File directory, String suffix, long maxSize, File keep) {
+        File[] files = listFiles(directory, suffix);
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= maxSize) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                long difference = first.lastModified() - second.lastModified();
+                return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+            }
+        });
+        for (int i = 0; i < files.length && size > maxSize; i++) {
+            if (files[i].equals(keep)) {
+                continue;
+            }
+            long length = files[i].length();
+            if (files[i].delete()) {
+                logger.debug("Cache entry {} evicted", files[i]);
+                size -= length;
+            }
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.image.diff.helper;
 
+import com.image.diff.core.DiffEngine;
 import com.image.diff.core.Match;
 import com.image.diff.core.MatchContext;
+import com.image.diff.core.ResultArtifacts;
+import com.image.diff.core.ResultFormat;
 import com.image.diff.search.DiffSearchStrategy;
 import com.image.diff.search.FindSearchStrategy;
 import com.image.diff.search.SearchStrategy;
@@ -15,15 +18,50 @@ public class Finder {
     private Logger logger = LoggerFactory.getLogger(getClass());
     private MatchContext context;
     private SearchStrategy searchStrategy;
+    private RasterHelper rasterHelper;
+    private DecoderHelper decoderHelper;
+    private ImagePool imagePool;
+    private boolean ownImagePool;
 
     private Finder() {
     }
 
     public List<Match> find() {
+        Validate.validState(searchStrategy != null, "Identical check does not search, use isIdentical() instead.");
+        long liveBytes = imagePool != null ? imagePool.getLiveBytes() : 0;
+        try {
+            return findAndWriteResults();
+        } finally {
+            if (imagePool != null) {
+                releaseImagePool(liveBytes);
+            }
+        }
+    }
+
+    private void releaseImagePool(long liveBytes) {
+        if (ownImagePool) {
+            // nothing else uses the pool, idle images are freed right away and leaks are reported
+            imagePool.clear();
+            return;
+        }
+        long leakedBytes = imagePool.getLiveBytes() - liveBytes;
+        if (leakedBytes > 0) {
+            logger.warn("{} native bytes of images were not given back to the pool", leakedBytes);
+        }
+    }
+
+    private List<Match> findAndWriteResults() {
         List<Match> matchResults = searchStrategy.find();
 
-        searchStrategy.highlightRois();
-        searchStrategy.highlightMatchedElements(matchResults);
+        // result window shows the result images, so they are needed anyway
+        boolean resultImagesNeeded = context.isShowResult()
+            || context.getResultArtifacts() == ResultArtifacts.ALWAYS
+            || (context.getResultArtifacts() == ResultArtifacts.ON_MATCHES && !matchResults.isEmpty());
+        if (resultImagesNeeded) {
+            searchStrategy.highlightRois();
+            searchStrategy.highlightMatchedElements(matchResults);
+            searchStrategy.writeResultImages();
+        }
 
         if (context.isShowResult()) {
             searchStrategy.showResult(matchResults);
@@ -32,11 +70,18 @@ public class Finder {
         return matchResults;
     }
 
+    public boolean isIdentical() {
+        // files are compared while they are decoded, nothing is kept in the context
+        return rasterHelper.isIdentical(context.getImage1(), context.getImage2(), decoderHelper);
+    }
+
     public static class Builder {
 
         private final MatchContext context;
         private ImageHelper imageHelper;
         private HighlightHelper highlightHelper;
+        private RasterHelper rasterHelper;
+        private DecoderHelper decoderHelper;
         private SearchStrategy searchStrategy;
 
         public Builder(MatchContext context) {
@@ -54,6 +99,16 @@ public class Finder {
             return this;
         }
 
+        public Builder rasterHelper(RasterHelper rasterHelper) {
+            this.rasterHelper = rasterHelper;
+            return this;
+        }
+
+        public Builder decoderHelper(DecoderHelper decoderHelper) {
+            this.decoderHelper = decoderHelper;
+            return this;
+        }
+
         public Builder searchStrategy(SearchStrategy imageFinder) {
             this.searchStrategy = imageFinder;
             return this;
@@ -63,22 +118,71 @@ public class Finder {
             Validate.notNull(context, "Context must not be null");
             Validate.notNull(context.getImage1(), "Please set first image.");
             Validate.notNull(context.getImage2(), "Please set second image.");
-            Validate.notNull(context.getResultImage(), "Please set result image.");
-            Validate.notNull(context.getResultSourceImage(), "Please set result source image.");
-            Validate.isTrue(context.getMatchSimilarity() > 0 && context.getMatchSimilarity() < 1,
-                "Expected matching similarity should be from 0..1 (both exclusive). Passed: " + context.getMatchSimilarity());
-            Validate.notNull(context.getMatchMethod(), "Please set match method.");
-            Validate.isTrue(context.getLimit() > 0,
-                "Expected limit of results should be greater than 0. Passed: " + context.getLimit());
-            Validate.notNull(context.getRois(), "List of region of interests should not be null.");
+            Validate.notNull(context.getResultArtifacts(), "Please set result artifacts.");
+            if (context.getResultArtifacts() != ResultArtifacts.NONE) {
+                Validate.notNull(context.getResultImage(), "Please set result image.");
+                Validate.notNull(context.getResultSourceImage(), "Please set result source image.");
+            }
+            Validate.isTrue(!context.isShowResult() || context.getResultArtifacts() != ResultArtifacts.NONE,
+                "Result can not be shown without result images.");
+            // result images are drawn on decoded images, which these diff modes avoid
+            boolean undecodedDiff = context.isDiffSpecified()
+                && (context.getBandHeight() > 0 || context.getRasterCacheDirectory() != null || context.isBaselineIndex());
+            Validate.isTrue(!undecodedDiff || context.getResultArtifacts() == ResultArtifacts.NONE,
+                "Result images can not be written by streaming diff, raster cache or baseline index, set result artifacts to none.");
+            Validate.notNull(context.getResultFormat(), "Please set result format.");
+            Validate.isTrue(!context.isShowResult() || context.getResultFormat() == ResultFormat.PNG,
+                "Result can be shown for PNG result images only.");
+            Validate.isTrue(context.getCompressionLevel() >= 0 && context.getCompressionLevel() <= 9,
+                "Expected compression level should be from 0..9. Passed: " + context.getCompressionLevel());
+            Validate.notNull(context.getPngFilter(), "Please set PNG filter.");
+            if (!context.isIdenticalCheckSpecified()) {
+                // identical check compares pixels only, the search settings are not used
+                new SearchSettingsValidator().validate(context);
+            }
+            Validate.notNull(context.getDiffEngine(), "Please set diff engine.");
+            Validate.isTrue(!context.isCoarseToFine() || context.getDiffEngine() == DiffEngine.RASTER,
+                "Coarse to fine diff is supported by raster diff engine only.");
+            Validate.isTrue(!context.isBaselineIndex() || context.getDiffEngine() == DiffEngine.RASTER,
+                "Baseline index is supported by raster diff engine only.");
+            Validate.isTrue(context.getBandHeight() >= 0,
+                "Expected band height should be 0 (streaming disabled) or greater. Passed: " + context.getBandHeight());
+            Validate.isTrue(context.getBandHeight() == 0 || context.getDiffEngine() == DiffEngine.RASTER,
+                "Streaming diff is supported by raster diff engine only.");
+            Validate.isTrue(context.getBandHeight() == 0 || (!context.isBaselineIndex() && !context.isCoarseToFine()),
+                "Streaming diff can not be combined with baseline index or coarse to fine diff.");
+            if (context.getRasterCacheDirectory() != null) {
+                Validate.isTrue(context.getRasterCacheSize() > 0,
+                    "Expected raster cache size should be greater than 0. Passed: " + context.getRasterCacheSize());
+                Validate.isTrue(context.getDiffEngine() == DiffEngine.RASTER,
+                    "Raster cache is supported by raster diff engine only.");
+                Validate.isTrue(context.getBandHeight() == 0 && !context.isBaselineIndex() && !context.isCoarseToFine(),
+                    "Raster cache can not be combined with streaming diff, baseline index or coarse to fine diff.");
+            }
+            Validate.isTrue(context.getTileSize() >= 0,
+                "Expected tile size should be 0 (tiling disabled) or greater. Passed: " + context.getTileSize());
 
             Validate.isTrue(context.getImage1().exists(), "First image should exists.");
             Validate.isTrue(context.getImage2().exists(), "Second image should exists.");
 
-            boolean oneOptionChosen = !((!context.isFindSpecified() && !context.isDiffSpecified()) || (context.isFindSpecified() && context.isDiffSpecified()));
-            Validate.isTrue(oneOptionChosen, "You should choose mode before start: diff or find.");
+            int chosenModes = (context.isFindSpecified() ? 1 : 0) + (context.isDiffSpecified() ? 1 : 0)
+                + (context.isIdenticalCheckSpecified() ? 1 : 0);
+            Validate.isTrue(chosenModes == 1, "You should choose mode before start: diff, find or identical.");
+
+            if (rasterHelper == null) {
+                rasterHelper = new RasterHelper();
+            }
+            if (decoderHelper == null) {
+                decoderHelper = new DecoderHelper();
+            }
 
-            if (searchStrategy == null) {
+            boolean ownImagePool = false;
+            // identical check only compares the images, nothing is searched
+            if (searchStrategy == null && !context.isIdenticalCheckSpecified()) {
+                if (imageHelper == null) {
+                    imageHelper = new ImageHelper();
+                    ownImagePool = true;
+                }
                 // initialize it based on context values
                 if (context.isDiffSpecified()) {
                     searchStrategy = new DiffSearchStrategy.Builder(context).
@@ -96,6 +200,12 @@ public class Finder {
             Finder finder = new Finder();
             finder.context = context;
             finder.searchStrategy = searchStrategy;
+            finder.rasterHelper = rasterHelper;
+            finder.decoderHelper = decoderHelper;
+            if (imageHelper != null) {
+                finder.imagePool = imageHelper.getImagePool();
+                finder.ownImagePool = ownImagePool;
+            }
 
             return finder;
         }
@@ -1,31 +1,69 @@
 package com.image.diff.helper;
 
 import com.image.diff.core.Match;
+import com.image.diff.core.MatchResult;
 import com.image.diff.visual.HighlightElement;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import javax.imageio.ImageIO;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.Validate;
 
 public class HighlightHelper {
 
+    private final ImageEncoder encoder;
+
+    public HighlightHelper() {
+        this(new PngEncoder());
+    }
+
+    public HighlightHelper(ImageEncoder encoder) {
+        Validate.notNull(encoder, "Encoder must not be null");
+        this.encoder = encoder;
+    }
+
     public String getHighlightElementText(Match match) {
         double score = match.getScore();
         int roundedScore = (int) (score * 100);
+        if (match instanceof MatchResult && ((MatchResult) match).getScale() != 1) {
+            // template found at another scale
+            return roundedScore + "% x" + ((MatchResult) match).getScale();
+        }
 
         return roundedScore + "%";
     }
 
-    public void highlightElement(File image, HighlightElement element) throws IOException {
-        BufferedImage canvas = ImageIO.read(image);
+    // the image itself is left untouched
+    public void writeHighlightedImage(BufferedImage image, List<HighlightElement> elements, File output) throws IOException {
+        BufferedImage canvas = image;
+        if (!elements.isEmpty()) {
+            canvas = new BufferedImage(image.getColorModel(), image.copyData(null), image.isAlphaPremultiplied(), null);
+            drawElements(canvas, elements);
+        }
+
+        if (output.getParentFile() != null) {
+            FileUtils.forceMkdir(output.getParentFile());
+        }
+        encoder.write(canvas, output);
+    }
 
+    private void drawElements(BufferedImage canvas, List<HighlightElement> elements) {
         Graphics2D g2 = canvas.createGraphics();
 
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
             RenderingHints.VALUE_ANTIALIAS_ON);
 
+        for (HighlightElement element : elements) {
+            drawElement(g2, element);
+        }
+
+        g2.dispose();
+    }
+
+    private void drawElement(Graphics2D g2, HighlightElement element) {
         // border
         g2.setColor(element.getBorderColor());
         g2.drawRect(element.getX(), element.getY(), element.getWidth(), element.getHeight());
@@ -42,10 +80,5 @@ public class HighlightHelper {
             g2.setFont(element.getFont());
             g2.drawString(element.getText(), centerX, centerY);
         }
-
-        g2.dispose();
-
-        // update result image with highlights
-        ImageIO.write(canvas, "PNG", image);
     }
 }
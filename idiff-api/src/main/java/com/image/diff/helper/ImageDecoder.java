@@ -0,0 +1,13 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.DecodedImage;
+import com.image.diff.core.PixelFormat;
+import java.io.File;
+import java.io.IOException;
+
+// implementations must be thread safe
+public interface ImageDecoder {
+
+    // null lets the next decoder try the file
+    DecodedImage decode(File image, PixelFormat format, int subsampling, byte[] buffer) throws IOException;
+}
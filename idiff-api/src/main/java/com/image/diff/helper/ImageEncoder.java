@@ -0,0 +1,10 @@
+package com.image.diff.helper;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+public interface ImageEncoder {
+
+    void write(BufferedImage image, File output) throws IOException;
+}
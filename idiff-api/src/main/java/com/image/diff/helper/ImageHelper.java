@@ -1,18 +1,67 @@
 package com.image.diff.helper;
 
+import com.image.diff.core.DecodedImage;
+import com.image.diff.core.IntegralImage;
 import com.image.diff.core.MatchContainer;
+import com.image.diff.core.MatchEngine;
+import com.image.diff.core.PixelFormat;
+import com.image.diff.core.RegionTable;
 import com.image.diff.core.Roi;
+import com.image.diff.core.RoiIndex;
 import com.image.diff.core.TemplateMatchMethod;
-import com.googlecode.javacpp.Loader;
 import static com.googlecode.javacv.cpp.opencv_core.*;
 import static com.googlecode.javacv.cpp.opencv_imgproc.*;
+import java.awt.Point;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ImageHelper {
 
+    private static final int MIN_PYRAMID_TEMPLATE_SIZE = 8;
+    private static final double PYRAMID_SIMILARITY_RELAXATION = 0.1;
+    // relative costs of one operation, spatial matching runs natively and vectorised
+    private static final double SPATIAL_OPERATION_COST = 1;
+    private static final double FFT_OPERATION_COST = 4;
+
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ImagePool imagePool;
+
+    public ImageHelper() {
+        // own pool, so idle native images are freed together with the helper
+        this(new ImagePool());
+    }
+
+    public ImageHelper(ImagePool imagePool) {
+        Validate.notNull(imagePool, "Image pool must not be null");
+        this.imagePool = imagePool;
+    }
+
+    public ImagePool getImagePool() {
+        return imagePool;
+    }
+
+    // borrowed from the pool, content is undefined
+    public IplImage createImage(int width, int height, int depth, int channels) {
+        return imagePool.borrow(width, height, depth, channels);
+    }
+
+    public void release(IplImage image) {
+        imagePool.giveBack(image);
+    }
+
     private void validateInputImage(IplImage sourceImage) {
         if (sourceImage == null || sourceImage.isNull()) {
             throw new IllegalArgumentException("Image must not be null");
@@ -24,105 +73,612 @@ public class ImageHelper {
     }
 
     public MatchContainer computeResultImage(IplImage sourceImage, IplImage templateImage, TemplateMatchMethod matchMethod) {
+        return computeResultImage(sourceImage, templateImage, matchMethod, MatchEngine.SPATIAL);
+    }
+
+    public MatchContainer computeResultImage(IplImage sourceImage, IplImage templateImage, TemplateMatchMethod matchMethod, MatchEngine matchEngine) {
         validateInputImage(sourceImage);
+        MatchSource source = new MatchSource(sourceImage, imagePool);
+        try {
+            return computeResultImage(source, templateImage, matchMethod, matchEngine, Double.NEGATIVE_INFINITY);
+        } finally {
+            source.release();
+        }
+    }
+
+    public MatchContainer computeResultImage(MatchSource source, IplImage templateImage, TemplateMatchMethod matchMethod, MatchEngine matchEngine,
+        double minSimilarity) {
         validateInputImage(templateImage);
 
-        cvResetImageROI(sourceImage);
+        IplImage sourceImage = source.getImage();
         int resultWidth = sourceImage.width() - templateImage.width() + 1;
         int resultHeight = sourceImage.height() - templateImage.height() + 1;
+        MatchEngine engine = chooseMatchEngine(matchEngine, sourceImage, templateImage,
+            getSpatialCost(resultWidth, resultHeight, templateImage), getFftCost(resultWidth, resultHeight, templateImage));
 
-        IplImage resultImage = IplImage.create(cvSize(resultWidth, resultHeight), IPL_DEPTH_32F, 1);
-        cvSet(resultImage, cvScalarAll(0));
-        cvMatchTemplate(sourceImage, templateImage, resultImage, matchMethod.value());
+        IplImage resultImage = imagePool.borrow(resultWidth, resultHeight, IPL_DEPTH_32F, 1);
+        if (engine == MatchEngine.FFT) {
+            matchTemplateWithFft(source, new Roi(0, 0, sourceImage.width(), sourceImage.height()), templateImage, resultImage, matchMethod,
+                minSimilarity);
+        } else {
+            cvSet(resultImage, cvScalarAll(0));
+            cvMatchTemplate(sourceImage, templateImage, resultImage, matchMethod.value());
+        }
 
-        return new MatchContainer(sourceImage, templateImage, resultImage, matchMethod);
+        return new MatchContainer(sourceImage, templateImage, resultImage, matchMethod, engine);
     }
 
-    public MatchContainer computeResultImage(IplImage sourceImage, IplImage templateImage, TemplateMatchMethod matchMethod, List<Roi> rois) {
+    // stripes are matched by FFT, cvMatchTemplate of a stripe is not bit-identical to the one of the whole image
+    public MatchContainer computeResultImage(IplImage sourceImage, IplImage templateImage, TemplateMatchMethod matchMethod, int stripeHeight, int parallelism) {
         validateInputImage(sourceImage);
+        MatchSource source = new MatchSource(sourceImage, imagePool);
+        try {
+            return computeResultImage(source, templateImage, matchMethod, stripeHeight, parallelism, Double.NEGATIVE_INFINITY);
+        } finally {
+            source.release();
+        }
+    }
+
+    public MatchContainer computeResultImage(MatchSource source, IplImage templateImage, TemplateMatchMethod matchMethod, int stripeHeight, int parallelism,
+        double minSimilarity) {
         validateInputImage(templateImage);
+        Validate.isTrue(stripeHeight > 0, "Stripe height should be greater than 0. Passed: " + stripeHeight);
 
-        cvResetImageROI(sourceImage);
+        IplImage sourceImage = source.getImage();
+        Validate.isTrue(sourceImage.depth() == IPL_DEPTH_8U && sourceImage.nChannels() == 1
+            && templateImage.depth() == IPL_DEPTH_8U && templateImage.nChannels() == 1, "Parallel stripes support one-channel 8-bit images only");
         int resultWidth = sourceImage.width() - templateImage.width() + 1;
         int resultHeight = sourceImage.height() - templateImage.height() + 1;
+        // stripes start at rows of FFT blocks, so every score is computed from the same block as without stripes
+        int blockRows = FftMatcher.getBlockRows(templateImage.height(), sourceImage.height());
+        int rows = (stripeHeight + blockRows - 1) / blockRows * blockRows;
+        int stripes = (resultHeight + rows - 1) / rows;
+        if (stripes == 1) {
+            // nothing to split
+            return computeResultImage(source, templateImage, matchMethod, MatchEngine.FFT, minSimilarity);
+        }
 
-        IplImage resultImage = IplImage.create(cvSize(resultWidth, resultHeight), IPL_DEPTH_32F, 1);
-        cvSet(resultImage, cvScalarAll(0));
-
-        for (Roi unboundedROI : rois) {
-            if (unboundedROI.getWidth() < templateImage.width()) {
-                // width too narrow to fit the target
-                continue;
+        byte[] template = getPixels(templateImage, 0, 0, templateImage.width(), templateImage.height());
+        // derived data of the source is computed once, before the stripes share it
+        byte[] pixels = source.getPixels();
+        IntegralImage integralImage = source.getIntegralImage();
+        Roi window = new Roi(0, 0, sourceImage.width(), sourceImage.height());
+        IplImage resultImage = imagePool.borrow(resultWidth, resultHeight, IPL_DEPTH_32F, 1);
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, stripes));
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>(stripes);
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                int y = stripe * rows;
+                futures.add(executor.submit(new MatchStripeTask(pixels, integralImage, window, template, templateImage.width(),
+                    templateImage.height(), matchMethod, minSimilarity, y, Math.min(rows, resultHeight - y), resultImage)));
             }
-            if (unboundedROI.getHeight() < templateImage.height()) {
-                // height too short to fit the target
-                continue;
+            for (Future<?> future : futures) {
+                future.get();
             }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            imagePool.giveBack(resultImage);
+            throw new IllegalStateException("Parallel template matching was interrupted", ex);
+        } catch (ExecutionException ex) {
+            imagePool.giveBack(resultImage);
+            throw new IllegalStateException("Parallel template matching failed", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new MatchContainer(sourceImage, templateImage, resultImage, matchMethod, MatchEngine.FFT);
+    }
+
+    public MatchContainer computeResultImage(IplImage sourceImage, IplImage templateImage, TemplateMatchMethod matchMethod, List<Roi> rois) {
+        return computeResultImage(sourceImage, templateImage, matchMethod, rois, MatchEngine.SPATIAL);
+    }
+
+    public MatchContainer computeResultImage(IplImage sourceImage, IplImage templateImage, TemplateMatchMethod matchMethod, List<Roi> rois,
+        MatchEngine matchEngine) {
+        validateInputImage(sourceImage);
+        MatchSource source = new MatchSource(sourceImage, imagePool);
+        try {
+            return computeResultImage(source, templateImage, matchMethod, rois, matchEngine, Double.NEGATIVE_INFINITY);
+        } finally {
+            source.release();
+        }
+    }
+
+    public MatchContainer computeResultImage(MatchSource source, IplImage templateImage, TemplateMatchMethod matchMethod, List<Roi> rois,
+        MatchEngine matchEngine, double minSimilarity) {
+        validateInputImage(templateImage);
+
+        IplImage sourceImage = source.getImage();
+        int resultWidth = sourceImage.width() - templateImage.width() + 1;
+        int resultHeight = sourceImage.height() - templateImage.height() + 1;
 
+        List<Roi> windows = new ArrayList<Roi>(rois.size());
+        double spatialCost = 0;
+        double fftCost = 0;
+        for (Roi unboundedROI : rois) {
             // ROI should intersect with image bounds
             Roi roi = unboundedROI.intersection(new Roi(0, 0, sourceImage.width(), sourceImage.height()));
+            if (roi.getWidth() < templateImage.width() || roi.getHeight() < templateImage.height()) {
+                // too small to fit the target
+                continue;
+            }
+            windows.add(roi);
+            int w = roi.getWidth() - templateImage.width() + 1;
+            int h = roi.getHeight() - templateImage.height() + 1;
+            spatialCost += getSpatialCost(w, h, templateImage);
+            fftCost += getFftCost(w, h, templateImage);
+        }
+        MatchEngine engine = chooseMatchEngine(matchEngine, sourceImage, templateImage, spatialCost, fftCost);
+
+        // positions outside of the ROIs are never matches
+        IplImage resultImage = imagePool.borrow(resultWidth, resultHeight, IPL_DEPTH_32F, 1);
+        cvSet(resultImage, cvScalarAll(getWorstScore(matchMethod)));
 
-            cvSetImageROI(sourceImage, cvRect(roi.getX(), roi.getY(), roi.getWidth(), roi.getHeight()));
+        for (Roi roi : windows) {
+            if (engine == MatchEngine.FFT) {
+                matchTemplateWithFft(source, roi, templateImage, resultImage, matchMethod, minSimilarity);
+                continue;
+            }
 
+            // sub-rect headers leave the ROI of the shared source untouched
             int w = roi.getWidth() - templateImage.width() + 1;
             int h = roi.getHeight() - templateImage.height() + 1;
-            cvSetImageROI(resultImage, cvRect(roi.getX(), roi.getY(), w, h));
+            CvMat sourceWindow = cvGetSubRect(sourceImage, new CvMat(), cvRect(roi.getX(), roi.getY(), roi.getWidth(), roi.getHeight()));
+            CvMat resultWindow = cvGetSubRect(resultImage, new CvMat(), cvRect(roi.getX(), roi.getY(), w, h));
+            cvMatchTemplate(sourceWindow, templateImage, resultWindow, matchMethod.value());
+        }
 
-            cvMatchTemplate(sourceImage, templateImage, resultImage, matchMethod.value());
+        return new MatchContainer(sourceImage, templateImage, resultImage, matchMethod, engine);
+    }
+
+    private MatchEngine chooseMatchEngine(MatchEngine matchEngine, IplImage sourceImage, IplImage templateImage, double spatialCost, double fftCost) {
+        Validate.notNull(matchEngine, "Match engine must not be null");
 
-            cvResetImageROI(resultImage);
-            cvResetImageROI(sourceImage);
+        boolean fftSupported = sourceImage.depth() == IPL_DEPTH_8U && sourceImage.nChannels() == 1
+            && templateImage.depth() == IPL_DEPTH_8U && templateImage.nChannels() == 1;
+        if (matchEngine == MatchEngine.FFT) {
+            Validate.isTrue(fftSupported, "FFT matching supports one-channel 8-bit images only");
+            return matchEngine;
+        }
+        if (matchEngine == MatchEngine.AUTO) {
+            MatchEngine engine = fftSupported && fftCost < spatialCost ? MatchEngine.FFT : MatchEngine.SPATIAL;
+            logger.debug("{} match engine chosen, estimated spatial cost {}, FFT cost {}", engine, spatialCost, fftCost);
+            return engine;
+        }
+        return matchEngine;
+    }
+
+    private double getSpatialCost(int resultWidth, int resultHeight, IplImage templateImage) {
+        return SPATIAL_OPERATION_COST * resultWidth * resultHeight * templateImage.width() * templateImage.height();
+    }
+
+    private double getFftCost(int resultWidth, int resultHeight, IplImage templateImage) {
+        return FFT_OPERATION_COST * FftMatcher.estimateOperations(resultWidth, resultHeight, templateImage.width(), templateImage.height());
+    }
+
+    private void matchTemplateWithFft(MatchSource source, Roi window, IplImage templateImage, IplImage resultImage, TemplateMatchMethod matchMethod,
+        double minSimilarity) {
+        byte[] template = getPixels(templateImage, 0, 0, templateImage.width(), templateImage.height());
+        float[] scores = new FftMatcher().matchTemplate(source.getPixels(), source.getWidth(), source.getIntegralImage(), window,
+            template, templateImage.width(), templateImage.height(), matchMethod, minSimilarity);
+
+        int width = window.getWidth() - templateImage.width() + 1;
+        int height = window.getHeight() - templateImage.height() + 1;
+        int stride = resultImage.widthStep() / 4;
+        FloatBuffer result = resultImage.getFloatBuffer();
+        for (int y = 0; y < height; y++) {
+            result.position((window.getY() + y) * stride + window.getX());
+            result.put(scores, y * width, width);
+        }
+    }
+
+    public byte[] getPixels(IplImage image) {
+        validateInputImage(image);
+        Validate.isTrue(image.depth() == IPL_DEPTH_8U && image.nChannels() == 1, "Pixels are available for one-channel 8-bit images only");
+        return getPixels(image, 0, 0, image.width(), image.height());
+    }
+
+    private byte[] getPixels(IplImage image, int x, int y, int width, int height) {
+        byte[] pixels = new byte[width * height];
+        int step = image.widthStep();
+        ByteBuffer buffer = image.getByteBuffer();
+        for (int row = 0; row < height; row++) {
+            buffer.position((y + row) * step + x);
+            buffer.get(pixels, row * width, width);
+        }
+        return pixels;
+    }
+
+    // the rest of the result image holds the worst score
+    public MatchContainer computeResultImage(IplImage sourceImage, IplImage templateImage, TemplateMatchMethod matchMethod,
+        int levels, double minSimilarity, int candidates) {
+        validateInputImage(sourceImage);
+        MatchSource source = new MatchSource(sourceImage, imagePool);
+        try {
+            return computeResultImage(source, templateImage, matchMethod, levels, minSimilarity, candidates);
+        } finally {
+            source.release();
+        }
+    }
+
+    public MatchContainer computeResultImage(MatchSource source, IplImage templateImage, TemplateMatchMethod matchMethod,
+        int levels, double minSimilarity, int candidates) {
+        validateInputImage(templateImage);
+        Validate.isTrue(levels > 0, "Pyramid levels should be greater than 0. Passed: " + levels);
+
+        // the template should keep some details at the coarsest level
+        levels = getPyramidLevels(templateImage, levels);
+        if (levels == 0) {
+            return computeResultImage(source, templateImage, matchMethod, MatchEngine.SPATIAL, minSimilarity);
+        }
+
+        IplImage sourceImage = source.getImage();
+        int resultWidth = sourceImage.width() - templateImage.width() + 1;
+        int resultHeight = sourceImage.height() - templateImage.height() + 1;
+
+        IplImage resultImage = imagePool.borrow(resultWidth, resultHeight, IPL_DEPTH_32F, 1);
+        cvSet(resultImage, cvScalarAll(getWorstScore(matchMethod)));
+
+        // refine the candidates, the coarse position is exact up to the scale
+        int scale = 1 << levels;
+        for (Point candidate : findCandidates(source, templateImage, matchMethod, levels, minSimilarity, candidates)) {
+            int x0 = Math.max(candidate.x - scale, 0);
+            int y0 = Math.max(candidate.y - scale, 0);
+            int x1 = Math.min(candidate.x + scale, resultWidth - 1);
+            int y1 = Math.min(candidate.y + scale, resultHeight - 1);
+            CvMat sourceWindow = cvGetSubRect(sourceImage, new CvMat(),
+                cvRect(x0, y0, x1 - x0 + templateImage.width(), y1 - y0 + templateImage.height()));
+            CvMat resultWindow = cvGetSubRect(resultImage, new CvMat(), cvRect(x0, y0, x1 - x0 + 1, y1 - y0 + 1));
+            cvMatchTemplate(sourceWindow, templateImage, resultWindow, matchMethod.value());
         }
 
         return new MatchContainer(sourceImage, templateImage, resultImage, matchMethod);
     }
 
+    public List<Point> findCandidates(MatchSource source, IplImage templateImage, TemplateMatchMethod matchMethod,
+        int levels, double minSimilarity, int candidates) {
+        validateInputImage(templateImage);
+        Validate.isTrue(levels > 0, "Pyramid levels should be greater than 0. Passed: " + levels);
+
+        IplImage coarseSourceImage = source.getLevel(levels);
+        IplImage coarseTemplateImage = downsample(templateImage, levels);
+        IplImage coarseResultImage = imagePool.borrow(coarseSourceImage.width() - coarseTemplateImage.width() + 1,
+            coarseSourceImage.height() - coarseTemplateImage.height() + 1, IPL_DEPTH_32F, 1);
+        try {
+            cvMatchTemplate(coarseSourceImage, coarseTemplateImage, coarseResultImage, matchMethod.value());
+
+            // downsampling blurs the peaks, so candidates are accepted below the requested similarity
+            double candidateSimilarity = minSimilarity - PYRAMID_SIMILARITY_RELAXATION * levels;
+            double worstScore = getWorstScore(matchMethod);
+            int scale = 1 << levels;
+            List<Point> result = new ArrayList<Point>();
+            double minValue[] = new double[1];
+            double maxValue[] = new double[1];
+            CvPoint minPoint = new CvPoint();
+            CvPoint maxPoint = new CvPoint();
+            for (int i = 0; i < candidates; i++) {
+                cvMinMaxLoc(coarseResultImage, minValue, maxValue, minPoint, maxPoint, null);
+                CvPoint point = matchMethod == TemplateMatchMethod.CV_TM_SQDIFF_NORMED ? minPoint : maxPoint;
+                double score = matchMethod == TemplateMatchMethod.CV_TM_SQDIFF_NORMED ? 1 - minValue[0] : maxValue[0];
+                if (score < candidateSimilarity) {
+                    break;
+                }
+                result.add(new Point(point.x() * scale, point.y() * scale));
+
+                // suppress the candidate, so the next one is another match
+                int xmargin = Math.max(coarseTemplateImage.width() / 2, 1);
+                int ymargin = Math.max(coarseTemplateImage.height() / 2, 1);
+                cvRectangle(coarseResultImage, cvPoint(point.x() - xmargin, point.y() - ymargin),
+                    cvPoint(point.x() + xmargin, point.y() + ymargin), cvRealScalar(worstScore), CV_FILLED, 8, 0);
+            }
+            return result;
+        } finally {
+            imagePool.giveBack(coarseResultImage);
+            imagePool.giveBack(coarseTemplateImage);
+        }
+    }
+
+    public int getPyramidLevels(IplImage templateImage, int levels) {
+        while (levels > 0 && Math.min(templateImage.width(), templateImage.height()) >> levels < MIN_PYRAMID_TEMPLATE_SIZE) {
+            levels--;
+        }
+        return levels;
+    }
+
+    public IplImage resize(IplImage image, int width, int height) {
+        validateInputImage(image);
+        Validate.isTrue(width > 0 && height > 0, "Invalid image dimensions: " + width + "x" + height);
+
+        IplImage result = imagePool.borrow(width, height, image.depth(), image.nChannels());
+        boolean shrinking = (long) width * height < (long) image.width() * image.height();
+        cvResize(image, result, shrinking ? CV_INTER_AREA : CV_INTER_LINEAR);
+        return result;
+    }
+
+    private IplImage downsample(IplImage image, int levels) {
+        IplImage result = image;
+        for (int level = 0; level < levels; level++) {
+            IplImage halved = imagePool.borrow((result.width() + 1) / 2, (result.height() + 1) / 2, result.depth(), result.nChannels());
+            cvPyrDown(result, halved, CV_GAUSSIAN_5x5);
+            if (result != image) {
+                imagePool.giveBack(result);
+            }
+            result = halved;
+        }
+
+        return result;
+    }
+
+    private double getWorstScore(TemplateMatchMethod matchMethod) {
+        switch (matchMethod) {
+            case CV_TM_SQDIFF_NORMED:
+                return 1;
+            case CV_TM_CCOEFF_NORMED:
+                return -1;
+            default:
+                return 0;
+        }
+    }
+
     public List<CvRect> findBoundingRectangles(IplImage inputImage) {
+        RegionTable regions = findRegions(inputImage, new RegionTable());
+
+        List<CvRect> boundingRectangles = new ArrayList<CvRect>(regions.size());
+        for (int i = 0; i < regions.size(); i++) {
+            boundingRectangles.add(cvRect(regions.getX(i), regions.getY(i), regions.getWidth(i), regions.getHeight(i)));
+        }
+
+        return boundingRectangles;
+    }
+
+    public RegionTable findRegions(IplImage inputImage, RegionTable regions) {
         validateInputImage(inputImage);
 
-        IplImage clonedInput = inputImage.clone();
-        // Find the contours of the difference in images
-        CvMemStorage memoryStorage = CvMemStorage.create();
-        CvSeq contours = new CvSeq(null);
-        // rectangle to use to put around the difference area
-        cvFindContours(clonedInput, memoryStorage, contours, Loader.sizeof(CvContour.class), CV_RETR_EXTERNAL, CV_CHAIN_APPROX_SIMPLE);
+        int width = inputImage.width();
+        int height = inputImage.height();
+        int step = inputImage.widthStep();
+        ByteBuffer pixels = inputImage.getByteBuffer();
+        byte[] row = new byte[width];
+
+        RegionLabeler labeler = new RegionLabeler();
+        labeler.begin(width);
+        for (int y = 0; y < height; y++) {
+            pixels.position(y * step);
+            pixels.get(row, 0, width);
+            labeler.addRow(row, 0);
+        }
+
+        return labeler.end(regions);
+    }
+
+    public RegionTable findDifferenceRegions(IplImage firstImage, IplImage secondImage, IplImage diffImage, RegionTable regions) {
+        return findDifferenceRegions(firstImage, secondImage, diffImage, null, regions);
+    }
+
+    public RegionTable findDifferenceRegions(IplImage firstImage, IplImage secondImage, IplImage diffImage, IplImage maskImage, RegionTable regions) {
+        validateInputImage(firstImage);
+        validateInputImage(secondImage);
+        validateInputImage(diffImage);
+
+        // compute difference
+        cvAbsDiff(firstImage, secondImage, diffImage);
+
+        // do some threshold for wipe away useless details
+        cvThreshold(diffImage, diffImage, 0, 255, CV_THRESH_BINARY);
+
+        if (maskImage != null) {
+            cvAnd(diffImage, maskImage, diffImage, null);
+        }
+
+        return findRegions(diffImage, regions);
+    }
+
+    public IplImage createRoiMaskImage(RoiIndex roiIndex) {
+        Validate.isTrue(!roiIndex.isEmpty(), "ROI index must not be empty");
+
+        Roi bounds = roiIndex.getBounds();
+        int width = bounds.getWidth();
+        IplImage maskImage = imagePool.borrow(width, bounds.getHeight(), IPL_DEPTH_8U, 1);
+        int step = maskImage.widthStep();
+        ByteBuffer pixels = maskImage.getByteBuffer();
+        byte[] row = new byte[width];
+        for (int y = 0; y < bounds.getHeight(); y++) {
+            roiIndex.fillRowMask(bounds.getY() + y, bounds.getX(), width, row, 0);
+            pixels.position(y * step);
+            pixels.put(row, 0, width);
+        }
+
+        return maskImage;
+    }
+
+    // regions crossing tile seams are joined, the result is the same as without tiles
+    public RegionTable findDifferenceRegions(IplImage firstImage, IplImage secondImage, IplImage diffImage, RegionTable regions, int tileSize, int parallelism) {
+        return findDifferenceRegions(firstImage, secondImage, diffImage, null, regions, tileSize, parallelism);
+    }
+
+    public RegionTable findDifferenceRegions(IplImage firstImage, IplImage secondImage, IplImage diffImage, IplImage maskImage, RegionTable regions, int tileSize, int parallelism) {
+        validateInputImage(firstImage);
+        validateInputImage(secondImage);
+        validateInputImage(diffImage);
+        Validate.isTrue(tileSize > 0, "Tile size should be greater than 0. Passed: " + tileSize);
+
+        int width = diffImage.width();
+        int height = diffImage.height();
+        int columns = (width + tileSize - 1) / tileSize;
+        int rows = (height + tileSize - 1) / tileSize;
+        if (columns * rows == 1) {
+            // nothing to split
+            return findDifferenceRegions(firstImage, secondImage, diffImage, maskImage, regions);
+        }
 
-        List<CvRect> boundingRectangles = new ArrayList<CvRect>();
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, columns * rows));
+        try {
+            List<Future<TileRegions>> futures = new ArrayList<Future<TileRegions>>();
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    int x = column * tileSize;
+                    int y = row * tileSize;
+                    CvRect tile = cvRect(x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y));
+                    futures.add(executor.submit(new DiffTileTask(firstImage, secondImage, diffImage, maskImage, tile)));
+                }
+            }
 
-        for (; contours != null && !contours.isNull(); contours = contours.h_next()) {
-            if (contours.elem_size() > 0) {
-                // get a bounding rectangle around the difference in image
-                CvRect boundingRectangle = cvBoundingRect(contours, 0);
-                boundingRectangles.add(boundingRectangle);
+            List<TileRegions> tiles = new ArrayList<TileRegions>(futures.size());
+            for (Future<TileRegions> future : futures) {
+                tiles.add(future.get());
             }
+
+            return TileRegions.stitch(tiles, width, height, columns, tileSize, regions);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tiled difference computation was interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Tiled difference computation failed", ex.getCause());
+        } finally {
+            executor.shutdownNow();
         }
+    }
 
-        // clear memory and contours
-        cvClearMemStorage(memoryStorage);
-        if (contours != null) {
-            contours.setNull();
+    private class DiffTileTask implements Callable<TileRegions> {
+
+        private final IplImage firstImage;
+        private final IplImage secondImage;
+        private final IplImage diffImage;
+        private final IplImage maskImage;
+        private final CvRect tile;
+
+        private DiffTileTask(IplImage firstImage, IplImage secondImage, IplImage diffImage, IplImage maskImage, CvRect tile) {
+            this.firstImage = firstImage;
+            this.secondImage = secondImage;
+            this.diffImage = diffImage;
+            this.maskImage = maskImage;
+            this.tile = tile;
         }
-        cvReleaseImage(clonedInput);
 
-        return boundingRectangles;
+        @Override
+        public TileRegions call() {
+            // sub-rect headers share image data, so every tile writes its own part of the diff image
+            CvMat firstTile = cvGetSubRect(firstImage, new CvMat(), tile);
+            CvMat secondTile = cvGetSubRect(secondImage, new CvMat(), tile);
+            CvMat diffTile = cvGetSubRect(diffImage, new CvMat(), tile);
+
+            cvAbsDiff(firstTile, secondTile, diffTile);
+            cvThreshold(diffTile, diffTile, 0, 255, CV_THRESH_BINARY);
+            if (maskImage != null) {
+                cvAnd(diffTile, cvGetSubRect(maskImage, new CvMat(), tile), diffTile, null);
+            }
+
+            int width = tile.width();
+            int height = tile.height();
+            int step = diffImage.widthStep();
+            ByteBuffer pixels = diffImage.getByteBuffer();
+            byte[] row = new byte[width];
+
+            TileRegions tileRegions = new TileRegions(tile.x(), tile.y(), width, height);
+            for (int y = 0; y < height; y++) {
+                pixels.position((tile.y() + y) * step + tile.x());
+                pixels.get(row, 0, width);
+                tileRegions.addRow(row, 0);
+            }
+            tileRegions.end();
+
+            return tileRegions;
+        }
+    }
+
+    private static class MatchStripeTask implements Runnable {
+
+        private final byte[] source;
+        private final IntegralImage integralImage;
+        private final Roi window;
+        private final byte[] template;
+        private final int templateWidth;
+        private final int templateHeight;
+        private final TemplateMatchMethod matchMethod;
+        private final double minSimilarity;
+        private final int firstRow;
+        private final int rows;
+        private final IplImage resultImage;
+
+        private MatchStripeTask(byte[] source, IntegralImage integralImage, Roi window, byte[] template, int templateWidth, int templateHeight,
+            TemplateMatchMethod matchMethod, double minSimilarity, int firstRow, int rows, IplImage resultImage) {
+            this.source = source;
+            this.integralImage = integralImage;
+            this.window = window;
+            this.template = template;
+            this.templateWidth = templateWidth;
+            this.templateHeight = templateHeight;
+            this.matchMethod = matchMethod;
+            this.minSimilarity = minSimilarity;
+            this.firstRow = firstRow;
+            this.rows = rows;
+            this.resultImage = resultImage;
+        }
+
+        @Override
+        public void run() {
+            float[] scores = new FftMatcher().matchTemplate(source, window.getWidth(), integralImage, window, template, templateWidth,
+                templateHeight, matchMethod, minSimilarity, firstRow, rows);
+
+            // every stripe writes its own rows of the result image through its own buffer view
+            int width = window.getWidth() - templateWidth + 1;
+            int stride = resultImage.widthStep() / 4;
+            FloatBuffer result = resultImage.getFloatBuffer();
+            for (int y = 0; y < rows; y++) {
+                result.position((firstRow + y) * stride);
+                result.put(scores, y * width, width);
+            }
+        }
     }
 
     public IplImage createGrayImageFrom(BufferedImage inputBufferedImage) {
         Validate.notNull(inputBufferedImage, "Input buffered image must not be null");
 
-        IplImage inputImage = IplImage.createFrom(inputBufferedImage);
+        IplImage inputImage = createImageFrom(inputBufferedImage);
+        if (inputImage.nChannels() == 1) {
+            // already gray, the input image is the result
+            return inputImage;
+        }
         IplImage result = createGrayImageFrom(inputImage);
-        cvReleaseImage(inputImage);
+        imagePool.giveBack(inputImage);
+
+        return result;
+    }
+
+    public IplImage createGrayImageFrom(DecodedImage decodedImage) {
+        Validate.notNull(decodedImage, "Decoded image must not be null");
+
+        int width = decodedImage.getWidth();
+        IplImage result = imagePool.borrow(width, decodedImage.getHeight(), IPL_DEPTH_8U, 1);
+        int step = result.widthStep();
+        ByteBuffer buffer = result.getByteBuffer();
+        byte[] pixels = decodedImage.getPixels();
+        byte[] row = decodedImage.getFormat() == PixelFormat.GRAY ? null : new byte[width];
+        for (int y = 0; y < decodedImage.getHeight(); y++) {
+            buffer.position(y * step);
+            if (row == null) {
+                buffer.put(pixels, y * width, width);
+            } else {
+                int offset = y * width * 3;
+                for (int x = 0; x < width; x++, offset += 3) {
+                    row[x] = RasterHelper.toGray(pixels[offset] & 0xff, pixels[offset + 1] & 0xff, pixels[offset + 2] & 0xff);
+                }
+                buffer.put(row, 0, width);
+            }
+        }
 
         return result;
     }
 
+    // the input image itself if it has one channel already
     public IplImage createGrayImageFrom(IplImage inputImage) {
         validateInputImage(inputImage);
 
         IplImage result;
         if (inputImage.nChannels() > 1) {
-            result = IplImage.create(cvGetSize(inputImage), inputImage.depth(), 1);
+            result = imagePool.borrow(inputImage.width(), inputImage.height(), inputImage.depth(), 1);
             cvCvtColor(inputImage, result, CV_BGR2GRAY);
         } else {
             result = inputImage;
@@ -130,4 +686,45 @@ public class ImageHelper {
 
         return result;
     }
+
+    private IplImage createImageFrom(BufferedImage image) {
+        int channels = image.getSampleModel().getNumBands();
+        int depth;
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_ARGB_PRE:
+            case BufferedImage.TYPE_INT_BGR:
+                // packed pixels are unpacked to four channels
+                depth = IPL_DEPTH_8U;
+                channels = 4;
+                break;
+            default:
+                depth = getIplDepth(image.getSampleModel().getDataType());
+        }
+
+        IplImage result = imagePool.borrow(image.getWidth(), image.getHeight(), depth, channels);
+        result.copyFrom(image);
+
+        return result;
+    }
+
+    private int getIplDepth(int dataType) {
+        switch (dataType) {
+            case DataBuffer.TYPE_BYTE:
+                return IPL_DEPTH_8U;
+            case DataBuffer.TYPE_USHORT:
+                return IPL_DEPTH_16U;
+            case DataBuffer.TYPE_SHORT:
+                return IPL_DEPTH_16S;
+            case DataBuffer.TYPE_INT:
+                return IPL_DEPTH_32S;
+            case DataBuffer.TYPE_FLOAT:
+                return IPL_DEPTH_32F;
+            case DataBuffer.TYPE_DOUBLE:
+                return IPL_DEPTH_64F;
+            default:
+                throw new IllegalArgumentException("Unsupported image data type: " + dataType);
+        }
+    }
 }
@@ -0,0 +1,69 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.DecodedImage;
+import com.image.diff.core.PixelFormat;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+public class ImageIoDecoder implements ImageDecoder {
+
+    @Override
+    public DecodedImage decode(File image, PixelFormat format, int subsampling, byte[] buffer) throws IOException {
+        ImageInputStream input = ImageIO.createImageInputStream(image);
+        if (input == null) {
+            return null;
+        }
+        ImageReader reader = null;
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            reader = readers.next();
+            reader.setInput(input, true, true);
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            BufferedImage decoded = reader.read(0, param);
+
+            int width = decoded.getWidth();
+            int height = decoded.getHeight();
+            long size = (long) width * height * format.channels();
+            byte[] pixels = buffer != null && buffer.length >= size ? buffer : new byte[(int) size];
+            if (format == PixelFormat.GRAY) {
+                // helper keeps row buffers, so each call has its own
+                RasterHelper rasterHelper = new RasterHelper();
+                for (int y = 0; y < height; y++) {
+                    rasterHelper.readGrayRow(decoded, 0, y, width, pixels, y * width);
+                }
+            } else {
+                int[] row = new int[width];
+                int offset = 0;
+                for (int y = 0; y < height; y++) {
+                    decoded.getRGB(0, y, width, 1, row, 0, width);
+                    for (int x = 0; x < width; x++) {
+                        pixels[offset++] = (byte) (row[x] >>> 16);
+                        pixels[offset++] = (byte) (row[x] >>> 8);
+                        pixels[offset++] = (byte) row[x];
+                    }
+                }
+            }
+            return new DecodedImage(width, height, format, pixels);
+        } finally {
+            if (reader != null) {
+                reader.dispose();
+            }
+            input.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ImageIoDecoder{" + '}';
+    }
+}
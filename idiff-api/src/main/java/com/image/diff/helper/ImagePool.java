@@ -0,0 +1,181 @@
+package com.image.diff.helper;
+
+import static com.googlecode.javacv.cpp.opencv_core.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// thread safe, an image given back twice or not borrowed from the pool is rejected
+public class ImagePool {
+
+    public static final long DEFAULT_MAX_IDLE_BYTES = 256L * 1024 * 1024;
+
+    private static final byte POISON = (byte) 0xa5;
+
+    private Logger logger = LoggerFactory.getLogger(getClass());
+    private final long maxIdleBytes;
+    private final boolean checked;
+    private final Map<ImageKey, List<IplImage>> idleImages = new HashMap<ImageKey, List<IplImage>>();
+    private final Map<IplImage, ImageKey> borrowedImages = new IdentityHashMap<IplImage, ImageKey>();
+    private long idleBytes;
+    private long liveBytes;
+
+    public ImagePool() {
+        this(DEFAULT_MAX_IDLE_BYTES);
+    }
+
+    public ImagePool(long maxIdleBytes) {
+        this(maxIdleBytes, false);
+    }
+
+    // checked pool poisons idle images and verifies them on reuse, so writes after the give back are found
+    public ImagePool(long maxIdleBytes, boolean checked) {
+        Validate.isTrue(maxIdleBytes >= 0, "Max idle bytes should be 0 or greater. Passed: " + maxIdleBytes);
+        this.maxIdleBytes = maxIdleBytes;
+        this.checked = checked;
+    }
+
+    public synchronized IplImage borrow(int width, int height, int depth, int channels) {
+        Validate.isTrue(width > 0 && height > 0, "Invalid image dimensions: " + width + "x" + height);
+
+        ImageKey key = new ImageKey(width, height, depth, channels);
+        IplImage image;
+        List<IplImage> images = idleImages.get(key);
+        if (images != null && !images.isEmpty()) {
+            image = images.remove(images.size() - 1);
+            idleBytes -= image.imageSize();
+            if (checked && !isPoisoned(image)) {
+                cvReleaseImage(image);
+                throw new IllegalStateException("Image was changed after it was given back to the pool: " + image);
+            }
+        } else {
+            image = IplImage.create(width, height, depth, channels);
+        }
+
+        borrowedImages.put(image, key);
+        liveBytes += image.imageSize();
+
+        return image;
+    }
+
+    public IplImage borrowCompatible(IplImage image) {
+        return borrow(image.width(), image.height(), image.depth(), image.nChannels());
+    }
+
+    // the image must not be used afterwards
+    public synchronized void giveBack(IplImage image) {
+        Validate.notNull(image, "Image must not be null");
+
+        ImageKey key = borrowedImages.remove(image);
+        if (key == null) {
+            throw new IllegalStateException("Image is not borrowed from the pool, it was given back already or "
+                + "allocated elsewhere: " + image);
+        }
+        long size = image.imageSize();
+        liveBytes -= size;
+
+        if (idleBytes + size > maxIdleBytes) {
+            cvReleaseImage(image);
+            return;
+        }
+        cvResetImageROI(image);
+        if (checked) {
+            poison(image);
+        }
+        List<IplImage> images = idleImages.get(key);
+        if (images == null) {
+            images = new ArrayList<IplImage>();
+            idleImages.put(key, images);
+        }
+        images.add(image);
+        idleBytes += size;
+    }
+
+    private void poison(IplImage image) {
+        ByteBuffer buffer = image.getByteBuffer();
+        for (int i = 0; i < image.imageSize(); i++) {
+            buffer.put(i, POISON);
+        }
+    }
+
+    private boolean isPoisoned(IplImage image) {
+        ByteBuffer buffer = image.getByteBuffer();
+        for (int i = 0; i < image.imageSize(); i++) {
+            if (buffer.get(i) != POISON) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized long getLiveBytes() {
+        return liveBytes;
+    }
+
+    public synchronized long getIdleBytes() {
+        return idleBytes;
+    }
+
+    public synchronized int getBorrowedCount() {
+        return borrowedImages.size();
+    }
+
+    // images still borrowed are left alone, they may be in use
+    public synchronized void clear() {
+        for (List<IplImage> images : idleImages.values()) {
+            for (IplImage image : images) {
+                cvReleaseImage(image);
+            }
+        }
+        idleImages.clear();
+        idleBytes = 0;
+
+        if (!borrowedImages.isEmpty()) {
+            logger.warn("{} images with {} native bytes were not given back to the pool", borrowedImages.size(), liveBytes);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ImagePool{" + "maxIdleBytes=" + maxIdleBytes + ", checked=" + checked + ", idleBytes=" + idleBytes + ", liveBytes=" + liveBytes + '}';
+    }
+
+    private static class ImageKey {
+
+        private final int width;
+        private final int height;
+        private final int depth;
+        private final int channels;
+
+        private ImageKey(int width, int height, int depth, int channels) {
+            this.width = width;
+            this.height = height;
+            this.depth = depth;
+            this.channels = channels;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ImageKey)) {
+                return false;
+            }
+            ImageKey other = (ImageKey) obj;
+            return width == other.width && height == other.height && depth == other.depth && channels == other.channels;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = width;
+            hash = 31 * hash + height;
+            hash = 31 * hash + depth;
+            hash = 31 * hash + channels;
+            return hash;
+        }
+    }
+}
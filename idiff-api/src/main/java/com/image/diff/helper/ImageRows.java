@@ -0,0 +1,62 @@
+package com.image.diff.helper;
+
+import java.awt.image.BufferedImage;
+
+// rows can be read from many threads
+class ImageRows {
+
+    private final BufferedImage image;
+    private final boolean gray;
+    private final boolean alpha;
+
+    ImageRows(BufferedImage image) {
+        this.image = image;
+        this.gray = image.getType() == BufferedImage.TYPE_BYTE_GRAY;
+        this.alpha = !gray && image.getColorModel().hasAlpha();
+    }
+
+    int getWidth() {
+        return image.getWidth();
+    }
+
+    int getHeight() {
+        return image.getHeight();
+    }
+
+    boolean isGray() {
+        return gray;
+    }
+
+    boolean hasAlpha() {
+        return alpha;
+    }
+
+    int getChannels() {
+        return gray ? 1 : (alpha ? 4 : 3);
+    }
+
+    int getRowSize() {
+        return getWidth() * getChannels();
+    }
+
+    void readRow(int y, byte[] row) {
+        int width = getWidth();
+        if (gray) {
+            // data elements of 8-bit gray image are the samples
+            image.getRaster().getDataElements(0, y, width, 1, row);
+            return;
+        }
+
+        int[] pixels = image.getRGB(0, y, width, 1, null, 0, width);
+        int offset = 0;
+        for (int x = 0; x < width; x++) {
+            int pixel = pixels[x];
+            row[offset++] = (byte) (pixel >> 16);
+            row[offset++] = (byte) (pixel >> 8);
+            row[offset++] = (byte) pixel;
+            if (alpha) {
+                row[offset++] = (byte) (pixel >>> 24);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.DecodedImage;
+import com.image.diff.core.PixelFormat;
+import java.awt.image.Raster;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.w3c.dom.Node;
+
+// JFIF luma is the gray image already, it may differ by one level from the gray of the decoded colors
+public class JpegDecoder implements ImageDecoder {
+
+    private static final String FORMAT_NAME = "javax_imageio_jpeg_image_1.0";
+
+    @Override
+    public DecodedImage decode(File image, PixelFormat format, int subsampling, byte[] buffer) throws IOException {
+        if (format != PixelFormat.GRAY || !isJpeg(image)) {
+            return null;
+        }
+
+        ImageInputStream input = ImageIO.createImageInputStream(image);
+        if (input == null) {
+            return null;
+        }
+        ImageReader reader = null;
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("jpeg");
+            if (!readers.hasNext()) {
+                return null;
+            }
+            reader = readers.next();
+            reader.setInput(input, true, false);
+            if (!reader.canReadRaster() || !hasLuma(reader)) {
+                return null;
+            }
+
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            // raw samples without color conversion, the reader does not select bands of rasters
+            Raster raster = reader.readRaster(0, param);
+
+            int width = raster.getWidth();
+            int height = raster.getHeight();
+            byte[] pixels = buffer != null && buffer.length >= (long) width * height ? buffer : new byte[width * height];
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++) {
+                raster.getSamples(raster.getMinX(), raster.getMinY() + y, width, 1, 0, row);
+                for (int x = 0; x < width; x++) {
+                    pixels[y * width + x] = (byte) row[x];
+                }
+            }
+            return new DecodedImage(width, height, PixelFormat.GRAY, pixels);
+        } finally {
+            if (reader != null) {
+                reader.dispose();
+            }
+            input.close();
+        }
+    }
+
+    private boolean isJpeg(File image) throws IOException {
+        InputStream input = null;
+        try {
+            input = FileUtils.openInputStream(image);
+            return input.read() == 0xff && input.read() == 0xd8;
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    private boolean hasLuma(ImageReader reader) throws IOException {
+        IIOMetadata metadata = reader.getImageMetadata(0);
+        if (metadata == null || !FORMAT_NAME.equals(metadata.getNativeMetadataFormatName())) {
+            return false;
+        }
+        Node root = metadata.getAsTree(FORMAT_NAME);
+        Node frame = findNode(root, "sof");
+        if (frame != null && frame.getAttributes().getNamedItem("numFrameComponents") != null
+            && "1".equals(frame.getAttributes().getNamedItem("numFrameComponents").getNodeValue())) {
+            return true;
+        }
+        // Adobe marker may override the color transform of JFIF
+        return findNode(root, "app0JFIF") != null && findNode(root, "app14Adobe") == null;
+    }
+
+    private Node findNode(Node node, String name) {
+        if (name.equals(node.getNodeName())) {
+            return node;
+        }
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            Node found = findNode(child, name);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "JpegDecoder{" + '}';
+    }
+}
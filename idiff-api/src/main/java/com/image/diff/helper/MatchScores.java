@@ -0,0 +1,22 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.TemplateMatchMethod;
+
+// normalized scores of the Java matchers, computed the same way as cvMatchTemplate does
+final class MatchScores {
+
+    static final double DBL_EPSILON = 2.220446049250313E-16;
+
+    private MatchScores() {
+    }
+
+    // raw score of cvMatchTemplate, squared difference for SQDIFF_NORMED
+    static double normalize(double number, double norm, TemplateMatchMethod matchMethod) {
+        if (Math.abs(number) < norm) {
+            return number / norm;
+        } else if (Math.abs(number) < norm * 1.125) {
+            return number > 0 ? 1 : -1;
+        }
+        return matchMethod != TemplateMatchMethod.CV_TM_SQDIFF_NORMED ? 0 : 1;
+    }
+}
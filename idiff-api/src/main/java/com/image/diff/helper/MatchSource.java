@@ -0,0 +1,92 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.IntegralImage;
+import static com.googlecode.javacv.cpp.opencv_core.*;
+import static com.googlecode.javacv.cpp.opencv_imgproc.*;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.lang3.Validate;
+
+// derived data is computed on first use and shared by all templates
+public class MatchSource {
+
+    private final IplImage image;
+    private final ImagePool imagePool;
+    private byte[] pixels;
+    private IntegralImage integralImage;
+    private final Map<Integer, IplImage> levels = new HashMap<Integer, IplImage>();
+
+    public MatchSource(IplImage image, ImagePool imagePool) {
+        Validate.notNull(image, "Image must not be null");
+        Validate.notNull(imagePool, "Image pool must not be null");
+        this.image = image;
+        this.imagePool = imagePool;
+        // matching never changes the ROI of a shared source
+        cvResetImageROI(image);
+    }
+
+    public IplImage getImage() {
+        return image;
+    }
+
+    public int getWidth() {
+        return image.width();
+    }
+
+    public int getHeight() {
+        return image.height();
+    }
+
+    public synchronized byte[] getPixels() {
+        if (pixels == null) {
+            Validate.isTrue(image.depth() == IPL_DEPTH_8U && image.nChannels() == 1, "Raster is available for one-channel 8-bit images only");
+            pixels = new byte[image.width() * image.height()];
+            int step = image.widthStep();
+            ByteBuffer buffer = image.getByteBuffer();
+            for (int row = 0; row < image.height(); row++) {
+                buffer.position(row * step);
+                buffer.get(pixels, row * image.width(), image.width());
+            }
+        }
+        return pixels;
+    }
+
+    public synchronized IntegralImage getIntegralImage() {
+        if (integralImage == null) {
+            integralImage = new IntegralImage(getPixels(), image.width(), image.height());
+        }
+        return integralImage;
+    }
+
+    public synchronized IplImage getLevel(int level) {
+        Validate.isTrue(level >= 0, "Pyramid level should not be negative. Passed: " + level);
+        if (level == 0) {
+            return image;
+        }
+
+        IplImage result = levels.get(level);
+        if (result == null) {
+            IplImage previous = getLevel(level - 1);
+            result = imagePool.borrow((previous.width() + 1) / 2, (previous.height() + 1) / 2, previous.depth(), previous.nChannels());
+            cvPyrDown(previous, result, CV_GAUSSIAN_5x5);
+            levels.put(level, result);
+        }
+        return result;
+    }
+
+    // the source image itself is left to the caller
+    public synchronized void release() {
+        for (IplImage level : levels.values()) {
+            imagePool.giveBack(level);
+        }
+        levels.clear();
+        pixels = null;
+        integralImage = null;
+    }
+
+    @Override
+    public String toString() {
+        return "MatchSource{" + "width=" + image.width() + ", height=" + image.height() + ", levels=" + levels.keySet() + '}';
+    }
+}
@@ -0,0 +1,161 @@
+package com.image.diff.helper;
+
+import com.googlecode.javacv.cpp.opencv_core.IplImage;
+import com.image.diff.core.Match;
+import com.image.diff.core.MatchContext;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// the second image of the context is not used
+public class MultiTemplateFinder {
+
+    private Logger logger = LoggerFactory.getLogger(getClass());
+    private MatchContext context;
+    private List<File> templates;
+    private ImageHelper imageHelper;
+    private TemplateMatcher templateMatcher;
+    private TemplateCache templateCache;
+    private DecoderHelper decoderHelper;
+
+    private MultiTemplateFinder() {
+    }
+
+    public Map<File, List<Match>> find() {
+        IplImage sourceImage = imageHelper.createGrayImageFrom(decoderHelper.decodeGray(context.getImage1()));
+        try {
+            MatchSource source = new MatchSource(sourceImage, imageHelper.getImagePool());
+            try {
+                return find(source);
+            } finally {
+                source.release();
+            }
+        } finally {
+            imageHelper.release(sourceImage);
+        }
+    }
+
+    private Map<File, List<Match>> find(final MatchSource source) {
+        int threads = context.getParallelism() > 0 ? context.getParallelism() : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, templates.size()));
+        try {
+            Map<File, Future<List<Match>>> futures = new LinkedHashMap<File, Future<List<Match>>>();
+            for (final File template : templates) {
+                futures.put(template, executor.submit(new Callable<List<Match>>() {
+                    @Override
+                    public List<Match> call() {
+                        return find(source, template);
+                    }
+                }));
+            }
+
+            Map<File, List<Match>> result = new LinkedHashMap<File, List<Match>>();
+            for (Map.Entry<File, Future<List<Match>>> entry : futures.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().get());
+            }
+            return Collections.unmodifiableMap(result);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Multi template search was interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Multi template search failed", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Match> find(MatchSource source, File template) {
+        IplImage templateImage = templateCache.getGrayImage(template);
+        try {
+            // templates are matched in parallel already
+            int parallelism = templates.size() > 1 ? 1 : context.getParallelism();
+            List<Match> matches = new ArrayList<Match>(templateMatcher.find(source, templateImage, context, parallelism));
+            logger.debug("{} matches of template {} found", matches.size(), template);
+            return Collections.unmodifiableList(matches);
+        } finally {
+            imageHelper.release(templateImage);
+        }
+    }
+
+    public static class Builder {
+
+        private Logger logger = LoggerFactory.getLogger(getClass());
+
+        private final MatchContext context;
+        private List<File> templates = new ArrayList<File>();
+        private ImageHelper imageHelper;
+        private TemplateCache templateCache;
+        private DecoderHelper decoderHelper;
+
+        public Builder(MatchContext context) {
+            Validate.notNull(context, "Context must not be null");
+            this.context = context;
+        }
+
+        public Builder templates(List<File> templates) {
+            this.templates = templates;
+            return this;
+        }
+
+        public Builder imageHelper(ImageHelper imageHelper) {
+            this.imageHelper = imageHelper;
+            return this;
+        }
+
+        public Builder templateCache(TemplateCache templateCache) {
+            this.templateCache = templateCache;
+            return this;
+        }
+
+        public Builder decoderHelper(DecoderHelper decoderHelper) {
+            this.decoderHelper = decoderHelper;
+            return this;
+        }
+
+        public MultiTemplateFinder build() {
+            Validate.notNull(context.getImage1(), "Please set first image.");
+            Validate.isTrue(context.getImage1().exists(), "First image should exists.");
+            Validate.notEmpty(templates, "Please set template images.");
+            for (File template : templates) {
+                Validate.notNull(template, "Template image must not be null");
+                Validate.isTrue(template.exists(), "Template image should exists: " + template.getAbsolutePath());
+            }
+            new SearchSettingsValidator().validate(context);
+
+            MultiTemplateFinder instance = new MultiTemplateFinder();
+
+            if (imageHelper == null) {
+                logger.debug("Default instance will be used as image helper");
+                imageHelper = new ImageHelper();
+            }
+            if (decoderHelper == null) {
+                logger.debug("Default instance will be used as decoder helper");
+                decoderHelper = new DecoderHelper();
+            }
+            instance.context = context;
+            instance.templates = new ArrayList<File>(templates);
+            instance.imageHelper = imageHelper;
+            instance.decoderHelper = decoderHelper;
+            if (templateCache == null) {
+                logger.debug("Default instance will be used as template cache");
+                templateCache = new TemplateCache(imageHelper, TemplateCache.DEFAULT_MAX_MEMORY_SIZE,
+                    context.getTemplateCacheDirectory(), context.getTemplateCacheSize());
+            }
+            instance.templateMatcher = new TemplateMatcher(imageHelper);
+            instance.templateCache = templateCache;
+
+            return instance;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.MatchEngine;
+import com.image.diff.core.MatchResult;
+import com.image.diff.core.TemplateMatchMethod;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+
+public class PeakFinder {
+
+    public List<MatchResult> findPeaks(FloatBuffer scores, int width, int height, int stride, TemplateMatchMethod matchMethod,
+        double minSimilarity, int limit, int templateWidth, int templateHeight) {
+        return findPeaks(scores, width, height, stride, matchMethod, minSimilarity, limit, templateWidth, templateHeight, null);
+    }
+
+    public List<MatchResult> findPeaks(FloatBuffer scores, int width, int height, int stride, TemplateMatchMethod matchMethod,
+        double minSimilarity, int limit, int templateWidth, int templateHeight, MatchEngine matchEngine) {
+        Validate.isTrue(width > 0 && height > 0, "Invalid result map dimensions: " + width + "x" + height);
+        Validate.isTrue(limit > 0, "Limit should be greater than 0. Passed: " + limit);
+        Validate.isTrue((long) width * height <= Integer.MAX_VALUE, "Result map is too large: " + width + "x" + height);
+
+        boolean inverted = matchMethod == TemplateMatchMethod.CV_TM_SQDIFF_NORMED;
+        // every peak over the similarity is kept, so suppressed peaks never leave fewer matches than the limit
+        long[] peaks = new long[Math.min(width * height, 1024)];
+        int peakCount = 0;
+
+        float[] previousRow = null;
+        float[] row = readRow(scores, 0, width, stride, inverted, new float[width]);
+        float[] nextRow = new float[width];
+        for (int y = 0; y < height; y++) {
+            nextRow = y + 1 < height ? readRow(scores, y + 1, width, stride, inverted, nextRow) : null;
+            for (int x = 0; x < width; x++) {
+                float score = row[x];
+                if (score <= minSimilarity || !isPeak(previousRow, row, nextRow, x, width)) {
+                    continue;
+                }
+                if (peakCount == peaks.length) {
+                    peaks = Arrays.copyOf(peaks, (int) Math.min((long) peakCount * 2, width * height));
+                }
+                peaks[peakCount++] = toPeak(score, y * width + x);
+            }
+
+            // rotate rows, the oldest array is reused for the row after next
+            float[] recycled = previousRow != null ? previousRow : new float[width];
+            previousRow = row;
+            row = nextRow;
+            nextRow = recycled;
+        }
+
+        // the best peak is the last one
+        Arrays.sort(peaks, 0, peakCount);
+
+        int xmargin = templateWidth / 3;
+        int ymargin = templateHeight / 3;
+        List<MatchResult> matches = new ArrayList<MatchResult>(Math.min(limit, peakCount));
+        for (int i = peakCount - 1; i >= 0 && matches.size() < limit; i--) {
+            int index = getIndex(peaks[i]);
+            int x = index % width;
+            int y = index / width;
+            if (!isSuppressed(matches, x, y, xmargin, ymargin)) {
+                matches.add(new MatchResult(getScore(peaks[i]), x, y, templateWidth, templateHeight, matchEngine));
+            }
+        }
+
+        return matches;
+    }
+
+    // score bits are ordered like the scores, the complement of the index makes the peak found earlier win a tie
+    private long toPeak(float score, int index) {
+        int bits = Float.floatToIntBits(score);
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return ((long) bits << 32) | (~index & 0xffffffffL);
+    }
+
+    private float getScore(long peak) {
+        int bits = (int) (peak >> 32);
+        bits ^= (bits >> 31) & 0x7fffffff;
+        return Float.intBitsToFloat(bits);
+    }
+
+    private int getIndex(long peak) {
+        return ~(int) peak;
+    }
+
+    private float[] readRow(FloatBuffer scores, int y, int width, int stride, boolean inverted, float[] row) {
+        scores.position(y * stride);
+        scores.get(row, 0, width);
+        if (inverted) {
+            // squared difference is the better the lower
+            for (int x = 0; x < width; x++) {
+                row[x] = 1 - row[x];
+            }
+        }
+        return row;
+    }
+
+    // plateaus give one peak
+    private boolean isPeak(float[] previousRow, float[] row, float[] nextRow, int x, int width) {
+        float score = row[x];
+        int from = Math.max(x - 1, 0);
+        int to = Math.min(x + 1, width - 1);
+        for (int i = from; i <= to; i++) {
+            if (previousRow != null && previousRow[i] >= score) {
+                return false;
+            }
+            if (nextRow != null && nextRow[i] > score) {
+                return false;
+            }
+        }
+        return (x == 0 || row[x - 1] < score) && (x == width - 1 || row[x + 1] <= score);
+    }
+
+    private boolean isSuppressed(List<MatchResult> matches, int x, int y, int xmargin, int ymargin) {
+        for (MatchResult match : matches) {
+            if (x >= match.getX() - xmargin && x < match.getX() + xmargin
+                && y >= match.getY() - ymargin && y < match.getY() + ymargin) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
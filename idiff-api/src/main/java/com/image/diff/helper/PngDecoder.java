@@ -0,0 +1,47 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.DecodedImage;
+import com.image.diff.core.PixelFormat;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+
+// alpha is ignored, the same as the other gray conversions do
+public class PngDecoder implements ImageDecoder {
+
+    @Override
+    public DecodedImage decode(File image, PixelFormat format, int subsampling, byte[] buffer) throws IOException {
+        PngRowReader rows = PngRowReader.open(image);
+        if (rows == null) {
+            return null;
+        }
+        try {
+            int outputWidth = (rows.getWidth() + subsampling - 1) / subsampling;
+            int outputHeight = (rows.getHeight() + subsampling - 1) / subsampling;
+            long size = (long) outputWidth * outputHeight * format.channels();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Image is too large: " + rows.getWidth() + "x" + rows.getHeight());
+            }
+            byte[] pixels = buffer != null && buffer.length >= size ? buffer : new byte[(int) size];
+
+            int offset = 0;
+            for (int y = 0; y < rows.getHeight(); y++) {
+                rows.nextRow();
+                if (y % subsampling == 0) {
+                    offset = rows.convertRow(format, subsampling, pixels, offset);
+                }
+            }
+
+            return new DecodedImage(outputWidth, outputHeight, format, pixels);
+        } catch (EOFException ex) {
+            throw new IOException("Image data is truncated: " + image.getAbsolutePath(), ex);
+        } finally {
+            rows.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PngDecoder{" + '}';
+    }
+}
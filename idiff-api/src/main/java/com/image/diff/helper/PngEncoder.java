@@ -0,0 +1,247 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.PngFilter;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+
+// the zlib stream can be split only by flushes Deflater does not offer on Java 6, so filtering is parallel and deflate is not
+public class PngEncoder implements ImageEncoder {
+
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+    private static final int COLOR_TYPE_GRAY = 0;
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int COLOR_TYPE_RGBA = 6;
+    private static final int IDAT_SIZE = 64 * 1024;
+    // rows filtered by one task
+    private static final int CHUNK_ROWS = 64;
+
+    private final int compressionLevel;
+    private final PngFilter filter;
+    private final int parallelism;
+
+    public PngEncoder() {
+        this(Deflater.BEST_SPEED, PngFilter.ADAPTIVE, 0);
+    }
+
+    public PngEncoder(int compressionLevel, PngFilter filter, int parallelism) {
+        Validate.isTrue(compressionLevel >= 0 && compressionLevel <= 9,
+            "Compression level should be from 0..9. Passed: " + compressionLevel);
+        Validate.notNull(filter, "PNG filter must not be null");
+        Validate.isTrue(parallelism >= 0, "Parallelism should be 0 (number of processors) or greater. Passed: " + parallelism);
+        this.compressionLevel = compressionLevel;
+        this.filter = filter;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void write(BufferedImage image, File output) throws IOException {
+        final ImageRows rows = new ImageRows(image);
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deflater deflater = new Deflater(compressionLevel);
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(output)));
+            out.write(SIGNATURE);
+            writeHeader(out, rows);
+
+            ChunkOutputStream idat = new ChunkOutputStream(out, "IDAT");
+            DeflaterOutputStream deflated = new DeflaterOutputStream(idat, deflater, IDAT_SIZE);
+            // bounded number of chunks in flight, so the filtered image is never held whole
+            LinkedList<Future<byte[]>> chunks = new LinkedList<Future<byte[]>>();
+            for (int y = 0; y < rows.getHeight(); y += CHUNK_ROWS) {
+                final int firstRow = y;
+                final int lastRow = Math.min(y + CHUNK_ROWS, rows.getHeight());
+                chunks.add(executor.submit(new Callable<byte[]>() {
+                    @Override
+                    public byte[] call() {
+                        return filterRows(rows, firstRow, lastRow);
+                    }
+                }));
+                if (chunks.size() >= threads * 2) {
+                    deflated.write(chunks.removeFirst().get());
+                }
+            }
+            while (!chunks.isEmpty()) {
+                deflated.write(chunks.removeFirst().get());
+            }
+            deflated.finish();
+            idat.writeChunk();
+
+            writeChunk(out, "IEND", new byte[0], 0);
+            out.close();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("PNG encoding was interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("PNG encoding failed", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+            deflater.end();
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    private void writeHeader(DataOutputStream out, ImageRows rows) throws IOException {
+        byte[] header = new byte[13];
+        writeInt(header, 0, rows.getWidth());
+        writeInt(header, 4, rows.getHeight());
+        // bit depth
+        header[8] = 8;
+        header[9] = (byte) (rows.isGray() ? COLOR_TYPE_GRAY : (rows.hasAlpha() ? COLOR_TYPE_RGBA : COLOR_TYPE_RGB));
+        // compression, filter method and interlace are 0
+        writeChunk(out, "IHDR", header, header.length);
+    }
+
+    private byte[] filterRows(ImageRows rows, int firstRow, int lastRow) {
+        int rowSize = rows.getRowSize();
+        int bpp = rows.getChannels();
+        byte[] result = new byte[(lastRow - firstRow) * (rowSize + 1)];
+        // row above the first one is zero
+        byte[] previous = new byte[rowSize];
+        if (firstRow > 0) {
+            rows.readRow(firstRow - 1, previous);
+        }
+        byte[] current = new byte[rowSize];
+        byte[] candidate = filter == PngFilter.ADAPTIVE ? new byte[rowSize + 1] : null;
+
+        for (int y = firstRow; y < lastRow; y++) {
+            rows.readRow(y, current);
+            int offset = (y - firstRow) * (rowSize + 1);
+            if (filter != PngFilter.ADAPTIVE) {
+                applyFilter(filter.type(), current, previous, bpp, result, offset);
+            } else {
+                long bestSum = Long.MAX_VALUE;
+                for (int type = PngFilter.NONE.type(); type <= PngFilter.PAETH.type(); type++) {
+                    long sum = applyFilter(type, current, previous, bpp, candidate, 0);
+                    if (sum < bestSum) {
+                        bestSum = sum;
+                        System.arraycopy(candidate, 0, result, offset, rowSize + 1);
+                    }
+                }
+            }
+
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return result;
+    }
+
+    // sum of absolute values taken as signed, the heuristic of adaptive filter
+    private long applyFilter(int type, byte[] row, byte[] previous, int bpp, byte[] out, int offset) {
+        out[offset] = (byte) type;
+        long sum = 0;
+        for (int i = 0; i < row.length; i++) {
+            int value = row[i] & 0xff;
+            int left = i >= bpp ? row[i - bpp] & 0xff : 0;
+            int up = previous[i] & 0xff;
+            int upLeft = i >= bpp ? previous[i - bpp] & 0xff : 0;
+
+            int predicted;
+            switch (type) {
+                case 1:
+                    predicted = left;
+                    break;
+                case 2:
+                    predicted = up;
+                    break;
+                case 3:
+                    predicted = (left + up) >>> 1;
+                    break;
+                case 4:
+                    predicted = PngPredictor.paeth(left, up, upLeft);
+                    break;
+                default:
+                    predicted = 0;
+            }
+
+            byte filtered = (byte) (value - predicted);
+            out[offset + 1 + i] = filtered;
+            sum += Math.abs(filtered);
+        }
+        return sum;
+    }
+
+    private static void writeChunk(DataOutputStream out, String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes("US-ASCII");
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    @Override
+    public String toString() {
+        return "PngEncoder{" + "compressionLevel=" + compressionLevel + ", filter=" + filter + ", parallelism=" + parallelism + '}';
+    }
+
+    private static class ChunkOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+        private final String type;
+        private final byte[] buffer = new byte[IDAT_SIZE];
+        private int count;
+
+        private ChunkOutputStream(DataOutputStream out, String type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            if (count == buffer.length) {
+                writeChunk();
+            }
+            buffer[count++] = (byte) value;
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (count == buffer.length) {
+                    writeChunk();
+                }
+                int copied = Math.min(length, buffer.length - count);
+                System.arraycopy(data, offset, buffer, count, copied);
+                count += copied;
+                offset += copied;
+                length -= copied;
+            }
+        }
+
+        private void writeChunk() throws IOException {
+            if (count > 0) {
+                PngEncoder.writeChunk(out, type, buffer, count);
+                count = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.image.diff.helper;
+
+final class PngPredictor {
+
+    private PngPredictor() {
+    }
+
+    static int paeth(int left, int up, int upLeft) {
+        int estimate = left + up - upLeft;
+        int leftDistance = Math.abs(estimate - left);
+        int upDistance = Math.abs(estimate - up);
+        int upLeftDistance = Math.abs(estimate - upLeft);
+        if (leftDistance <= upDistance && leftDistance <= upLeftDistance) {
+            return left;
+        }
+        return upDistance <= upLeftDistance ? up : upLeft;
+    }
+}
@@ -0,0 +1,305 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.PixelFormat;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import org.apache.commons.io.IOUtils;
+
+// only the current and the previous row are held
+class PngRowReader {
+
+    private static final long SIGNATURE = 0x89504e470d0a1a0aL;
+    private static final int CHUNK_IHDR = 0x49484452;
+    private static final int CHUNK_PLTE = 0x504c5445;
+    private static final int CHUNK_IDAT = 0x49444154;
+
+    private static final int COLOR_TYPE_GRAY = 0;
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int COLOR_TYPE_PALETTE = 3;
+    private static final int COLOR_TYPE_GRAY_ALPHA = 4;
+    private static final int COLOR_TYPE_RGBA = 6;
+
+    private final DataInputStream input;
+    private final Inflater inflater = new Inflater();
+    private final int width;
+    private final int height;
+    private final int colorType;
+    private final int channels;
+    private final byte[] palette;
+    // lookups of palette indexes per pixel format, created when first used
+    private final byte[][][] lookups = new byte[PixelFormat.values().length][][];
+    private DataInputStream rows;
+    private byte[] row;
+    private byte[] previous;
+
+    private PngRowReader(DataInputStream input, int width, int height, int colorType, byte[] palette) {
+        this.input = input;
+        this.width = width;
+        this.height = height;
+        this.colorType = colorType;
+        this.channels = getChannels(colorType);
+        this.palette = palette;
+        this.row = new byte[width * channels];
+        this.previous = new byte[width * channels];
+    }
+
+    // null if the file is not PNG or a variant it does not read
+    static PngRowReader open(File image) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(image), 64 * 1024));
+        PngRowReader reader = null;
+        try {
+            reader = open(input, image);
+            return reader;
+        } catch (EOFException ex) {
+            throw new IOException("Image data is truncated: " + image.getAbsolutePath(), ex);
+        } finally {
+            if (reader == null) {
+                IOUtils.closeQuietly(input);
+            }
+        }
+    }
+
+    private static PngRowReader open(DataInputStream input, File image) throws IOException {
+        if (readSignature(input) != SIGNATURE || input.readInt() != 13 || input.readInt() != CHUNK_IHDR) {
+            return null;
+        }
+        int width = input.readInt();
+        int height = input.readInt();
+        int bitDepth = input.readUnsignedByte();
+        int colorType = input.readUnsignedByte();
+        int compression = input.readUnsignedByte();
+        int filterMethod = input.readUnsignedByte();
+        int interlace = input.readUnsignedByte();
+        // CRC of the header
+        input.readInt();
+        if (width <= 0 || height <= 0 || bitDepth != 8 || getChannels(colorType) == 0 || compression != 0 || filterMethod != 0
+            || interlace != 0) {
+            return null;
+        }
+
+        // chunks before the image data, only the palette is needed
+        byte[] palette = null;
+        int length = input.readInt();
+        int type = input.readInt();
+        while (type != CHUNK_IDAT) {
+            if (type == CHUNK_PLTE) {
+                palette = new byte[length];
+                input.readFully(palette);
+            } else {
+                skip(input, length);
+            }
+            // CRC
+            input.readInt();
+            length = input.readInt();
+            type = input.readInt();
+        }
+        if (colorType == COLOR_TYPE_PALETTE && palette == null) {
+            throw new IOException("Palette is missing: " + image.getAbsolutePath());
+        }
+
+        PngRowReader reader = new PngRowReader(input, width, height, colorType, palette);
+        reader.rows = new DataInputStream(new InflaterInputStream(new ImageDataInputStream(input, length), reader.inflater, 64 * 1024));
+        return reader;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    void nextRow() throws IOException {
+        byte[] swap = previous;
+        previous = row;
+        row = swap;
+
+        int filter = rows.readUnsignedByte();
+        rows.readFully(row);
+        unfilter(filter, row, previous, channels);
+    }
+
+    int convertRow(PixelFormat format, int subsampling, byte[] pixels, int offset) {
+        byte[][] lookup = null;
+        if (colorType == COLOR_TYPE_PALETTE) {
+            if (lookups[format.ordinal()] == null) {
+                lookups[format.ordinal()] = createLookup(palette, format);
+            }
+            lookup = lookups[format.ordinal()];
+        }
+        boolean gray = format == PixelFormat.GRAY;
+        for (int x = 0; x < width; x += subsampling) {
+            int sample = x * channels;
+            switch (colorType) {
+                case COLOR_TYPE_PALETTE:
+                    int index = row[sample] & 0xff;
+                    for (int channel = 0; channel < lookup.length; channel++) {
+                        pixels[offset++] = lookup[channel][index];
+                    }
+                    break;
+                case COLOR_TYPE_GRAY:
+                case COLOR_TYPE_GRAY_ALPHA:
+                    pixels[offset++] = row[sample];
+                    if (!gray) {
+                        pixels[offset++] = row[sample];
+                        pixels[offset++] = row[sample];
+                    }
+                    break;
+                default:
+                    if (gray) {
+                        pixels[offset++] = RasterHelper.toGray(row[sample] & 0xff, row[sample + 1] & 0xff, row[sample + 2] & 0xff);
+                    } else {
+                        pixels[offset++] = row[sample];
+                        pixels[offset++] = row[sample + 1];
+                        pixels[offset++] = row[sample + 2];
+                    }
+            }
+        }
+        return offset;
+    }
+
+    void close() {
+        inflater.end();
+        IOUtils.closeQuietly(input);
+    }
+
+    private static long readSignature(DataInputStream input) throws IOException {
+        try {
+            return input.readLong();
+        } catch (EOFException ex) {
+            // too short to be PNG
+            return 0;
+        }
+    }
+
+    private static void skip(DataInputStream input, int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            int skipped = input.skipBytes(remaining);
+            if (skipped == 0) {
+                throw new EOFException("Chunk is truncated");
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static int getChannels(int colorType) {
+        switch (colorType) {
+            case COLOR_TYPE_GRAY:
+            case COLOR_TYPE_PALETTE:
+                return 1;
+            case COLOR_TYPE_GRAY_ALPHA:
+                return 2;
+            case COLOR_TYPE_RGB:
+                return 3;
+            case COLOR_TYPE_RGBA:
+                return 4;
+            default:
+                return 0;
+        }
+    }
+
+    private byte[][] createLookup(byte[] palette, PixelFormat format) {
+        byte[][] lookup = new byte[format.channels()][256];
+        for (int i = 0; i < palette.length / 3 && i < 256; i++) {
+            int red = palette[i * 3] & 0xff;
+            int green = palette[i * 3 + 1] & 0xff;
+            int blue = palette[i * 3 + 2] & 0xff;
+            if (format == PixelFormat.GRAY) {
+                lookup[0][i] = RasterHelper.toGray(red, green, blue);
+            } else {
+                lookup[0][i] = (byte) red;
+                lookup[1][i] = (byte) green;
+                lookup[2][i] = (byte) blue;
+            }
+        }
+        return lookup;
+    }
+
+    private void unfilter(int filter, byte[] row, byte[] previous, int bpp) throws IOException {
+        switch (filter) {
+            case 0:
+                break;
+            case 1:
+                for (int i = bpp; i < row.length; i++) {
+                    row[i] += row[i - bpp];
+                }
+                break;
+            case 2:
+                for (int i = 0; i < row.length; i++) {
+                    row[i] += previous[i];
+                }
+                break;
+            case 3:
+                for (int i = 0; i < row.length; i++) {
+                    int left = i >= bpp ? row[i - bpp] & 0xff : 0;
+                    row[i] += (left + (previous[i] & 0xff)) >>> 1;
+                }
+                break;
+            case 4:
+                for (int i = 0; i < row.length; i++) {
+                    int left = i >= bpp ? row[i - bpp] & 0xff : 0;
+                    int upLeft = i >= bpp ? previous[i - bpp] & 0xff : 0;
+                    row[i] += PngPredictor.paeth(left, previous[i] & 0xff, upLeft);
+                }
+                break;
+            default:
+                throw new IOException("Unknown PNG filter: " + filter);
+        }
+    }
+
+    private static class ImageDataInputStream extends InputStream {
+
+        private final DataInputStream input;
+        private int remaining;
+        private boolean finished;
+
+        private ImageDataInputStream(DataInputStream input, int length) {
+            this.input = input;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            while (remaining == 0) {
+                if (finished) {
+                    return -1;
+                }
+                // CRC of the chunk, the next one continues the data or ends it
+                input.readInt();
+                int nextLength = input.readInt();
+                if (input.readInt() != CHUNK_IDAT) {
+                    finished = true;
+                    return -1;
+                }
+                remaining = nextLength;
+            }
+
+            int read = input.read(target, offset, Math.min(length, remaining));
+            if (read == -1) {
+                throw new EOFException("Image data is truncated");
+            }
+            remaining -= read;
+            return read;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PngRowReader{" + "width=" + width + ", height=" + height + ", colorType=" + colorType + '}';
+    }
+}
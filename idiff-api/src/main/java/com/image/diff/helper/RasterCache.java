@@ -0,0 +1,139 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.DecodedImage;
+import com.image.diff.core.GrayRaster;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class RasterCache {
+
+    private static final String ENTRY_SUFFIX = ".gray";
+    private static final int ENTRY_MAGIC = 0x49444752;
+    private static final int ENTRY_VERSION = 2;
+    // magic, version, width and height
+    private static final int HEADER_SIZE = 16;
+
+    private Logger logger = LoggerFactory.getLogger(getClass());
+    private final File directory;
+    private final long maxSize;
+    private final DecoderHelper decoderHelper = new DecoderHelper();
+    private final FileHelper fileHelper = new FileHelper();
+
+    public RasterCache(File directory, long maxSize) {
+        Validate.notNull(directory, "Cache directory must not be null");
+        Validate.isTrue(maxSize > 0, "Cache size should be greater than 0. Passed: " + maxSize);
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    // kept on the heap when the entry can not be written
+    public GrayRaster getGray(File image) {
+        Validate.notNull(image, "Image must not be null");
+
+        File entry = new File(directory, fileHelper.toHex(fileHelper.hashContent(image)) + ENTRY_SUFFIX);
+        if (entry.isFile()) {
+            try {
+                GrayRaster raster = map(entry);
+                if (raster != null) {
+                    // file time is the recency of the entry
+                    entry.setLastModified(System.currentTimeMillis());
+                    return raster;
+                }
+                logger.debug("Cache entry {} is broken and will be rebuilt", entry);
+            } catch (IOException ex) {
+                logger.warn("Could not read cache entry: " + entry.getAbsolutePath(), ex);
+            }
+        }
+
+        DecodedImage decoded = decoderHelper.decodeGray(image);
+        if (HEADER_SIZE + (long) decoded.getWidth() * decoded.getHeight() > Integer.MAX_VALUE) {
+            // one mapping holds at most 2 GiB
+            logger.debug("Image {} is too large to be cached", image);
+            return new GrayRaster(decoded.getWidth(), decoded.getHeight(), ByteBuffer.wrap(decoded.getPixels()));
+        }
+        try {
+            write(entry, decoded);
+            fileHelper.evictLeastRecentlyUsed(directory, ENTRY_SUFFIX, maxSize, entry);
+            GrayRaster raster = map(entry);
+            if (raster != null) {
+                return raster;
+            }
+        } catch (IOException ex) {
+            logger.warn("Could not write cache entry: " + entry.getAbsolutePath(), ex);
+        }
+
+        return new GrayRaster(decoded.getWidth(), decoded.getHeight(), ByteBuffer.wrap(decoded.getPixels()));
+    }
+
+    public long getSize() {
+        long size = 0;
+        for (File entry : fileHelper.listFiles(directory, ENTRY_SUFFIX)) {
+            size += entry.length();
+        }
+        return size;
+    }
+
+    private GrayRaster map(File entry) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(entry, "r");
+        try {
+            if (file.length() < HEADER_SIZE || file.length() > Integer.MAX_VALUE) {
+                return null;
+            }
+            // the mapping stays valid after the file is closed
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            if (buffer.getInt() != ENTRY_MAGIC || buffer.getInt() != ENTRY_VERSION) {
+                return null;
+            }
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            if (width <= 0 || height <= 0 || buffer.remaining() != (long) width * height) {
+                return null;
+            }
+
+            return new GrayRaster(width, height, buffer);
+        } finally {
+            file.close();
+        }
+    }
+
+    private void write(File entry, DecodedImage image) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create cache directory: " + directory.getAbsolutePath());
+        }
+
+        // write aside and move, so other runs never map a half written entry
+        File temporaryFile = File.createTempFile(entry.getName(), ".tmp", directory);
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+        try {
+            output.writeInt(ENTRY_MAGIC);
+            output.writeInt(ENTRY_VERSION);
+            output.writeInt(image.getWidth());
+            output.writeInt(image.getHeight());
+            output.write(image.getPixels(), 0, image.getWidth() * image.getHeight());
+            output.close();
+        } catch (IOException ex) {
+            temporaryFile.delete();
+            throw ex;
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+
+        fileHelper.move(temporaryFile, entry);
+    }
+
+    @Override
+    public String toString() {
+        return "RasterCache{" + "directory=" + directory + ", maxSize=" + maxSize + '}';
+    }
+}
@@ -0,0 +1,803 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.BaselineIndex;
+import com.image.diff.core.DecodedImage;
+import com.image.diff.core.GrayRaster;
+import com.image.diff.core.ImageHeader;
+import com.image.diff.core.PixelFormat;
+import com.image.diff.core.RegionTable;
+import com.image.diff.core.Roi;
+import com.image.diff.core.RoiIndex;
+import java.awt.Rectangle;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import org.apache.commons.lang3.Validate;
+
+// buffers, labeler and region table are reused by the next call, so an instance must not be shared between threads
+public class RasterHelper {
+
+    // fixed point BGR to gray coefficients, the same as OpenCV uses for CV_BGR2GRAY
+    private static final int GRAY_SHIFT = 14;
+    private static final int GRAY_ROUND = 1 << (GRAY_SHIFT - 1);
+    private static final int RED_TO_GRAY = 4899;
+    private static final int GREEN_TO_GRAY = 9617;
+    private static final int BLUE_TO_GRAY = 1868;
+
+    private final RegionLabeler labeler = new RegionLabeler();
+    private final RegionTable regions = new RegionTable();
+    private final DiffPyramid pyramid = new DiffPyramid();
+    private byte[] firstRow = new byte[0];
+    private byte[] secondRow = new byte[0];
+    private byte[] maskRow = new byte[0];
+    private byte[] roiRow = new byte[0];
+    private byte[] bandGray = new byte[0];
+    private boolean[] dirtyColumns = new boolean[0];
+    private int[] rgbRow = new int[0];
+    private int[] secondRgbRow = new int[0];
+
+    public RegionTable findDifferenceRegions(BufferedImage firstImage, BufferedImage secondImage) {
+        validateImages(firstImage, secondImage);
+
+        return findDifferenceRegions(firstImage, secondImage, 0, 0, firstImage.getWidth(), firstImage.getHeight(), null, false);
+    }
+
+    public RegionTable findDifferenceRegions(BufferedImage firstImage, BufferedImage secondImage, RoiIndex roiIndex) {
+        validateImages(firstImage, secondImage);
+        Validate.notNull(roiIndex, "ROI index must not be null");
+
+        return findDifferenceRegions(firstImage, secondImage, roiIndex, false);
+    }
+
+    public RegionTable findDifferenceRegionsCoarseToFine(BufferedImage firstImage, BufferedImage secondImage, RoiIndex roiIndex) {
+        validateImages(firstImage, secondImage);
+
+        if (roiIndex == null) {
+            return findDifferenceRegions(firstImage, secondImage, 0, 0, firstImage.getWidth(), firstImage.getHeight(), null, true);
+        }
+        return findDifferenceRegions(firstImage, secondImage, roiIndex, true);
+    }
+
+    public RegionTable findDifferenceRegions(BaselineIndex baseline, BufferedImage candidate, RoiIndex roiIndex) {
+        Validate.notNull(baseline, "Baseline index must not be null");
+        Validate.notNull(candidate, "Candidate image must not be null");
+        Validate.isTrue(baseline.getWidth() == candidate.getWidth() && baseline.getHeight() == candidate.getHeight(),
+            "Images should have the same size");
+
+        int imageWidth = baseline.getWidth();
+        int left = 0;
+        int top = 0;
+        int width = imageWidth;
+        int height = baseline.getHeight();
+        if (roiIndex != null) {
+            if (roiIndex.isEmpty()) {
+                regions.clear();
+                return regions;
+            }
+            Roi bounds = roiIndex.getBounds();
+            left = bounds.getX();
+            top = bounds.getY();
+            width = bounds.getWidth();
+            height = bounds.getHeight();
+        }
+
+        // blocks are aligned to the image, so the area is widened to whole blocks for hashing
+        int blockSize = BaselineIndex.BLOCK_SIZE;
+        int firstColumn = left / blockSize;
+        int lastColumn = (left + width - 1) / blockSize;
+        int blockLeft = firstColumn * blockSize;
+        int blockWidth = Math.min((lastColumn + 1) * blockSize, imageWidth) - blockLeft;
+        if (bandGray.length < blockWidth * blockSize) {
+            bandGray = new byte[blockWidth * blockSize];
+        }
+        if (dirtyColumns.length < lastColumn - firstColumn + 1) {
+            dirtyColumns = new boolean[lastColumn - firstColumn + 1];
+        }
+        ensureRowCapacity(width);
+        byte[] baselineGray = baseline.getGray();
+
+        labeler.begin(width);
+        for (int row = top / blockSize; row <= (top + height - 1) / blockSize; row++) {
+            int bandTop = row * blockSize;
+            int bandHeight = Math.min(blockSize, baseline.getHeight() - bandTop);
+            for (int y = 0; y < bandHeight; y++) {
+                readGrayRow(candidate, blockLeft, bandTop + y, blockWidth, bandGray, y * blockWidth);
+            }
+
+            boolean dirty = false;
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int x = column * blockSize;
+                long hash = BaselineIndex.hashBlock(bandGray, x - blockLeft, blockWidth, Math.min(blockSize, imageWidth - x), bandHeight);
+                dirtyColumns[column - firstColumn] = hash != baseline.getBlockHash(column, row);
+                dirty |= dirtyColumns[column - firstColumn];
+            }
+
+            for (int y = Math.max(bandTop, top); y < Math.min(bandTop + bandHeight, top + height); y++) {
+                if (!dirty) {
+                    labeler.addEmptyRow();
+                    continue;
+                }
+
+                byte[] roi = null;
+                if (roiIndex != null) {
+                    if (roiIndex.fillRowMask(y, left, width, roiRow, 0) == 0) {
+                        labeler.addEmptyRow();
+                        continue;
+                    }
+                    roi = roiRow;
+                }
+
+                Arrays.fill(maskRow, 0, width, (byte) 0);
+                int nonZero = 0;
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    if (!dirtyColumns[column - firstColumn]) {
+                        continue;
+                    }
+                    int from = Math.max(column * blockSize, left);
+                    int to = Math.min(Math.min((column + 1) * blockSize, imageWidth), left + width);
+                    nonZero += diffSpan(bandGray, (y - bandTop) * blockWidth + from - blockLeft, baselineGray, y * imageWidth + from,
+                        roi, maskRow, from - left, to - from);
+                }
+
+                if (nonZero > 0) {
+                    labeler.addRow(maskRow, 0);
+                } else {
+                    labeler.addEmptyRow();
+                }
+            }
+        }
+
+        labeler.end(regions);
+        regions.translate(left, top);
+
+        return regions;
+    }
+
+    public RegionTable findDifferenceRegions(File firstImage, File secondImage, int bandHeight, List<Roi> rois) {
+        Validate.notNull(firstImage, "First image must not be null");
+        Validate.notNull(secondImage, "Second image must not be null");
+        Validate.notNull(rois, "List of region of interests should not be null");
+        Validate.isTrue(bandHeight > 0, "Band height should be greater than 0. Passed: " + bandHeight);
+
+        PngRowReader firstRows = null;
+        PngRowReader secondRows = null;
+        ImageInputStream firstInput = null;
+        ImageInputStream secondInput = null;
+        ImageReader firstReader = null;
+        ImageReader secondReader = null;
+        try {
+            // PNG is streamed row by row in one pass, bands of other formats are read by their image readers
+            firstRows = PngRowReader.open(firstImage);
+            secondRows = firstRows != null ? PngRowReader.open(secondImage) : null;
+            int imageWidth;
+            int imageHeight;
+            if (secondRows != null) {
+                imageWidth = firstRows.getWidth();
+                imageHeight = firstRows.getHeight();
+                Validate.isTrue(imageWidth == secondRows.getWidth() && imageHeight == secondRows.getHeight(),
+                    "Images should have the same size");
+            } else {
+                firstInput = ImageIO.createImageInputStream(firstImage);
+                secondInput = ImageIO.createImageInputStream(secondImage);
+                firstReader = createReader(firstInput, firstImage);
+                secondReader = createReader(secondInput, secondImage);
+
+                imageWidth = firstReader.getWidth(0);
+                imageHeight = firstReader.getHeight(0);
+                Validate.isTrue(imageWidth == secondReader.getWidth(0) && imageHeight == secondReader.getHeight(0),
+                    "Images should have the same size");
+            }
+
+            Roi area = new Roi(0, 0, imageWidth, imageHeight);
+            RoiIndex roiIndex = null;
+            if (!rois.isEmpty()) {
+                roiIndex = new RoiIndex(rois, imageWidth, imageHeight);
+                if (roiIndex.isEmpty()) {
+                    regions.clear();
+                    return regions;
+                }
+                area = roiIndex.getBounds();
+            }
+
+            if (secondRows != null) {
+                return findDifferenceRegions(firstRows, secondRows, area, roiIndex);
+            }
+            return findDifferenceRegions(firstReader, secondReader, area, bandHeight, roiIndex);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not read images: " + firstImage.getAbsolutePath() + ", " + secondImage.getAbsolutePath(), ex);
+        } finally {
+            if (firstRows != null) {
+                firstRows.close();
+            }
+            if (secondRows != null) {
+                secondRows.close();
+            }
+            if (firstReader != null) {
+                firstReader.dispose();
+            }
+            if (secondReader != null) {
+                secondReader.dispose();
+            }
+            closeQuietly(firstInput);
+            closeQuietly(secondInput);
+        }
+    }
+
+    private RegionTable findDifferenceRegions(PngRowReader firstRows, PngRowReader secondRows, Roi area, RoiIndex roiIndex)
+        throws IOException {
+        int left = area.getX();
+        int width = area.getWidth();
+        // rows are converted whole, only the area is diffed
+        ensureRowCapacity(firstRows.getWidth());
+
+        labeler.begin(width);
+        for (int y = 0; y < area.getY() + area.getHeight(); y++) {
+            firstRows.nextRow();
+            secondRows.nextRow();
+            if (y < area.getY()) {
+                continue;
+            }
+            byte[] roi = null;
+            if (roiIndex != null) {
+                if (roiIndex.fillRowMask(y, left, width, roiRow, 0) == 0) {
+                    labeler.addEmptyRow();
+                    continue;
+                }
+                roi = roiRow;
+            }
+
+            firstRows.convertRow(PixelFormat.GRAY, 1, firstRow, 0);
+            secondRows.convertRow(PixelFormat.GRAY, 1, secondRow, 0);
+            if (diffSpan(firstRow, left, secondRow, left, roi, maskRow, 0, width) > 0) {
+                labeler.addRow(maskRow, 0);
+            } else {
+                labeler.addEmptyRow();
+            }
+        }
+
+        labeler.end(regions);
+        regions.translate(left, area.getY());
+
+        return regions;
+    }
+
+    private RegionTable findDifferenceRegions(ImageReader firstReader, ImageReader secondReader, Roi area, int bandHeight,
+        RoiIndex roiIndex) throws IOException {
+        int left = area.getX();
+        int width = area.getWidth();
+        ensureRowCapacity(width);
+        ImageReadParam firstParam = firstReader.getDefaultReadParam();
+        ImageReadParam secondParam = secondReader.getDefaultReadParam();
+
+        labeler.begin(width);
+        for (int top = area.getY(); top < area.getY() + area.getHeight(); top += bandHeight) {
+            int height = Math.min(bandHeight, area.getY() + area.getHeight() - top);
+            Rectangle band = new Rectangle(left, top, width, height);
+            firstParam.setSourceRegion(band);
+            secondParam.setSourceRegion(band);
+            BufferedImage firstBand = firstReader.read(0, firstParam);
+            BufferedImage secondBand = secondReader.read(0, secondParam);
+            // next bands are decoded into the same images, the last band may use only part of them
+            firstParam.setDestination(firstBand);
+            secondParam.setDestination(secondBand);
+
+            for (int y = 0; y < height; y++) {
+                byte[] roi = null;
+                if (roiIndex != null) {
+                    if (roiIndex.fillRowMask(top + y, left, width, roiRow, 0) == 0) {
+                        labeler.addEmptyRow();
+                        continue;
+                    }
+                    roi = roiRow;
+                }
+
+                readGrayRow(firstBand, 0, y, width, firstRow, 0);
+                readGrayRow(secondBand, 0, y, width, secondRow, 0);
+                if (diffSpan(firstRow, 0, secondRow, 0, roi, maskRow, 0, width) > 0) {
+                    labeler.addRow(maskRow, 0);
+                } else {
+                    labeler.addEmptyRow();
+                }
+            }
+        }
+
+        labeler.end(regions);
+        regions.translate(left, area.getY());
+
+        return regions;
+    }
+
+    private ImageReader createReader(ImageInputStream input, File image) {
+        if (input == null) {
+            throw new IllegalStateException("Could not open image: " + image.getAbsolutePath());
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IllegalStateException("Image format is not supported: " + image.getAbsolutePath());
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(input, true, true);
+        return reader;
+    }
+
+    private void closeQuietly(ImageInputStream input) {
+        if (input == null) {
+            return;
+        }
+        try {
+            input.close();
+        } catch (IOException ex) {
+            // nothing to do, the stream was only read
+        }
+    }
+
+    public RegionTable findDifferenceRegions(GrayRaster firstRaster, GrayRaster secondRaster, RoiIndex roiIndex) {
+        Validate.notNull(firstRaster, "First raster must not be null");
+        Validate.notNull(secondRaster, "Second raster must not be null");
+        Validate.isTrue(firstRaster.getWidth() == secondRaster.getWidth() && firstRaster.getHeight() == secondRaster.getHeight(),
+            "Images should have the same size");
+
+        Roi area = new Roi(0, 0, firstRaster.getWidth(), firstRaster.getHeight());
+        if (roiIndex != null) {
+            if (roiIndex.isEmpty()) {
+                regions.clear();
+                return regions;
+            }
+            area = roiIndex.getBounds();
+        }
+        int left = area.getX();
+        int width = area.getWidth();
+        ensureRowCapacity(width);
+
+        labeler.begin(width);
+        for (int y = area.getY(); y < area.getY() + area.getHeight(); y++) {
+            byte[] roi = null;
+            if (roiIndex != null) {
+                if (roiIndex.fillRowMask(y, left, width, roiRow, 0) == 0) {
+                    labeler.addEmptyRow();
+                    continue;
+                }
+                roi = roiRow;
+            }
+
+            firstRaster.getRow(left, y, width, firstRow, 0);
+            secondRaster.getRow(left, y, width, secondRow, 0);
+            if (diffSpan(firstRow, 0, secondRow, 0, roi, maskRow, 0, width) > 0) {
+                labeler.addRow(maskRow, 0);
+            } else {
+                labeler.addEmptyRow();
+            }
+        }
+
+        labeler.end(regions);
+        regions.translate(left, area.getY());
+
+        return regions;
+    }
+
+    private void validateImages(BufferedImage firstImage, BufferedImage secondImage) {
+        Validate.notNull(firstImage, "First image must not be null");
+        Validate.notNull(secondImage, "Second image must not be null");
+        Validate.isTrue(firstImage.getWidth() == secondImage.getWidth() && firstImage.getHeight() == secondImage.getHeight(),
+            "Images should have the same size");
+    }
+
+    private RegionTable findDifferenceRegions(BufferedImage firstImage, BufferedImage secondImage, RoiIndex roiIndex, boolean coarseToFine) {
+        if (roiIndex.isEmpty()) {
+            regions.clear();
+            return regions;
+        }
+
+        Roi bounds = roiIndex.getBounds();
+        return findDifferenceRegions(firstImage, secondImage, bounds.getX(), bounds.getY(), bounds.getWidth(), bounds.getHeight(),
+            roiIndex, coarseToFine);
+    }
+
+    private RegionTable findDifferenceRegions(BufferedImage firstImage, BufferedImage secondImage, int left, int top, int width, int height,
+        RoiIndex roiIndex, boolean coarseToFine) {
+        ensureRowCapacity(width);
+        if (coarseToFine) {
+            pyramid.build(firstImage, secondImage, left, top, width, height);
+            if (!pyramid.isDirty()) {
+                regions.clear();
+                return regions;
+            }
+        }
+
+        labeler.begin(width);
+        for (int y = top; y < top + height; y++) {
+            int blockRow = (y - top) / DiffPyramid.BLOCK_SIZE;
+            if (coarseToFine && pyramid.nextDirtyColumn(blockRow, 0) < 0) {
+                labeler.addEmptyRow();
+                continue;
+            }
+
+            byte[] roi = null;
+            if (roiIndex != null) {
+                if (roiIndex.fillRowMask(y, left, width, roiRow, 0) == 0) {
+                    labeler.addEmptyRow();
+                    continue;
+                }
+                roi = roiRow;
+            }
+
+            int nonZero;
+            if (coarseToFine) {
+                nonZero = diffDirtyBlocks(firstImage, secondImage, left, y, width, blockRow, roi);
+            } else {
+                readGrayRow(firstImage, left, y, width, firstRow, 0);
+                readGrayRow(secondImage, left, y, width, secondRow, 0);
+                nonZero = diffSpan(firstRow, 0, secondRow, 0, roi, maskRow, 0, width);
+            }
+
+            if (nonZero > 0) {
+                labeler.addRow(maskRow, 0);
+            } else {
+                labeler.addEmptyRow();
+            }
+        }
+
+        labeler.end(regions);
+        regions.translate(left, top);
+
+        return regions;
+    }
+
+    private int diffDirtyBlocks(BufferedImage firstImage, BufferedImage secondImage, int left, int y, int width, int blockRow, byte[] roi) {
+        Arrays.fill(maskRow, 0, width, (byte) 0);
+
+        int nonZero = 0;
+        int column = pyramid.nextDirtyColumn(blockRow, 0);
+        while (column >= 0) {
+            // neighbouring dirty blocks are read as one span
+            int endColumn = pyramid.nextCleanColumn(blockRow, column);
+            int from = column * DiffPyramid.BLOCK_SIZE;
+            int to = Math.min(endColumn * DiffPyramid.BLOCK_SIZE, width);
+
+            readGrayRow(firstImage, left + from, y, to - from, firstRow, from);
+            readGrayRow(secondImage, left + from, y, to - from, secondRow, from);
+            nonZero += diffSpan(firstRow, from, secondRow, from, roi, maskRow, from, to - from);
+
+            column = pyramid.nextDirtyColumn(blockRow, endColumn);
+        }
+
+        return nonZero;
+    }
+
+    public boolean isIdentical(BufferedImage firstImage, BufferedImage secondImage) {
+        Validate.notNull(firstImage, "First image must not be null");
+        Validate.notNull(secondImage, "Second image must not be null");
+
+        if (firstImage.getWidth() != secondImage.getWidth() || firstImage.getHeight() != secondImage.getHeight()) {
+            return false;
+        }
+
+        if (hasSamePackedLayout(firstImage, secondImage)) {
+            DataBuffer firstBuffer = firstImage.getRaster().getDataBuffer();
+            DataBuffer secondBuffer = secondImage.getRaster().getDataBuffer();
+            if (firstBuffer instanceof DataBufferByte) {
+                return isIdentical(((DataBufferByte) firstBuffer).getData(), ((DataBufferByte) secondBuffer).getData());
+            }
+            // bits outside of the sample model masks, like the unused byte of TYPE_INT_RGB, are not pixels
+            int pixelMask = 0;
+            for (int bitMask : ((SinglePixelPackedSampleModel) firstImage.getSampleModel()).getBitMasks()) {
+                pixelMask |= bitMask;
+            }
+            return isIdentical(((DataBufferInt) firstBuffer).getData(), ((DataBufferInt) secondBuffer).getData(), pixelMask);
+        }
+
+        int width = firstImage.getWidth();
+        if (rgbRow.length < width) {
+            rgbRow = new int[width];
+        }
+        if (secondRgbRow.length < width) {
+            secondRgbRow = new int[width];
+        }
+        for (int y = 0; y < firstImage.getHeight(); y++) {
+            firstImage.getRGB(0, y, width, 1, rgbRow, 0, width);
+            secondImage.getRGB(0, y, width, 1, secondRgbRow, 0, width);
+            for (int x = 0; x < width; x++) {
+                if (rgbRow[x] != secondRgbRow[x]) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    // compares RGB samples of the decoded files, alpha is dropped by the decoders
+    public boolean isIdentical(File firstImage, File secondImage, DecoderHelper decoderHelper) {
+        Validate.notNull(firstImage, "First image must not be null");
+        Validate.notNull(secondImage, "Second image must not be null");
+        Validate.notNull(decoderHelper, "Decoder helper must not be null");
+
+        PngRowReader firstRows = null;
+        PngRowReader secondRows = null;
+        try {
+            // PNG rows are compared while they are inflated, so the first different row ends the check
+            firstRows = PngRowReader.open(firstImage);
+            secondRows = firstRows != null ? PngRowReader.open(secondImage) : null;
+            if (secondRows != null) {
+                return isIdentical(firstRows, secondRows);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not read images: " + firstImage.getAbsolutePath() + ", " + secondImage.getAbsolutePath(), ex);
+        } finally {
+            if (firstRows != null) {
+                firstRows.close();
+            }
+            if (secondRows != null) {
+                secondRows.close();
+            }
+        }
+
+        ImageHeader firstHeader = decoderHelper.readHeader(firstImage);
+        ImageHeader secondHeader = decoderHelper.readHeader(secondImage);
+        if (firstHeader.getWidth() != secondHeader.getWidth() || firstHeader.getHeight() != secondHeader.getHeight()) {
+            return false;
+        }
+        DecodedImage firstDecoded = decoderHelper.decode(firstImage, PixelFormat.RGB, 1, null);
+        DecodedImage secondDecoded = decoderHelper.decode(secondImage, PixelFormat.RGB, 1, null);
+        int rowSize = firstDecoded.getRowSize();
+        for (int offset = 0; offset < rowSize * firstDecoded.getHeight(); offset += rowSize) {
+            if (!isIdentical(firstDecoded.getPixels(), secondDecoded.getPixels(), offset, rowSize)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isIdentical(PngRowReader firstRows, PngRowReader secondRows) throws IOException {
+        if (firstRows.getWidth() != secondRows.getWidth() || firstRows.getHeight() != secondRows.getHeight()) {
+            return false;
+        }
+
+        int rowSize = firstRows.getWidth() * PixelFormat.RGB.channels();
+        if (firstRow.length < rowSize) {
+            firstRow = new byte[rowSize];
+        }
+        if (secondRow.length < rowSize) {
+            secondRow = new byte[rowSize];
+        }
+        for (int y = 0; y < firstRows.getHeight(); y++) {
+            firstRows.nextRow();
+            secondRows.nextRow();
+            firstRows.convertRow(PixelFormat.RGB, 1, firstRow, 0);
+            secondRows.convertRow(PixelFormat.RGB, 1, secondRow, 0);
+            if (!isIdentical(firstRow, secondRow, 0, rowSize)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isIdentical(byte[] first, byte[] second, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (first[i] != second[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isIdentical(byte[] first, byte[] second) {
+        if (first.length != second.length) {
+            return false;
+        }
+
+        LongBuffer firstWords = ByteBuffer.wrap(first).asLongBuffer();
+        LongBuffer secondWords = ByteBuffer.wrap(second).asLongBuffer();
+        int words = firstWords.remaining();
+        for (int i = 0; i < words; i++) {
+            if (firstWords.get(i) != secondWords.get(i)) {
+                return false;
+            }
+        }
+        for (int i = words * 8; i < first.length; i++) {
+            if (first[i] != second[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isIdentical(int[] first, int[] second, int pixelMask) {
+        if (first.length != second.length) {
+            return false;
+        }
+
+        for (int i = 0; i < first.length; i++) {
+            if (((first[i] ^ second[i]) & pixelMask) != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // equal data arrays mean equal pixels and vice versa
+    static boolean hasSamePackedLayout(BufferedImage firstImage, BufferedImage secondImage) {
+        if (firstImage.getType() == BufferedImage.TYPE_CUSTOM || firstImage.getType() != secondImage.getType()) {
+            return false;
+        }
+        if (firstImage.getColorModel() instanceof IndexColorModel) {
+            return false;
+        }
+
+        Raster firstRaster = firstImage.getRaster();
+        Raster secondRaster = secondImage.getRaster();
+        if (!firstRaster.getSampleModel().equals(secondRaster.getSampleModel())) {
+            return false;
+        }
+
+        return isWholePackedRaster(firstImage) && isWholePackedRaster(secondImage);
+    }
+
+    private static boolean isWholePackedRaster(BufferedImage image) {
+        Raster raster = image.getRaster();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        SampleModel sampleModel = raster.getSampleModel();
+        if (raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+            || dataBuffer.getNumBanks() != 1 || dataBuffer.getOffset() != 0) {
+            return false;
+        }
+
+        if (dataBuffer instanceof DataBufferByte && sampleModel instanceof ComponentSampleModel) {
+            ComponentSampleModel model = (ComponentSampleModel) sampleModel;
+            return model.getScanlineStride() == model.getPixelStride() * image.getWidth()
+                && dataBuffer.getSize() == model.getScanlineStride() * image.getHeight()
+                && ((DataBufferByte) dataBuffer).getData().length == dataBuffer.getSize();
+        }
+        if (dataBuffer instanceof DataBufferInt && sampleModel instanceof SinglePixelPackedSampleModel) {
+            SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) sampleModel;
+            return model.getScanlineStride() == image.getWidth()
+                && dataBuffer.getSize() == model.getScanlineStride() * image.getHeight()
+                && ((DataBufferInt) dataBuffer).getData().length == dataBuffer.getSize();
+        }
+
+        return false;
+    }
+
+    public int diffRow(byte[] first, byte[] second, int length, byte[] mask) {
+        return diffSpan(first, 0, second, 0, null, mask, 0, length);
+    }
+
+    private int diffSpan(byte[] first, int firstOffset, byte[] second, int secondOffset, byte[] roi, byte[] mask, int maskOffset, int length) {
+        int nonZero = 0;
+        for (int i = 0; i < length; i++) {
+            if (first[firstOffset + i] != second[secondOffset + i] && (roi == null || roi[maskOffset + i] != 0)) {
+                mask[maskOffset + i] = (byte) 255;
+                nonZero++;
+            } else {
+                mask[maskOffset + i] = 0;
+            }
+        }
+        return nonZero;
+    }
+
+    public void readGrayRow(BufferedImage image, int y, byte[] target) {
+        readGrayRow(image, 0, y, image.getWidth(), target, 0);
+    }
+
+    public void readGrayRow(BufferedImage image, int fromX, int y, int width, byte[] target, int targetOffset) {
+        Raster raster = image.getRaster();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        SampleModel sampleModel = raster.getSampleModel();
+        int sampleY = y - raster.getSampleModelTranslateY();
+        int sampleX = fromX - raster.getSampleModelTranslateX();
+
+        if (dataBuffer instanceof DataBufferByte && dataBuffer.getNumBanks() == 1
+            && sampleModel instanceof ComponentSampleModel && isComponentRgbOrGray(image)) {
+            ComponentSampleModel model = (ComponentSampleModel) sampleModel;
+            byte[] data = ((DataBufferByte) dataBuffer).getData();
+            int pixelStride = model.getPixelStride();
+            int[] bandOffsets = model.getBandOffsets();
+            int offset = dataBuffer.getOffset() + sampleY * model.getScanlineStride() + sampleX * pixelStride;
+
+            if (model.getNumBands() < 3) {
+                int gray = offset + bandOffsets[0];
+                for (int x = 0; x < width; x++, gray += pixelStride) {
+                    target[targetOffset + x] = data[gray];
+                }
+            } else {
+                int red = offset + bandOffsets[0];
+                int green = offset + bandOffsets[1];
+                int blue = offset + bandOffsets[2];
+                for (int x = 0; x < width; x++) {
+                    target[targetOffset + x] = toGray(data[red] & 0xff, data[green] & 0xff, data[blue] & 0xff);
+                    red += pixelStride;
+                    green += pixelStride;
+                    blue += pixelStride;
+                }
+            }
+            return;
+        }
+
+        if (dataBuffer instanceof DataBufferInt && sampleModel instanceof SinglePixelPackedSampleModel
+            && image.getColorModel() instanceof DirectColorModel && isEightBitPacked((SinglePixelPackedSampleModel) sampleModel)) {
+            SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) sampleModel;
+            int[] data = ((DataBufferInt) dataBuffer).getData();
+            int[] bitOffsets = model.getBitOffsets();
+            int redShift = bitOffsets[0];
+            int greenShift = bitOffsets[1];
+            int blueShift = bitOffsets[2];
+            int offset = dataBuffer.getOffset() + sampleY * model.getScanlineStride() + sampleX;
+
+            for (int x = 0; x < width; x++) {
+                int pixel = data[offset + x];
+                target[targetOffset + x] = toGray((pixel >>> redShift) & 0xff, (pixel >>> greenShift) & 0xff, (pixel >>> blueShift) & 0xff);
+            }
+            return;
+        }
+
+        // indexed, 16-bit and other less common layouts
+        if (rgbRow.length < width) {
+            rgbRow = new int[width];
+        }
+        image.getRGB(fromX, y, width, 1, rgbRow, 0, width);
+        for (int x = 0; x < width; x++) {
+            int pixel = rgbRow[x];
+            target[targetOffset + x] = toGray((pixel >>> 16) & 0xff, (pixel >>> 8) & 0xff, pixel & 0xff);
+        }
+    }
+
+    static byte toGray(int red, int green, int blue) {
+        return (byte) ((blue * BLUE_TO_GRAY + green * GREEN_TO_GRAY + red * RED_TO_GRAY + GRAY_ROUND) >> GRAY_SHIFT);
+    }
+
+    private boolean isComponentRgbOrGray(BufferedImage image) {
+        if (!(image.getColorModel() instanceof ComponentColorModel)) {
+            return false;
+        }
+        ColorSpace colorSpace = image.getColorModel().getColorSpace();
+        return colorSpace.isCS_sRGB() || colorSpace.getType() == ColorSpace.TYPE_GRAY;
+    }
+
+    private boolean isEightBitPacked(SinglePixelPackedSampleModel model) {
+        if (model.getNumBands() < 3) {
+            return false;
+        }
+        int[] bitMasks = model.getBitMasks();
+        int[] bitOffsets = model.getBitOffsets();
+        for (int band = 0; band < 3; band++) {
+            if (bitMasks[band] != (0xff << bitOffsets[band])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureRowCapacity(int width) {
+        if (firstRow.length < width) {
+            firstRow = new byte[width];
+            secondRow = new byte[width];
+            maskRow = new byte[width];
+            roiRow = new byte[width];
+        }
+    }
+}
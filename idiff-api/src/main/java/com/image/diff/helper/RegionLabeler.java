@@ -0,0 +1,168 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.RegionTable;
+import java.util.Arrays;
+
+// arrays are reused by the next begin(). Not thread safe
+public class RegionLabeler {
+
+    private int width;
+    private int row;
+    // labels of the previous and the current row, padded by one column on both sides
+    private int[] previousLabels = new int[0];
+    private int[] currentLabels = new int[0];
+    // union-find over provisional labels, label 0 is background
+    private int[] parent = new int[256];
+    private int[] minX = new int[256];
+    private int[] minY = new int[256];
+    private int[] maxX = new int[256];
+    private int[] maxY = new int[256];
+    private int[] pixels = new int[256];
+    private int[] startX = new int[256];
+    private int[] regions = new int[256];
+    private int labels;
+
+    public void begin(int width) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("Width should be greater than 0. Passed: " + width);
+        }
+        this.width = width;
+        this.row = 0;
+        this.labels = 0;
+        if (previousLabels.length < width + 2) {
+            previousLabels = new int[width + 2];
+            currentLabels = new int[width + 2];
+        } else {
+            Arrays.fill(previousLabels, 0);
+            Arrays.fill(currentLabels, 0);
+        }
+    }
+
+    public void addRow(byte[] values, int offset) {
+        int[] previous = previousLabels;
+        int[] current = currentLabels;
+        int y = row;
+
+        for (int x = 0; x < width; x++) {
+            if (values[offset + x] == 0) {
+                current[x + 1] = 0;
+                continue;
+            }
+
+            int label = current[x];
+            label = join(label, previous[x]);
+            label = join(label, previous[x + 1]);
+            label = join(label, previous[x + 2]);
+            if (label == 0) {
+                label = newLabel(x, y);
+            }
+
+            current[x + 1] = label;
+            if (x < minX[label]) {
+                minX[label] = x;
+            }
+            if (x > maxX[label]) {
+                maxX[label] = x;
+            }
+            maxY[label] = y;
+            pixels[label]++;
+        }
+
+        previousLabels = current;
+        currentLabels = previous;
+        row++;
+    }
+
+    public int getRowLabel(int x) {
+        return previousLabels[x + 1];
+    }
+
+    public void addEmptyRow() {
+        Arrays.fill(currentLabels, 0);
+        int[] previous = previousLabels;
+        previousLabels = currentLabels;
+        currentLabels = previous;
+        row++;
+    }
+
+    public RegionTable end(RegionTable table) {
+        table.clear();
+        for (int label = 1; label <= labels; label++) {
+            if (parent[label] == label) {
+                regions[label] = table.size();
+                table.add(minX[label], minY[label], maxX[label] - minX[label] + 1, maxY[label] - minY[label] + 1, pixels[label], startX[label]);
+            }
+        }
+
+        return table;
+    }
+
+    public int regionOf(int label) {
+        if (label == 0) {
+            return -1;
+        }
+        return regions[find(label)];
+    }
+
+    private int newLabel(int x, int y) {
+        labels++;
+        if (labels >= parent.length) {
+            int capacity = parent.length * 2;
+            parent = Arrays.copyOf(parent, capacity);
+            minX = Arrays.copyOf(minX, capacity);
+            minY = Arrays.copyOf(minY, capacity);
+            maxX = Arrays.copyOf(maxX, capacity);
+            maxY = Arrays.copyOf(maxY, capacity);
+            pixels = Arrays.copyOf(pixels, capacity);
+            startX = Arrays.copyOf(startX, capacity);
+            regions = Arrays.copyOf(regions, capacity);
+        }
+        parent[labels] = labels;
+        minX[labels] = x;
+        minY[labels] = y;
+        maxX[labels] = x;
+        maxY[labels] = y;
+        pixels[labels] = 0;
+        startX[labels] = x;
+
+        return labels;
+    }
+
+    private int join(int label, int neighbour) {
+        if (neighbour == 0) {
+            return label;
+        }
+        if (label == 0) {
+            return find(neighbour);
+        }
+
+        int root = find(label);
+        int other = find(neighbour);
+        if (root == other) {
+            return root;
+        }
+
+        // the older label stays the root, so regions keep the raster order of their first pixel
+        if (other < root) {
+            int swap = root;
+            root = other;
+            other = swap;
+        }
+        parent[other] = root;
+        minX[root] = Math.min(minX[root], minX[other]);
+        minY[root] = Math.min(minY[root], minY[other]);
+        maxX[root] = Math.max(maxX[root], maxX[other]);
+        maxY[root] = Math.max(maxY[root], maxY[other]);
+        pixels[root] += pixels[other];
+
+        return root;
+    }
+
+    private int find(int label) {
+        while (parent[label] != label) {
+            parent[label] = parent[parent[label]];
+            label = parent[label];
+        }
+        return label;
+    }
+}
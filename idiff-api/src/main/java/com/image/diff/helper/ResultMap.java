@@ -0,0 +1,100 @@
+package com.image.diff.helper;
+
+import com.googlecode.javacv.cpp.opencv_core.IplImage;
+import com.image.diff.core.MatchContainer;
+import com.image.diff.core.MatchEngine;
+import com.image.diff.core.MatchResult;
+import com.image.diff.core.TemplateMatchMethod;
+import java.nio.FloatBuffer;
+import java.util.List;
+import org.apache.commons.lang3.Validate;
+
+// scores are a view of the native memory, valid only until release()
+public class ResultMap {
+
+    private final ImageHelper imageHelper;
+    private final IplImage resultImage;
+    private final TemplateMatchMethod matchMethod;
+    private final MatchEngine matchEngine;
+    private final int templateWidth;
+    private final int templateHeight;
+    private final PeakFinder peakFinder = new PeakFinder();
+    private boolean released;
+
+    ResultMap(ImageHelper imageHelper, MatchContainer container) {
+        this.imageHelper = imageHelper;
+        this.resultImage = container.getResultImage();
+        this.matchMethod = container.getMatchMethod();
+        this.matchEngine = container.getMatchEngine();
+        this.templateWidth = container.getTemplateImage().width();
+        this.templateHeight = container.getTemplateImage().height();
+    }
+
+    public int getWidth() {
+        return resultImage.width();
+    }
+
+    public int getHeight() {
+        return resultImage.height();
+    }
+
+    public int getStride() {
+        return resultImage.widthStep() / 4;
+    }
+
+    public TemplateMatchMethod getMatchMethod() {
+        return matchMethod;
+    }
+
+    public MatchEngine getMatchEngine() {
+        return matchEngine;
+    }
+
+    public int getTemplateWidth() {
+        return templateWidth;
+    }
+
+    public int getTemplateHeight() {
+        return templateHeight;
+    }
+
+    public synchronized FloatBuffer getScores() {
+        validateNotReleased();
+        return resultImage.getFloatBuffer().asReadOnlyBuffer();
+    }
+
+    public synchronized float getScore(int x, int y) {
+        validateNotReleased();
+        Validate.isTrue(x >= 0 && x < getWidth() && y >= 0 && y < getHeight(), "Position is out of the result map: " + x + "," + y);
+        return resultImage.getFloatBuffer().get(y * getStride() + x);
+    }
+
+    public synchronized List<MatchResult> findPeaks(double minSimilarity, int limit) {
+        validateNotReleased();
+        return peakFinder.findPeaks(resultImage.getFloatBuffer(), getWidth(), getHeight(), getStride(), matchMethod, minSimilarity, limit,
+            templateWidth, templateHeight, matchEngine);
+    }
+
+    public synchronized boolean isReleased() {
+        return released;
+    }
+
+    // releasing twice does nothing
+    public synchronized void release() {
+        if (!released) {
+            released = true;
+            imageHelper.release(resultImage);
+        }
+    }
+
+    private void validateNotReleased() {
+        Validate.validState(!released, "Result map has been released");
+    }
+
+    @Override
+    public String toString() {
+        return "ResultMap{" + "width=" + resultImage.width() + ", height=" + resultImage.height() + ", matchMethod=" + matchMethod
+            + ", matchEngine=" + matchEngine + ", templateWidth=" + templateWidth + ", templateHeight=" + templateHeight
+            + ", released=" + released + '}';
+    }
+}
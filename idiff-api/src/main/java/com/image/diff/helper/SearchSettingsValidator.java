@@ -0,0 +1,39 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.MatchContext;
+import com.image.diff.core.MatchEngine;
+import org.apache.commons.lang3.Validate;
+
+class SearchSettingsValidator {
+
+    void validate(MatchContext context) {
+        Validate.isTrue(context.getMatchSimilarity() > 0 && context.getMatchSimilarity() < 1,
+            "Expected matching similarity should be from 0..1 (both exclusive). Passed: " + context.getMatchSimilarity());
+        Validate.notNull(context.getMatchMethod(), "Please set match method.");
+        Validate.isTrue(context.getLimit() > 0,
+            "Expected limit of results should be greater than 0. Passed: " + context.getLimit());
+        Validate.notNull(context.getRois(), "List of region of interests should not be null.");
+        Validate.isTrue(context.getTemplateCacheDirectory() == null || context.getTemplateCacheSize() > 0,
+            "Expected template cache size should be greater than 0. Passed: " + context.getTemplateCacheSize());
+        Validate.isTrue(context.getPyramidLevels() >= 0,
+            "Expected pyramid levels should be 0 (pyramid disabled) or greater. Passed: " + context.getPyramidLevels());
+        Validate.isTrue(context.getPyramidLevels() == 0 || context.getRois().isEmpty(),
+            "Pyramid search can not be combined with region of interests.");
+        Validate.notNull(context.getMatchEngine(), "Please set match engine.");
+        Validate.isTrue(context.getMatchEngine() != MatchEngine.FFT || context.getPyramidLevels() == 0,
+            "FFT match engine can not be combined with pyramid search.");
+        // scores of cvMatchTemplate over a stripe are not bit-identical to the ones over the whole source
+        Validate.isTrue(context.getStripeHeight() == 0 || context.getMatchEngine() == MatchEngine.FFT,
+            "Parallel stripes need FFT match engine.");
+        Validate.isTrue(!context.isExistenceCheck() || context.getRois().isEmpty(),
+            "Existence check can not be combined with region of interests.");
+        Validate.isTrue(context.getScales().size() <= TemplateMatcher.MAX_SCALES,
+            "Expected scale range should have at most " + TemplateMatcher.MAX_SCALES + " scales. Passed: " + context.getScales().size());
+        Validate.isTrue(context.getScales().size() == 1 || context.getRois().isEmpty(),
+            "Multi scale search can not be combined with region of interests.");
+        Validate.isTrue(context.getStripeHeight() >= 0,
+            "Expected stripe height should be 0 (stripes disabled) or greater. Passed: " + context.getStripeHeight());
+        Validate.isTrue(context.getParallelism() >= 0,
+            "Expected parallelism should be 0 (number of processors) or greater. Passed: " + context.getParallelism());
+    }
+}
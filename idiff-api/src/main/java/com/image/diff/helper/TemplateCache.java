@@ -0,0 +1,251 @@
+package com.image.diff.helper;
+
+import com.googlecode.javacv.cpp.opencv_core.IplImage;
+import static com.googlecode.javacv.cpp.opencv_core.IPL_DEPTH_8U;
+import com.image.diff.core.DecodedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TemplateCache {
+
+    // 64 MiB
+    public static final long DEFAULT_MAX_MEMORY_SIZE = 64L * 1024 * 1024;
+
+    private static final String ENTRY_SUFFIX = ".template";
+    private static final int ENTRY_MAGIC = 0x49445450;
+    private static final int ENTRY_VERSION = 2;
+
+    private Logger logger = LoggerFactory.getLogger(getClass());
+    private final ImageHelper imageHelper;
+    private final long maxMemorySize;
+    private final File directory;
+    private final long maxDiskSize;
+    private final FileHelper fileHelper = new FileHelper();
+    private final DecoderHelper decoderHelper = new DecoderHelper();
+    // access ordered, the eldest entry is the least recently used one
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private final Map<File, FileKey> keys = new HashMap<File, FileKey>();
+    private long memorySize;
+
+    public TemplateCache(ImageHelper imageHelper, long maxMemorySize) {
+        this(imageHelper, maxMemorySize, null, 0);
+    }
+
+    public TemplateCache(ImageHelper imageHelper, long maxMemorySize, File directory, long maxDiskSize) {
+        Validate.notNull(imageHelper, "Image helper must not be null");
+        Validate.isTrue(maxMemorySize >= 0, "Memory size should not be negative. Passed: " + maxMemorySize);
+        Validate.isTrue(directory == null || maxDiskSize > 0, "Disk size should be greater than 0. Passed: " + maxDiskSize);
+        this.imageHelper = imageHelper;
+        this.maxMemorySize = maxMemorySize;
+        this.directory = directory;
+        this.maxDiskSize = maxDiskSize;
+    }
+
+    // borrowed from the pool of the image helper
+    public IplImage getGrayImage(File template) {
+        Validate.notNull(template, "Template must not be null");
+
+        String key = getKey(template);
+        Entry entry = getFromMemory(key);
+        if (entry == null && directory != null) {
+            entry = readEntry(new File(directory, key + ENTRY_SUFFIX));
+            if (entry != null) {
+                putToMemory(key, entry);
+            }
+        }
+        if (entry == null) {
+            entry = prepare(template);
+            if (directory != null) {
+                writeEntry(new File(directory, key + ENTRY_SUFFIX), entry);
+            }
+            putToMemory(key, entry);
+        }
+
+        IplImage image = imageHelper.createImage(entry.width, entry.height, entry.depth, 1);
+        int rowSize = getRowSize(entry.width, entry.depth);
+        ByteBuffer buffer = image.getByteBuffer();
+        for (int y = 0; y < entry.height; y++) {
+            buffer.position(y * image.widthStep());
+            buffer.put(entry.pixels, y * rowSize, rowSize);
+        }
+        return image;
+    }
+
+    public synchronized long getMemorySize() {
+        return memorySize;
+    }
+
+    public long getDiskSize() {
+        long size = 0;
+        if (directory != null) {
+            for (File entry : fileHelper.listFiles(directory, ENTRY_SUFFIX)) {
+                size += entry.length();
+            }
+        }
+        return size;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        keys.clear();
+        memorySize = 0;
+    }
+
+    private String getKey(File template) {
+        synchronized (this) {
+            FileKey key = keys.get(template);
+            if (key != null && key.length == template.length() && key.lastModified == template.lastModified()) {
+                return key.hash;
+            }
+        }
+
+        FileKey key = new FileKey(template.length(), template.lastModified(), fileHelper.toHex(fileHelper.hashContent(template)));
+        synchronized (this) {
+            keys.put(template, key);
+        }
+        return key.hash;
+    }
+
+    private synchronized Entry getFromMemory(String key) {
+        return entries.get(key);
+    }
+
+    private synchronized void putToMemory(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            memorySize -= previous.pixels.length;
+        }
+        memorySize += entry.pixels.length;
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (memorySize > maxMemorySize && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            memorySize -= eldest.getValue().pixels.length;
+            iterator.remove();
+        }
+    }
+
+    private Entry prepare(File template) {
+        // decoded straight to gray, so the template always has 8-bit depth like the decoded source
+        DecodedImage decoded = decoderHelper.decodeGray(template);
+        return new Entry(decoded.getWidth(), decoded.getHeight(), IPL_DEPTH_8U, decoded.getPixels());
+    }
+
+    private Entry readEntry(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (input.readInt() != ENTRY_MAGIC || input.readInt() != ENTRY_VERSION) {
+                logger.debug("Cache entry {} is broken and will be rebuilt", file);
+                return null;
+            }
+            int width = input.readInt();
+            int height = input.readInt();
+            int depth = input.readInt();
+            long size = (long) getRowSize(width, depth) * height;
+            if (width <= 0 || height <= 0 || size <= 0 || size > Integer.MAX_VALUE) {
+                logger.debug("Cache entry {} is broken and will be rebuilt", file);
+                return null;
+            }
+            byte[] pixels = new byte[(int) size];
+            input.readFully(pixels);
+
+            // file time is the recency of the entry
+            file.setLastModified(System.currentTimeMillis());
+            return new Entry(width, height, depth, pixels);
+        } catch (IOException ex) {
+            logger.warn("Could not read cache entry: " + file.getAbsolutePath(), ex);
+            return null;
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    private void writeEntry(File file, Entry entry) {
+        File temporaryFile = null;
+        DataOutputStream output = null;
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Could not create cache directory: " + directory.getAbsolutePath());
+            }
+
+            // write aside and move, so other runs never read a half written entry
+            temporaryFile = File.createTempFile(file.getName(), ".tmp", directory);
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+            output.writeInt(ENTRY_MAGIC);
+            output.writeInt(ENTRY_VERSION);
+            output.writeInt(entry.width);
+            output.writeInt(entry.height);
+            output.writeInt(entry.depth);
+            output.write(entry.pixels);
+            output.close();
+
+            fileHelper.move(temporaryFile, file);
+            fileHelper.evictLeastRecentlyUsed(directory, ENTRY_SUFFIX, maxDiskSize, file);
+        } catch (IOException ex) {
+            logger.warn("Could not write cache entry: " + file.getAbsolutePath(), ex);
+            if (temporaryFile != null) {
+                temporaryFile.delete();
+            }
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
+    private static int getRowSize(int width, int depth) {
+        // the lowest byte of IPL depth is the number of bits
+        return width * ((depth & 0xff) / 8);
+    }
+
+    @Override
+    public String toString() {
+        return "TemplateCache{" + "maxMemorySize=" + maxMemorySize + ", directory=" + directory + ", maxDiskSize=" + maxDiskSize + '}';
+    }
+
+    private static class Entry {
+
+        private final int width;
+        private final int height;
+        private final int depth;
+        private final byte[] pixels;
+
+        private Entry(int width, int height, int depth, byte[] pixels) {
+            this.width = width;
+            this.height = height;
+            this.depth = depth;
+            this.pixels = pixels;
+        }
+    }
+
+    private static class FileKey {
+
+        private final long length;
+        private final long lastModified;
+        private final String hash;
+
+        private FileKey(long length, long lastModified, String hash) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+}
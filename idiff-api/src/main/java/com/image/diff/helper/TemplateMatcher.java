@@ -0,0 +1,206 @@
+package com.image.diff.helper;
+
+import com.googlecode.javacv.cpp.opencv_core.IplImage;
+import com.image.diff.core.MatchContainer;
+import com.image.diff.core.MatchContext;
+import com.image.diff.core.MatchResult;
+import static com.googlecode.javacv.cpp.opencv_core.*;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TemplateMatcher {
+
+    // scales of a multi scale search share the source only, so their cost adds up
+    public static final int MAX_SCALES = 16;
+
+    private static final int EXISTENCE_PYRAMID_LEVELS = 2;
+    private static final int EXISTENCE_CANDIDATES = 8;
+    private static final int SCALE_PRUNING_LEVELS = 2;
+
+    private Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ImageHelper imageHelper;
+    private final ExistenceMatcher existenceMatcher = new ExistenceMatcher();
+
+    public TemplateMatcher(ImageHelper imageHelper) {
+        Validate.notNull(imageHelper, "Image helper must not be null");
+        this.imageHelper = imageHelper;
+    }
+
+    public List<MatchResult> find(MatchSource source, IplImage templateImage, MatchContext context) {
+        return find(source, templateImage, context, context.getParallelism());
+    }
+
+    // callers matching templates in parallel pass 1, so thread pools are not nested
+    public List<MatchResult> find(MatchSource source, IplImage templateImage, MatchContext context, int parallelism) {
+        List<Double> scales = context.getScales();
+        if (scales.size() == 1 && scales.get(0) == 1) {
+            return findAtNativeScale(source, templateImage, context, parallelism);
+        }
+
+        return findAtScales(source, templateImage, context, scales, parallelism);
+    }
+
+    private List<MatchResult> findAtNativeScale(MatchSource source, IplImage templateImage, MatchContext context, int parallelism) {
+        if (source.getWidth() < templateImage.width() || source.getHeight() < templateImage.height()) {
+            // template can not be found in a smaller source
+            return Collections.emptyList();
+        }
+        if (context.isExistenceCheck() && templateImage.depth() == IPL_DEPTH_8U && templateImage.nChannels() == 1) {
+            return findFirst(source, templateImage, context);
+        }
+
+        // all matches are taken from the result map in one pass
+        ResultMap resultMap = computeResultMap(source, templateImage, context, parallelism);
+        try {
+            return resultMap.findPeaks(context.getMatchSimilarity(), context.getLimit());
+        } finally {
+            resultMap.release();
+        }
+    }
+
+    public ResultMap computeResultMap(MatchSource source, IplImage templateImage, MatchContext context) {
+        return computeResultMap(source, templateImage, context, context.getParallelism());
+    }
+
+    private ResultMap computeResultMap(MatchSource source, IplImage templateImage, MatchContext context, int parallelism) {
+        Validate.isTrue(source.getWidth() >= templateImage.width() && source.getHeight() >= templateImage.height(),
+            "Template must not be larger than the source");
+
+        MatchContainer container;
+        if (context.getPyramidLevels() > 0) {
+            container = imageHelper.computeResultImage(source, templateImage, context.getMatchMethod(),
+                context.getPyramidLevels(), context.getMatchSimilarity(), context.getLimit());
+        } else if (context.getRois().isEmpty() && context.getStripeHeight() > 0 && parallelism != 1) {
+            container = imageHelper.computeResultImage(source, templateImage, context.getMatchMethod(),
+                context.getStripeHeight(), parallelism, context.getMatchSimilarity());
+        } else if (context.getRois().isEmpty()) {
+            container = imageHelper.computeResultImage(source, templateImage, context.getMatchMethod(), context.getMatchEngine(),
+                context.getMatchSimilarity());
+        } else {
+            container = imageHelper.computeResultImage(source, templateImage, context.getMatchMethod(), context.getRois(),
+                context.getMatchEngine(), context.getMatchSimilarity());
+        }
+
+        return new ResultMap(imageHelper, container);
+    }
+
+    // every scale is matched by one thread, without stripes
+    private List<MatchResult> findAtScales(final MatchSource source, final IplImage templateImage, final MatchContext context,
+        List<Double> scales, int parallelism) {
+        List<MatchResult> matches = new ArrayList<MatchResult>();
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        if (threads == 1) {
+            for (Double scale : scales) {
+                matches.addAll(findAtScale(source, templateImage, context, scale));
+            }
+            return merge(matches, context.isExistenceCheck() ? 1 : context.getLimit());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, scales.size()));
+        try {
+            List<Future<List<MatchResult>>> futures = new ArrayList<Future<List<MatchResult>>>(scales.size());
+            for (final Double scale : scales) {
+                futures.add(executor.submit(new Callable<List<MatchResult>>() {
+                    @Override
+                    public List<MatchResult> call() {
+                        return findAtScale(source, templateImage, context, scale);
+                    }
+                }));
+            }
+            for (Future<List<MatchResult>> future : futures) {
+                matches.addAll(future.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Multi scale template matching was interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Multi scale template matching failed", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return merge(matches, context.isExistenceCheck() ? 1 : context.getLimit());
+    }
+
+    private List<MatchResult> findAtScale(MatchSource source, IplImage templateImage, MatchContext context, double scale) {
+        int width = (int) Math.round(templateImage.width() * scale);
+        int height = (int) Math.round(templateImage.height() * scale);
+        if (width < 1 || height < 1 || width > source.getWidth() || height > source.getHeight()) {
+            return Collections.emptyList();
+        }
+
+        IplImage scaledImage = scale == 1 ? templateImage : imageHelper.resize(templateImage, width, height);
+        try {
+            int levels = imageHelper.getPyramidLevels(scaledImage, context.getPyramidLevels() > 0 ? context.getPyramidLevels() : SCALE_PRUNING_LEVELS);
+            if (levels > 0
+                && imageHelper.findCandidates(source, scaledImage, context.getMatchMethod(), levels, context.getMatchSimilarity(), 1).isEmpty()) {
+                logger.debug("Scale {} pruned at pyramid level {}", scale, levels);
+                return Collections.emptyList();
+            }
+
+            List<MatchResult> matches = new ArrayList<MatchResult>();
+            for (MatchResult match : findAtNativeScale(source, scaledImage, context, 1)) {
+                matches.add(new MatchResult(match.getScore(), match.getX(), match.getY(), match.getWidth(), match.getHeight(),
+                    match.getMatchEngine(), scale));
+            }
+            return matches;
+        } finally {
+            if (scaledImage != templateImage) {
+                imageHelper.release(scaledImage);
+            }
+        }
+    }
+
+    List<MatchResult> merge(List<MatchResult> matches, int limit) {
+        // scores are similarities for every method, higher is better
+        Collections.sort(matches, new Comparator<MatchResult>() {
+            @Override
+            public int compare(MatchResult first, MatchResult second) {
+                return Double.compare(second.getScore(), first.getScore());
+            }
+        });
+
+        List<MatchResult> result = new ArrayList<MatchResult>();
+        for (MatchResult match : matches) {
+            if (result.size() == limit) {
+                break;
+            }
+            boolean overlapping = false;
+            for (MatchResult accepted : result) {
+                if (accepted.contains(match.getX() + match.getWidth() / 2, match.getY() + match.getHeight() / 2)
+                    || match.contains(accepted.getX() + accepted.getWidth() / 2, accepted.getY() + accepted.getHeight() / 2)) {
+                    overlapping = true;
+                    break;
+                }
+            }
+            if (!overlapping) {
+                result.add(match);
+            }
+        }
+        return result;
+    }
+
+    private List<MatchResult> findFirst(MatchSource source, IplImage templateImage, MatchContext context) {
+        int levels = imageHelper.getPyramidLevels(templateImage, context.getPyramidLevels() > 0 ? context.getPyramidLevels() : EXISTENCE_PYRAMID_LEVELS);
+        List<Point> seeds = levels > 0
+            ? imageHelper.findCandidates(source, templateImage, context.getMatchMethod(), levels, context.getMatchSimilarity(), EXISTENCE_CANDIDATES)
+            : Collections.<Point>emptyList();
+
+        MatchResult match = existenceMatcher.findFirst(source.getPixels(), source.getWidth(), source.getIntegralImage(),
+            imageHelper.getPixels(templateImage), templateImage.width(), templateImage.height(), context.getMatchMethod(),
+            context.getMatchSimilarity(), seeds, 1 << levels);
+        return match != null ? Collections.singletonList(match) : Collections.<MatchResult>emptyList();
+    }
+}
@@ -0,0 +1,109 @@
+package com.image.diff.helper;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.apache.commons.io.IOUtils;
+
+public class TiffEncoder implements ImageEncoder {
+
+    private static final int TYPE_SHORT = 3;
+    private static final int TYPE_LONG = 4;
+
+    private static final int TAG_IMAGE_WIDTH = 256;
+    private static final int TAG_IMAGE_LENGTH = 257;
+    private static final int TAG_BITS_PER_SAMPLE = 258;
+    private static final int TAG_COMPRESSION = 259;
+    private static final int TAG_PHOTOMETRIC_INTERPRETATION = 262;
+    private static final int TAG_STRIP_OFFSETS = 273;
+    private static final int TAG_SAMPLES_PER_PIXEL = 277;
+    private static final int TAG_ROWS_PER_STRIP = 278;
+    private static final int TAG_STRIP_BYTE_COUNTS = 279;
+    private static final int TAG_PLANAR_CONFIGURATION = 284;
+    private static final int TAG_EXTRA_SAMPLES = 338;
+
+    private static final int COMPRESSION_NONE = 1;
+    private static final int PHOTOMETRIC_BLACK_IS_ZERO = 1;
+    private static final int PHOTOMETRIC_RGB = 2;
+    private static final int PLANAR_CHUNKY = 1;
+    private static final int EXTRA_SAMPLES_UNASSOCIATED_ALPHA = 2;
+
+    @Override
+    public void write(BufferedImage image, File output) throws IOException {
+        ImageRows rows = new ImageRows(image);
+        int channels = rows.getChannels();
+        long stripSize = (long) rows.getRowSize() * rows.getHeight();
+        if (stripSize > 0xffffffffL - 1024) {
+            throw new IOException("Image is too large for TIFF: " + rows.getWidth() + "x" + rows.getHeight());
+        }
+
+        int entries = rows.hasAlpha() ? 11 : 10;
+        int ifdSize = 2 + entries * 12 + 4;
+        // bits per sample of more than two samples do not fit into the entry
+        int bitsPerSampleOffset = 8 + ifdSize;
+        int stripOffset = bitsPerSampleOffset + (channels > 2 ? channels * 2 : 0);
+
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(output), 64 * 1024));
+            out.writeShort(0x4d4d);
+            out.writeShort(42);
+            out.writeInt(8);
+
+            out.writeShort(entries);
+            writeEntry(out, TAG_IMAGE_WIDTH, TYPE_LONG, 1, rows.getWidth());
+            writeEntry(out, TAG_IMAGE_LENGTH, TYPE_LONG, 1, rows.getHeight());
+            if (channels > 2) {
+                writeEntry(out, TAG_BITS_PER_SAMPLE, TYPE_SHORT, channels, bitsPerSampleOffset);
+            } else {
+                writeShortEntry(out, TAG_BITS_PER_SAMPLE, 8);
+            }
+            writeShortEntry(out, TAG_COMPRESSION, COMPRESSION_NONE);
+            writeShortEntry(out, TAG_PHOTOMETRIC_INTERPRETATION, rows.isGray() ? PHOTOMETRIC_BLACK_IS_ZERO : PHOTOMETRIC_RGB);
+            writeEntry(out, TAG_STRIP_OFFSETS, TYPE_LONG, 1, stripOffset);
+            writeShortEntry(out, TAG_SAMPLES_PER_PIXEL, channels);
+            writeEntry(out, TAG_ROWS_PER_STRIP, TYPE_LONG, 1, rows.getHeight());
+            writeEntry(out, TAG_STRIP_BYTE_COUNTS, TYPE_LONG, 1, (int) stripSize);
+            writeShortEntry(out, TAG_PLANAR_CONFIGURATION, PLANAR_CHUNKY);
+            if (rows.hasAlpha()) {
+                writeShortEntry(out, TAG_EXTRA_SAMPLES, EXTRA_SAMPLES_UNASSOCIATED_ALPHA);
+            }
+            // no next IFD
+            out.writeInt(0);
+
+            if (channels > 2) {
+                for (int i = 0; i < channels; i++) {
+                    out.writeShort(8);
+                }
+            }
+
+            byte[] row = new byte[rows.getRowSize()];
+            for (int y = 0; y < rows.getHeight(); y++) {
+                rows.readRow(y, row);
+                out.write(row);
+            }
+            out.close();
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    private void writeEntry(DataOutputStream out, int tag, int type, int count, int value) throws IOException {
+        out.writeShort(tag);
+        out.writeShort(type);
+        out.writeInt(count);
+        out.writeInt(value);
+    }
+
+    // single short value is left aligned in the value field
+    private void writeShortEntry(DataOutputStream out, int tag, int value) throws IOException {
+        out.writeShort(tag);
+        out.writeShort(TYPE_SHORT);
+        out.writeInt(1);
+        out.writeShort(value);
+        out.writeShort(0);
+    }
+}
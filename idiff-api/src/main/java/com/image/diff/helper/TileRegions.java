@@ -0,0 +1,213 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.RegionTable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public class TileRegions {
+
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+    private final RegionLabeler labeler = new RegionLabeler();
+    private final RegionTable regions = new RegionTable();
+    // provisional labels of the border pixels, replaced by region index + 1 (0 for background) on end()
+    private final int[] left;
+    private final int[] right;
+    private final int[] top;
+    private final int[] bottom;
+    private int row;
+
+    public TileRegions(int x, int y, int width, int height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.left = new int[height];
+        this.right = new int[height];
+        this.top = new int[width];
+        this.bottom = new int[width];
+        labeler.begin(width);
+    }
+
+    public void addRow(byte[] values, int offset) {
+        labeler.addRow(values, offset);
+
+        left[row] = labeler.getRowLabel(0);
+        right[row] = labeler.getRowLabel(width - 1);
+        if (row == 0 || row == height - 1) {
+            int[] labels = row == 0 ? top : bottom;
+            for (int i = 0; i < width; i++) {
+                labels[i] = labeler.getRowLabel(i);
+            }
+        }
+        row++;
+    }
+
+    public void end() {
+        labeler.end(regions);
+
+        // provisional labels are resolved once the whole tile is labelled
+        toRegions(left);
+        toRegions(right);
+        toRegions(top);
+        toRegions(bottom);
+    }
+
+    public RegionTable getRegions() {
+        return regions;
+    }
+
+    private void toRegions(int[] labels) {
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = labeler.regionOf(labels[i]) + 1;
+        }
+    }
+
+    private int borderRegion(int tileX, int tileY) {
+        if (tileX == 0) {
+            return left[tileY] - 1;
+        }
+        if (tileX == width - 1) {
+            return right[tileY] - 1;
+        }
+        if (tileY == 0) {
+            return top[tileX] - 1;
+        }
+        return bottom[tileX] - 1;
+    }
+
+    public static RegionTable stitch(List<TileRegions> tiles, int width, int height, int columns, int tileSize, RegionTable regions) {
+        int[] base = new int[tiles.size() + 1];
+        for (int tile = 0; tile < tiles.size(); tile++) {
+            base[tile + 1] = base[tile] + tiles.get(tile).regions.size();
+        }
+        int count = base[tiles.size()];
+
+        // region statistics in image coordinates, plus union-find parents
+        int[] parent = new int[count];
+        int[] minX = new int[count];
+        int[] minY = new int[count];
+        int[] maxX = new int[count];
+        int[] maxY = new int[count];
+        int[] pixels = new int[count];
+        int[] startX = new int[count];
+        for (int tile = 0; tile < tiles.size(); tile++) {
+            TileRegions tileRegions = tiles.get(tile);
+            RegionTable table = tileRegions.regions;
+            for (int i = 0; i < table.size(); i++) {
+                int region = base[tile] + i;
+                parent[region] = region;
+                minX[region] = tileRegions.x + table.getX(i);
+                minY[region] = tileRegions.y + table.getY(i);
+                maxX[region] = minX[region] + table.getWidth(i);
+                maxY[region] = minY[region] + table.getHeight(i);
+                pixels[region] = table.getPixels(i);
+                startX[region] = tileRegions.x + table.getStartX(i);
+            }
+        }
+
+        // vertical seams
+        for (int seamX = tileSize; seamX < width; seamX += tileSize) {
+            for (int y = 0; y < height; y++) {
+                int left = borderRegion(tiles, base, columns, tileSize, seamX - 1, y);
+                if (left < 0) {
+                    continue;
+                }
+                for (int neighbourY = Math.max(y - 1, 0); neighbourY <= Math.min(y + 1, height - 1); neighbourY++) {
+                    int right = borderRegion(tiles, base, columns, tileSize, seamX, neighbourY);
+                    if (right >= 0) {
+                        join(parent, minY, startX, left, right);
+                    }
+                }
+            }
+        }
+
+        // horizontal seams
+        for (int seamY = tileSize; seamY < height; seamY += tileSize) {
+            for (int x = 0; x < width; x++) {
+                int top = borderRegion(tiles, base, columns, tileSize, x, seamY - 1);
+                if (top < 0) {
+                    continue;
+                }
+                for (int neighbourX = Math.max(x - 1, 0); neighbourX <= Math.min(x + 1, width - 1); neighbourX++) {
+                    int bottom = borderRegion(tiles, base, columns, tileSize, neighbourX, seamY);
+                    if (bottom >= 0) {
+                        join(parent, minY, startX, top, bottom);
+                    }
+                }
+            }
+        }
+
+        // merge statistics into roots
+        List<Integer> roots = new ArrayList<Integer>();
+        for (int i = 0; i < count; i++) {
+            int root = find(parent, i);
+            if (root == i) {
+                roots.add(i);
+                continue;
+            }
+            minX[root] = Math.min(minX[root], minX[i]);
+            minY[root] = Math.min(minY[root], minY[i]);
+            maxX[root] = Math.max(maxX[root], maxX[i]);
+            maxY[root] = Math.max(maxY[root], maxY[i]);
+            pixels[root] += pixels[i];
+        }
+
+        // roots keep the first pixel of their region, so this is the raster order of the whole image labelling
+        final int[] firstY = minY;
+        final int[] firstX = startX;
+        Collections.sort(roots, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer r1, Integer r2) {
+                return compareRasterOrder(firstY, firstX, r1, r2);
+            }
+        });
+
+        regions.clear();
+        for (int root : roots) {
+            regions.add(minX[root], minY[root], maxX[root] - minX[root], maxY[root] - minY[root], pixels[root], startX[root]);
+        }
+
+        return regions;
+    }
+
+    private static int borderRegion(List<TileRegions> tiles, int[] base, int columns, int tileSize, int x, int y) {
+        int tile = (y / tileSize) * columns + x / tileSize;
+        int region = tiles.get(tile).borderRegion(x % tileSize, y % tileSize);
+        return region < 0 ? -1 : base[tile] + region;
+    }
+
+    private static void join(int[] parent, int[] firstY, int[] firstX, int region, int other) {
+        int root = find(parent, region);
+        int otherRoot = find(parent, other);
+        if (root == otherRoot) {
+            return;
+        }
+
+        // the region starting first stays the root
+        if (compareRasterOrder(firstY, firstX, root, otherRoot) < 0) {
+            parent[otherRoot] = root;
+        } else {
+            parent[root] = otherRoot;
+        }
+    }
+
+    private static int compareRasterOrder(int[] firstY, int[] firstX, int region, int other) {
+        if (firstY[region] != firstY[other]) {
+            return firstY[region] < firstY[other] ? -1 : 1;
+        }
+        return firstX[region] < firstX[other] ? -1 : (firstX[region] == firstX[other] ? 0 : 1);
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+}
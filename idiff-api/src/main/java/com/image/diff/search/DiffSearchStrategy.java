@@ -1,17 +1,31 @@
 package com.image.diff.search;
 
+import com.image.diff.core.BaselineIndex;
+import com.image.diff.core.DecodedImage;
+import com.image.diff.core.DiffEngine;
+import com.image.diff.core.GrayRaster;
 import com.image.diff.core.Match;
 import com.image.diff.core.MatchContext;
 import com.image.diff.core.MatchResult;
+import com.image.diff.core.RegionTable;
+import com.image.diff.core.ResultArtifacts;
 import com.image.diff.core.Roi;
+import com.image.diff.core.RoiIndex;
+import com.image.diff.helper.BaselineIndexHelper;
+import com.image.diff.helper.DecoderHelper;
 import com.image.diff.helper.ImageHelper;
+import com.image.diff.helper.RasterCache;
+import com.image.diff.helper.RasterHelper;
 import static com.googlecode.javacv.cpp.opencv_core.*;
-import static com.googlecode.javacv.cpp.opencv_imgproc.*;
+import com.image.diff.helper.EncoderHelper;
 import com.image.diff.helper.HighlightHelper;
 import com.image.diff.ui.DiffResultWindow;
 import com.image.diff.visual.HighlightElement;
 import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -26,82 +40,207 @@ public class DiffSearchStrategy implements SearchStrategy {
     private Logger logger = LoggerFactory.getLogger(getClass());
     private MatchContext context;
     private ImageHelper imageHelper;
+    private RasterHelper rasterHelper;
+    private BaselineIndexHelper baselineIndexHelper;
+    private RasterCache rasterCache;
     private HighlightHelper highlightHelper;
+    private DecoderHelper decoderHelper;
+    // highlights waiting to be written, drawn on the decoded images in memory
+    private final List<HighlightElement> sourceElements = new ArrayList<HighlightElement>();
+    private final List<HighlightElement> resultElements = new ArrayList<HighlightElement>();
 
     private DiffSearchStrategy() {
     }
 
     @Override
     public List<Match> find() {
-        final List<Match> matchResults = new ArrayList<Match>();
-        IplImage firstImage = imageHelper.createGrayImageFrom(context.getBufferedImage1());
-        IplImage secondImage = imageHelper.createGrayImageFrom(context.getBufferedImage2());
-        IplImage diffImage = IplImage.createCompatible(firstImage);
+        if (context.getBandHeight() > 0) {
+            // images are too large to be decoded, so they are only streamed
+            return createMatchResults(rasterHelper.findDifferenceRegions(context.getImage1(), context.getImage2(),
+                context.getBandHeight(), context.getRois()));
+        }
 
-        // compute difference
-        cvAbsDiff(firstImage, secondImage, diffImage);
+        if (rasterCache != null) {
+            // cached rasters are mapped, images are not decoded at all
+            GrayRaster firstRaster = rasterCache.getGray(context.getImage1());
+            GrayRaster secondRaster = rasterCache.getGray(context.getImage2());
+            RoiIndex roiIndex = null;
+            if (!context.getRois().isEmpty()) {
+                roiIndex = new RoiIndex(context.getRois(), firstRaster.getWidth(), firstRaster.getHeight());
+            }
+            return createMatchResults(rasterHelper.findDifferenceRegions(firstRaster, secondRaster, roiIndex));
+        }
 
-        // do some threshold for wipe away useless details
-        cvThreshold(diffImage, diffImage, 0, 255, CV_THRESH_BINARY);
+        if (context.getResultArtifacts() == ResultArtifacts.NONE && !context.isBaselineIndex() && !context.isCoarseToFine()) {
+            // no result image is drawn on the color images, so they are decoded straight to gray
+            return findDifferencesOfGrayImages();
+        }
 
-        List<CvRect> foundRects = imageHelper.findBoundingRectangles(diffImage);
+        // coarse to fine diff compares raw pixels and baseline index hashes candidate rows, both read decoded
+        // color images. With baseline index the first image is not decoded, so the identical check would be more
+        // expensive
+        BaselineIndex baselineIndex = null;
+        if (context.isBaselineIndex()) {
+            baselineIndex = baselineIndexHelper.getIndex(context.getImage1());
+        } else if (isIdentical()) {
+            logger.debug("Images are identical, no differences to search for");
+            return Collections.emptyList();
+        }
 
-        for (CvRect foundRect : foundRects) {
-            // keep only rectangles with at least certain size
-            if (foundRect.width() < 5 && foundRect.height() < 5) {
-                continue;
+        RoiIndex roiIndex = null;
+        if (!context.getRois().isEmpty()) {
+            BufferedImage image = context.getBufferedImage2();
+            roiIndex = new RoiIndex(context.getRois(), image.getWidth(), image.getHeight());
+            if (roiIndex.isEmpty()) {
+                logger.debug("No ROI lies inside of the images, no differences to search for");
+                return Collections.emptyList();
             }
-            if (matchResults.size() >= context.getLimit()) {
-                break;
+        }
+
+        RegionTable foundRegions;
+        if (baselineIndex != null) {
+            foundRegions = rasterHelper.findDifferenceRegions(baselineIndex, context.getBufferedImage2(), roiIndex);
+        } else if (context.getDiffEngine() == DiffEngine.RASTER) {
+            if (context.isCoarseToFine()) {
+                foundRegions = rasterHelper.findDifferenceRegionsCoarseToFine(context.getBufferedImage1(), context.getBufferedImage2(), roiIndex);
+            } else if (roiIndex != null) {
+                foundRegions = rasterHelper.findDifferenceRegions(context.getBufferedImage1(), context.getBufferedImage2(), roiIndex);
+            } else {
+                foundRegions = rasterHelper.findDifferenceRegions(context.getBufferedImage1(), context.getBufferedImage2());
             }
+        } else {
+            foundRegions = findDifferenceRegionsWithOpenCv(roiIndex);
+        }
 
-            // count the number of diff pixels in the rectangle
-            cvSetImageROI(diffImage, foundRect);
-            int numberNonZeroPixels = cvCountNonZero(diffImage);
-            cvResetImageROI(diffImage);
+        return createMatchResults(foundRegions);
+    }
 
-            // compute the score as the ratio of diff pixels to area
-            double score = 1.0 * numberNonZeroPixels / (foundRect.width() * foundRect.height());
+    private List<Match> findDifferencesOfGrayImages() {
+        if (isIdentical()) {
+            logger.debug("Images are identical, no differences to search for");
+            return Collections.emptyList();
+        }
+        DecodedImage firstImage = decoderHelper.decodeGray(context.getImage1());
+        DecodedImage secondImage = decoderHelper.decodeGray(context.getImage2());
+        Validate.isTrue(firstImage.getWidth() == secondImage.getWidth() && firstImage.getHeight() == secondImage.getHeight(),
+            "Images should have the same size");
+
+        RoiIndex roiIndex = null;
+        if (!context.getRois().isEmpty()) {
+            roiIndex = new RoiIndex(context.getRois(), firstImage.getWidth(), firstImage.getHeight());
+            if (roiIndex.isEmpty()) {
+                logger.debug("No ROI lies inside of the images, no differences to search for");
+                return Collections.emptyList();
+            }
+        }
 
-            if (Double.compare(score, context.getMatchSimilarity()) < 0) {
-                boolean matched;
-                if (context.getRois().isEmpty()) {
-                    matched = true;
-                } else {
-                    // only if difference located inside of ROI
-                    matched = intersect(new Roi(foundRect.x(), foundRect.y(), foundRect.width(), foundRect.height()), context.getRois());
-                }
+        if (context.getDiffEngine() == DiffEngine.RASTER) {
+            GrayRaster firstRaster = new GrayRaster(firstImage.getWidth(), firstImage.getHeight(), ByteBuffer.wrap(firstImage.getPixels()));
+            GrayRaster secondRaster = new GrayRaster(secondImage.getWidth(), secondImage.getHeight(), ByteBuffer.wrap(secondImage.getPixels()));
+            return createMatchResults(rasterHelper.findDifferenceRegions(firstRaster, secondRaster, roiIndex));
+        }
 
-                if (matched) {
-                    matchResults.add(new MatchResult(score, foundRect.x(), foundRect.y(), foundRect.width(), foundRect.height()));
-                }
-            }
+        IplImage firstGrayImage = null;
+        IplImage secondGrayImage = null;
+        try {
+            firstGrayImage = imageHelper.createGrayImageFrom(firstImage);
+            secondGrayImage = imageHelper.createGrayImageFrom(secondImage);
+            return createMatchResults(findDifferenceRegionsWithOpenCv(firstGrayImage, secondGrayImage, roiIndex));
+        } finally {
+            releaseQuietly(firstGrayImage);
+            releaseQuietly(secondGrayImage);
         }
+    }
 
-        // Release all resources
-        cvReleaseImage(firstImage);
-        cvReleaseImage(secondImage);
-        cvReleaseImage(diffImage);
+    private List<Match> createMatchResults(RegionTable foundRegions) {
+        final List<Match> matchResults = new ArrayList<Match>();
+        for (int i = 0; i < foundRegions.size(); i++) {
+            // keep only regions with at least certain size
+            if (foundRegions.getWidth(i) < 5 && foundRegions.getHeight(i) < 5) {
+                continue;
+            }
+            if (matchResults.size() >= context.getLimit()) {
+                break;
+            }
+
+            addMatchIfDiffers(matchResults, foundRegions, i);
+        }
 
         return Collections.unmodifiableList(matchResults);
     }
 
-    private boolean intersect(Roi roi, List<Roi> rois) {
-        if (rois.isEmpty()) {
-            return true;
+    private boolean isIdentical() {
+        // compares the files, so identical images are never decoded for the search
+        return rasterHelper.isIdentical(context.getImage1(), context.getImage2(), decoderHelper);
+    }
+
+    private RegionTable findDifferenceRegionsWithOpenCv(RoiIndex roiIndex) {
+        IplImage firstImage = null;
+        IplImage secondImage = null;
+        try {
+            firstImage = imageHelper.createGrayImageFrom(context.getBufferedImage1());
+            secondImage = imageHelper.createGrayImageFrom(context.getBufferedImage2());
+            return findDifferenceRegionsWithOpenCv(firstImage, secondImage, roiIndex);
+        } finally {
+            releaseQuietly(firstImage);
+            releaseQuietly(secondImage);
         }
+    }
 
-        boolean isIntersect = false;
-        for (Roi r : rois) {
-            Roi intersection = roi.intersection(r);
+    private RegionTable findDifferenceRegionsWithOpenCv(IplImage firstImage, IplImage secondImage, RoiIndex roiIndex) {
+        // a table of each call, so regions of an earlier search are never overwritten
+        RegionTable regions = new RegionTable();
+        IplImage diffImage = null;
+        IplImage maskImage = null;
+        try {
+            Roi bounds = null;
+            if (roiIndex != null) {
+                // diff only the bounding box of ROIs, the mask wipes away pixels between them
+                bounds = roiIndex.getBounds();
+                CvRect rect = cvRect(bounds.getX(), bounds.getY(), bounds.getWidth(), bounds.getHeight());
+                cvSetImageROI(firstImage, rect);
+                cvSetImageROI(secondImage, rect);
+                diffImage = imageHelper.createImage(bounds.getWidth(), bounds.getHeight(), firstImage.depth(), 1);
+                maskImage = imageHelper.createRoiMaskImage(roiIndex);
+            } else {
+                diffImage = imageHelper.createImage(firstImage.width(), firstImage.height(), firstImage.depth(), 1);
+            }
 
-            if (intersection.getWidth() > 0 && intersection.getHeight() > 0) {
-                isIntersect = true;
-                break;
+            if (context.getTileSize() > 0) {
+                imageHelper.findDifferenceRegions(firstImage, secondImage, diffImage, maskImage, regions, context.getTileSize(), context.getParallelism());
+            } else {
+                imageHelper.findDifferenceRegions(firstImage, secondImage, diffImage, maskImage, regions);
+            }
+            if (bounds != null) {
+                regions.translate(bounds.getX(), bounds.getY());
             }
+        } finally {
+            // give all images back to the pool
+            releaseQuietly(diffImage);
+            releaseQuietly(maskImage);
         }
 
-        return isIntersect;
+        return regions;
+    }
+
+    private void releaseQuietly(IplImage image) {
+        if (image != null) {
+            imageHelper.release(image);
+        }
+    }
+
+    private void addMatchIfDiffers(List<Match> matchResults, RegionTable foundRegions, int region) {
+        int x = foundRegions.getX(region);
+        int y = foundRegions.getY(region);
+        int width = foundRegions.getWidth(region);
+        int height = foundRegions.getHeight(region);
+        // the score is the ratio of diff pixels to area
+        double score = foundRegions.getScore(region);
+
+        // regions are found only inside of ROIs, if any, so no intersection check is needed
+        if (Double.compare(score, context.getMatchSimilarity()) < 0) {
+            matchResults.add(new MatchResult(score, x, y, width, height));
+        }
     }
 
     @Override
@@ -118,26 +257,22 @@ public class DiffSearchStrategy implements SearchStrategy {
     @Override
     public void highlightRois() {
         for (Roi r : context.getRois()) {
-            try {
-                highlightElementOnSourceImage(new HighlightElement.Builder().
-                    x(r.getX()).
-                    y(r.getY()).
-                    width(r.getWidth()).
-                    height(r.getHeight()).
-                    borderColor(Color.GREEN).
-                    areaColor(new Color(245, 255, 255, 255 * 50 / 100)).
-                    build());
-
-                highlightElementOnResultImage(new HighlightElement.Builder().
-                    x(r.getX()).
-                    y(r.getY()).
-                    width(r.getWidth()).
-                    height(r.getHeight()).
-                    areaColor(new Color(245, 255, 255, 255 * 50 / 100)).
-                    build());
-            } catch (IOException ex) {
-                logger.error("Can't highlight area", ex);
-            }
+            sourceElements.add(new HighlightElement.Builder().
+                x(r.getX()).
+                y(r.getY()).
+                width(r.getWidth()).
+                height(r.getHeight()).
+                borderColor(Color.GREEN).
+                areaColor(new Color(245, 255, 255, 255 * 50 / 100)).
+                build());
+
+            resultElements.add(new HighlightElement.Builder().
+                x(r.getX()).
+                y(r.getY()).
+                width(r.getWidth()).
+                height(r.getHeight()).
+                areaColor(new Color(245, 255, 255, 255 * 50 / 100)).
+                build());
         }
     }
 
@@ -153,40 +288,53 @@ public class DiffSearchStrategy implements SearchStrategy {
             int y = match.getY();
             int width = match.getWidth();
             int height = match.getHeight();
-            double score = match.getScore();
             String text = highlightHelper.getHighlightElementText(match);
 
-            try {
-                highlightElementOnSourceImage(new HighlightElement.Builder().
-                    x(x).
-                    y(y).
-                    width(width).
-                    height(height).
-                    borderColor(Color.GREEN).
-                    areaColor(new Color(0, 255, 0, 255 * 50 / 100)).
-                    build()
-                );
-
-                highlightElementOnResultImage(new HighlightElement.Builder().
-                    x(x).
-                    y(y).
-                    width(width).
-                    height(height).
-                    text(text).
-                    build()
-                );
-            } catch (IOException ex) {
-                logger.error("Can't highlight element", ex);
-            }
+            sourceElements.add(new HighlightElement.Builder().
+                x(x).
+                y(y).
+                width(width).
+                height(height).
+                borderColor(Color.GREEN).
+                areaColor(new Color(0, 255, 0, 255 * 50 / 100)).
+                build()
+            );
+
+            resultElements.add(new HighlightElement.Builder().
+                x(x).
+                y(y).
+                width(width).
+                height(height).
+                text(text).
+                build()
+            );
         }
     }
 
-    private void highlightElementOnSourceImage(HighlightElement element) throws IOException {
-        highlightHelper.highlightElement(context.getResultSourceImage(), element);
+    @Override
+    public void writeResultImages() {
+        try {
+            // without highlights the input image of the result format is the result, so it is only copied
+            if (sourceElements.isEmpty() && hasResultFormat(context.getImage1())) {
+                FileUtils.copyFile(context.getImage1(), context.getResultSourceImage());
+            } else {
+                highlightHelper.writeHighlightedImage(context.getBufferedImage1(), sourceElements, context.getResultSourceImage());
+            }
+            if (resultElements.isEmpty() && hasResultFormat(context.getImage2())) {
+                FileUtils.copyFile(context.getImage2(), context.getResultImage());
+            } else {
+                highlightHelper.writeHighlightedImage(context.getBufferedImage2(), resultElements, context.getResultImage());
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not write result image file: " + context.getResultImage().getAbsolutePath(), ex);
+        } finally {
+            sourceElements.clear();
+            resultElements.clear();
+        }
     }
 
-    private void highlightElementOnResultImage(HighlightElement element) throws IOException {
-        highlightHelper.highlightElement(context.getResultImage(), element);
+    private boolean hasResultFormat(File image) {
+        return context.getResultFormat().isFormatOf(decoderHelper.readHeader(image).getFormatName());
     }
 
     public static class Builder {
@@ -195,7 +343,11 @@ public class DiffSearchStrategy implements SearchStrategy {
 
         private final MatchContext context;
         private ImageHelper imageHelper;
+        private RasterHelper rasterHelper;
+        private BaselineIndexHelper baselineIndexHelper;
+        private RasterCache rasterCache;
         private HighlightHelper highlightHelper;
+        private DecoderHelper decoderHelper;
 
         public Builder(MatchContext context) {
             Validate.notNull(context, "Context must not be null");
@@ -207,40 +359,67 @@ public class DiffSearchStrategy implements SearchStrategy {
             return this;
         }
 
+        public Builder rasterHelper(RasterHelper rasterHelper) {
+            this.rasterHelper = rasterHelper;
+            return this;
+        }
+
+        public Builder baselineIndexHelper(BaselineIndexHelper baselineIndexHelper) {
+            this.baselineIndexHelper = baselineIndexHelper;
+            return this;
+        }
+
+        public Builder rasterCache(RasterCache rasterCache) {
+            this.rasterCache = rasterCache;
+            return this;
+        }
+
         public Builder highlightHelper(HighlightHelper highlightHelper) {
             this.highlightHelper = highlightHelper;
             return this;
         }
 
-        public DiffSearchStrategy build() {
-            // post init
-            postInitContext();
+        public Builder decoderHelper(DecoderHelper decoderHelper) {
+            this.decoderHelper = decoderHelper;
+            return this;
+        }
 
+        public DiffSearchStrategy build() {
             DiffSearchStrategy instance = new DiffSearchStrategy();
 
             if (imageHelper == null) {
                 logger.debug("Default instance will be used as image helper");
                 imageHelper = new ImageHelper();
             }
+            if (rasterHelper == null) {
+                logger.debug("Default instance will be used as raster helper");
+                rasterHelper = new RasterHelper();
+            }
+            if (baselineIndexHelper == null) {
+                logger.debug("Default instance will be used as baseline index helper");
+                baselineIndexHelper = new BaselineIndexHelper();
+            }
+            if (rasterCache == null && context.getRasterCacheDirectory() != null) {
+                logger.debug("Default instance will be used as raster cache");
+                rasterCache = new RasterCache(context.getRasterCacheDirectory(), context.getRasterCacheSize());
+            }
             if (highlightHelper == null) {
                 logger.debug("Default instance will be used as highlight helper");
-                highlightHelper = new HighlightHelper();
+                highlightHelper = new HighlightHelper(new EncoderHelper().createEncoder(context));
+            }
+            if (decoderHelper == null) {
+                logger.debug("Default instance will be used as decoder helper");
+                decoderHelper = new DecoderHelper();
             }
             instance.context = context;
             instance.imageHelper = imageHelper;
+            instance.rasterHelper = rasterHelper;
+            instance.baselineIndexHelper = baselineIndexHelper;
+            instance.rasterCache = rasterCache;
             instance.highlightHelper = highlightHelper;
+            instance.decoderHelper = decoderHelper;
 
             return instance;
         }
-
-        private void postInitContext() {
-            // copy content from images to result images to show it in final UI frame, if needed
-            try {
-                FileUtils.copyFile(context.getImage2(), context.getResultImage());
-                FileUtils.copyFile(context.getImage1(), context.getResultSourceImage());
-            } catch (IOException ex) {
-                throw new IllegalStateException("Could not initialize result image file: " + context.getResultImage().getAbsolutePath(), ex);
-            }
-        }
     }
 }
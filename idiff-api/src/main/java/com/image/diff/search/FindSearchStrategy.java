@@ -1,25 +1,25 @@
 package com.image.diff.search;
 
+import com.image.diff.core.DecodedImage;
 import com.image.diff.core.Match;
-import com.image.diff.core.MatchContainer;
 import com.image.diff.core.MatchContext;
-import com.image.diff.core.TemplateMatchMethod;
-import com.image.diff.core.MatchResult;
+import com.image.diff.core.PixelFormat;
+import com.image.diff.core.ResultArtifacts;
+import com.image.diff.helper.DecoderHelper;
 import com.image.diff.helper.ImageHelper;
-import static com.googlecode.javacv.cpp.opencv_core.CV_FILLED;
-import com.googlecode.javacv.cpp.opencv_core.CvPoint;
+import com.image.diff.helper.MatchSource;
+import com.image.diff.helper.ResultMap;
 import com.googlecode.javacv.cpp.opencv_core.IplImage;
-import static com.googlecode.javacv.cpp.opencv_core.cvMinMaxLoc;
-import static com.googlecode.javacv.cpp.opencv_core.cvPoint;
-import static com.googlecode.javacv.cpp.opencv_core.cvRealScalar;
-import static com.googlecode.javacv.cpp.opencv_core.cvRectangle;
-import static com.googlecode.javacv.cpp.opencv_core.cvReleaseImage;
 import com.image.diff.core.Roi;
+import com.image.diff.helper.EncoderHelper;
 import com.image.diff.helper.HighlightHelper;
+import com.image.diff.helper.TemplateCache;
+import com.image.diff.helper.TemplateMatcher;
 import com.image.diff.ui.FindResultWindow;
 import com.image.diff.visual.HighlightElement;
 import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -36,106 +36,91 @@ public class FindSearchStrategy implements SearchStrategy {
     private MatchContext context;
     private ImageHelper imageHelper;
     private HighlightHelper highlightHelper;
+    private TemplateMatcher templateMatcher;
+    private TemplateCache templateCache;
+    private DecoderHelper decoderHelper;
+    private byte[] grayBuffer;
+    // color source decoded once for matching, kept for highlighting
+    private DecodedImage sourceColor;
+    // highlights waiting to be written, drawn on the decoded source image in memory
+    private final List<HighlightElement> resultElements = new ArrayList<HighlightElement>();
 
     private FindSearchStrategy() {
     }
 
     @Override
     public List<Match> find() {
-        BufferedImage sourceBufferedImage = context.getBufferedImage1();
-        BufferedImage templateBufferedImage = context.getBufferedImage2();
-
-        if (sourceBufferedImage.getWidth() < templateBufferedImage.getWidth() || sourceBufferedImage.getHeight() < templateBufferedImage.getHeight()) {
-            // if source image is smaller than the target, no target can be found
-            logger.warn("Source image is smaller than the target, no target can be found.");
-            return Collections.EMPTY_LIST;
-        }
-
         final List<Match> matchResults = new ArrayList<Match>();
-        IplImage sourceImage = imageHelper.createGrayImageFrom(sourceBufferedImage);
-        IplImage templateImage = imageHelper.createGrayImageFrom(templateBufferedImage);
-
-        MatchContainer container;
-        if (context.getRois().isEmpty()) {
-            container = imageHelper.computeResultImage(sourceImage, templateImage, context.getMatchMethod());
-        } else {
-            container = imageHelper.computeResultImage(sourceImage, templateImage, context.getMatchMethod(), context.getRois());
-        }
-
-        MatchResult prev = null;
-        double score = 1.0D;
-        while (Double.compare(score, context.getMatchSimilarity()) > 0) {
-            MatchResult result = fetchNextBestMatch(container);
-            if (prev != null) {
-                // avoid looping
-                if (result.equals(prev)) {
-                    break;
-                }
-            }
-            if (matchResults.size() >= context.getLimit()) {
-                break;
+        IplImage sourceImage = null;
+        IplImage templateImage = null;
+        MatchSource source = null;
+        try {
+            sourceImage = createSourceImage(context.getImage1());
+            // cached template is not decoded at all
+            templateImage = templateCache != null
+                ? templateCache.getGrayImage(context.getImage2())
+                : createGrayImage(context.getImage2());
+            source = new MatchSource(sourceImage, imageHelper.getImagePool());
+            if (sourceImage.width() < templateImage.width() || sourceImage.height() < templateImage.height()) {
+                // if source image is smaller than the target, no target can be found
+                logger.warn("Source image is smaller than the target, no target can be found.");
+                return Collections.EMPTY_LIST;
             }
 
-            score = result.getScore();
-            if (Double.compare(score, context.getMatchSimilarity()) > 0) {
-                matchResults.add(result);
+            matchResults.addAll(templateMatcher.find(source, templateImage, context));
+        } finally {
+            // give all images back to the pool
+            if (source != null) {
+                source.release();
             }
-            prev = result;
+            releaseQuietly(sourceImage);
+            releaseQuietly(templateImage);
         }
 
-        // Release all resources
-        cvReleaseImage(container.getSourceImage());
-        cvReleaseImage(container.getTemplateImage());
-        cvReleaseImage(container.getResultImage());
-
         return Collections.unmodifiableList(matchResults);
     }
 
-    private MatchResult fetchNextBestMatch(final MatchContainer resultContainer) {
-        MatchResult result;
-        double minValue[] = new double[2];
-        double maxValue[] = new double[2];
-        CvPoint minPoint = new CvPoint();
-        CvPoint maxPoint = new CvPoint();
-
-        IplImage sourceImage = resultContainer.getSourceImage();
-        IplImage templateImage = resultContainer.getTemplateImage();
-        IplImage resultImage = resultContainer.getResultImage();
-        TemplateMatchMethod matchMethod = resultContainer.getMatchMethod();
-        CvPoint minMaxMatchLocation;
-        double minMaxScore;
-
-        cvMinMaxLoc(resultImage, minValue, maxValue, minPoint, maxPoint, null);
-
-        if (matchMethod == TemplateMatchMethod.CV_TM_SQDIFF_NORMED) {
-            minMaxMatchLocation = minPoint;
-            minMaxScore = 1 - minValue[0];
-        } else {
-            minMaxMatchLocation = maxPoint;
-            minMaxScore = maxValue[0];
+    // to be released by the caller
+    public ResultMap computeResultMap() {
+        IplImage sourceImage = null;
+        IplImage templateImage = null;
+        MatchSource source = null;
+        try {
+            sourceImage = createGrayImage(context.getImage1());
+            templateImage = templateCache != null
+                ? templateCache.getGrayImage(context.getImage2())
+                : createGrayImage(context.getImage2());
+            source = new MatchSource(sourceImage, imageHelper.getImagePool());
+            // the result map does not refer to the source and template images
+            return templateMatcher.computeResultMap(source, templateImage, context);
+        } finally {
+            if (source != null) {
+                source.release();
+            }
+            releaseQuietly(sourceImage);
+            releaseQuietly(templateImage);
         }
+    }
 
-        int x = minMaxMatchLocation.x();
-        int y = minMaxMatchLocation.y();
-        int width = templateImage.width();
-        int height = templateImage.height();
-
-        // Suppress returned match
-        int xmargin = width / 3;
-        int ymargin = height / 3;
-
-        int x0 = Math.max(x - xmargin, 0);
-        int y0 = Math.max(y - ymargin, 0);
-        // no need to blank right and bottom
-        int x1 = Math.min(x + xmargin, resultImage.width());
-        int y1 = Math.min(y + ymargin, resultImage.height());
-
-        cvRectangle(resultImage, cvPoint(x0, y0), cvPoint(x1 - 1, y1 - 1),
-            cvRealScalar(0.0), CV_FILLED, 8, 0);
+    private void releaseQuietly(IplImage image) {
+        if (image != null) {
+            imageHelper.release(image);
+        }
+    }
 
-        result = new MatchResult(minMaxScore, x, y, width, height);
+    private IplImage createSourceImage(File image) {
+        if (context.getResultArtifacts() == ResultArtifacts.NONE) {
+            return createGrayImage(image);
+        }
+        sourceColor = decoderHelper.decode(image, PixelFormat.RGB, 1, null);
+        return imageHelper.createGrayImageFrom(sourceColor);
+    }
 
-        return result;
+    private IplImage createGrayImage(File image) {
+        DecodedImage decoded = decoderHelper.decode(image, PixelFormat.GRAY, 1, grayBuffer);
+        // pixels are copied to the image, so the buffer is reused by the next decoding
+        grayBuffer = decoded.getPixels();
+        return imageHelper.createGrayImageFrom(decoded);
     }
 
     @Override
@@ -152,17 +137,13 @@ public class FindSearchStrategy implements SearchStrategy {
     @Override
     public void highlightRois() {
         for (Roi r : context.getRois()) {
-            try {
-                highlightElementOnResultImage(new HighlightElement.Builder().
-                    x(r.getX()).
-                    y(r.getY()).
-                    width(r.getWidth()).
-                    height(r.getHeight()).
-                    areaColor(new Color(245, 255, 255, 255 * 50 / 100)).
-                    build());
-            } catch (IOException ex) {
-                logger.error("Can't highlight area", ex);
-            }
+            resultElements.add(new HighlightElement.Builder().
+                x(r.getX()).
+                y(r.getY()).
+                width(r.getWidth()).
+                height(r.getHeight()).
+                areaColor(new Color(245, 255, 255, 255 * 50 / 100)).
+                build());
         }
     }
 
@@ -178,26 +159,41 @@ public class FindSearchStrategy implements SearchStrategy {
             int y = match.getY();
             int width = match.getWidth();
             int height = match.getHeight();
-            double score = match.getScore();
             String text = highlightHelper.getHighlightElementText(match);
 
-            try {
-                highlightElementOnResultImage(new HighlightElement.Builder().
-                    x(x).
-                    y(y).
-                    width(width).
-                    height(height).
-                    text(text).
-                    build()
-                );
-            } catch (IOException ex) {
-                logger.error("Can't highlight element", ex);
+            resultElements.add(new HighlightElement.Builder().
+                x(x).
+                y(y).
+                width(width).
+                height(height).
+                text(text).
+                build()
+            );
+        }
+    }
+
+    @Override
+    public void writeResultImages() {
+        try {
+            // without highlights the source image of the result format is the result, so it is only copied
+            if (resultElements.isEmpty() && hasResultFormat(context.getImage1())) {
+                FileUtils.copyFile(context.getImage1(), context.getResultImage());
+            } else {
+                BufferedImage sourceImage = sourceColor != null
+                    ? decoderHelper.createBufferedImage(sourceColor)
+                    : context.getBufferedImage1();
+                highlightHelper.writeHighlightedImage(sourceImage, resultElements, context.getResultImage());
             }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not write result image file: " + context.getResultImage().getAbsolutePath(), ex);
+        } finally {
+            resultElements.clear();
+            sourceColor = null;
         }
     }
 
-    private void highlightElementOnResultImage(HighlightElement element) throws IOException {
-        highlightHelper.highlightElement(context.getResultImage(), element);
+    private boolean hasResultFormat(File image) {
+        return context.getResultFormat().isFormatOf(decoderHelper.readHeader(image).getFormatName());
     }
 
     public static class Builder {
@@ -207,6 +203,8 @@ public class FindSearchStrategy implements SearchStrategy {
         private final MatchContext context;
         private ImageHelper imageHelper;
         private HighlightHelper highlightHelper;
+        private TemplateCache templateCache;
+        private DecoderHelper decoderHelper;
 
         public Builder(MatchContext context) {
             Validate.notNull(context, "Context must not be null");
@@ -223,10 +221,17 @@ public class FindSearchStrategy implements SearchStrategy {
             return this;
         }
 
-        public FindSearchStrategy build() {
-            // post init
-            postInitContext();
+        public Builder templateCache(TemplateCache templateCache) {
+            this.templateCache = templateCache;
+            return this;
+        }
 
+        public Builder decoderHelper(DecoderHelper decoderHelper) {
+            this.decoderHelper = decoderHelper;
+            return this;
+        }
+
+        public FindSearchStrategy build() {
             FindSearchStrategy instance = new FindSearchStrategy();
 
             if (imageHelper == null) {
@@ -235,22 +240,25 @@ public class FindSearchStrategy implements SearchStrategy {
             }
             if (highlightHelper == null) {
                 logger.debug("Default instance will be used as highlight helper");
-                highlightHelper = new HighlightHelper();
+                highlightHelper = new HighlightHelper(new EncoderHelper().createEncoder(context));
+            }
+            if (decoderHelper == null) {
+                logger.debug("Default instance will be used as decoder helper");
+                decoderHelper = new DecoderHelper();
             }
             instance.context = context;
             instance.imageHelper = imageHelper;
+            instance.decoderHelper = decoderHelper;
+            if (templateCache == null && context.getTemplateCacheDirectory() != null) {
+                logger.debug("Default instance will be used as template cache");
+                templateCache = new TemplateCache(imageHelper, TemplateCache.DEFAULT_MAX_MEMORY_SIZE,
+                    context.getTemplateCacheDirectory(), context.getTemplateCacheSize());
+            }
+            instance.templateMatcher = new TemplateMatcher(imageHelper);
+            instance.templateCache = templateCache;
             instance.highlightHelper = highlightHelper;
 
             return instance;
         }
-
-        private void postInitContext() {
-            // copy content from images to result images to show it in final UI frame, if needed
-            try {
-                FileUtils.copyFile(context.getImage1(), context.getResultImage());
-            } catch (IOException ex) {
-                throw new IllegalStateException("Could not initialize result image file: " + context.getResultImage().getAbsolutePath(), ex);
-            }
-        }
     }
 }
@@ -12,4 +12,6 @@ public interface SearchStrategy {
     void highlightRois();
 
     void highlightMatchedElements(List<Match> matchResults);
+
+    void writeResultImages();
 }
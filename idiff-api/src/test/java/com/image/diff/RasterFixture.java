@@ -0,0 +1,52 @@
+package com.image.diff;
+
+import com.image.diff.core.RegionTable;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.hamcrest.Matchers;
+
+public class RasterFixture {
+
+    public BufferedImage createImage(int width, int height) {
+        return createImage(BufferedImage.TYPE_3BYTE_BGR, width, height);
+    }
+
+    public BufferedImage createImage(int type, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        fill(image, 0, 0, width, height, Color.WHITE);
+        return image;
+    }
+
+    public void fill(BufferedImage image, int x, int y, int width, int height, Color color) {
+        Graphics2D g2 = image.createGraphics();
+        g2.setColor(color);
+        g2.fillRect(x, y, width, height);
+        g2.dispose();
+    }
+
+    // the copy stays valid after the next call of the helper
+    public RegionTable copy(RegionTable regions) {
+        RegionTable copy = new RegionTable();
+        for (int i = 0; i < regions.size(); i++) {
+            copy.add(regions.getX(i), regions.getY(i), regions.getWidth(i), regions.getHeight(i), regions.getPixels(i), regions.getStartX(i));
+        }
+        return copy;
+    }
+
+    public void assertRegion(RegionTable regions, int region, int x, int y, int width, int height, int pixels) {
+        assertThat(regions.getX(region), Matchers.equalTo(x));
+        assertThat(regions.getY(region), Matchers.equalTo(y));
+        assertThat(regions.getWidth(region), Matchers.equalTo(width));
+        assertThat(regions.getHeight(region), Matchers.equalTo(height));
+        assertThat(regions.getPixels(region), Matchers.equalTo(pixels));
+    }
+
+    public void assertSameRegions(RegionTable actual, RegionTable expected) {
+        assertThat(actual.size(), Matchers.equalTo(expected.size()));
+        for (int i = 0; i < expected.size(); i++) {
+            assertRegion(actual, i, expected.getX(i), expected.getY(i), expected.getWidth(i), expected.getHeight(i), expected.getPixels(i));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.image.diff.helper;
+
+import com.image.diff.RasterFixture;
+import com.image.diff.core.BaselineIndex;
+import com.image.diff.core.RegionTable;
+import com.image.diff.core.Roi;
+import com.image.diff.core.RoiIndex;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BaselineIndexHelperTest {
+
+    private final RasterFixture rasterFixture = new RasterFixture();
+
+    private File baselineFile;
+    private BaselineIndexHelper baselineIndexHelper;
+
+    @Before
+    public void beforeTest() throws Exception {
+        baselineFile = File.createTempFile("baseline", ".png");
+        baselineIndexHelper = new BaselineIndexHelper();
+    }
+
+    @After
+    public void afterTest() {
+        baselineIndexHelper.getIndexFile(baselineFile).delete();
+        baselineFile.delete();
+    }
+
+    @Test
+    public void testGetIndexWritesSidecarAndRebuildsItWhenBaselineChanges() throws Exception {
+        // given
+        BufferedImage baseline = rasterFixture.createImage(70, 50);
+        ImageIO.write(baseline, "png", baselineFile);
+
+        // when
+        BaselineIndex createdIndex = baselineIndexHelper.getIndex(baselineFile);
+        BaselineIndex readIndex = baselineIndexHelper.getIndex(baselineFile);
+        rasterFixture.fill(baseline, 0, 0, 5, 5, Color.BLUE);
+        ImageIO.write(baseline, "png", baselineFile);
+        BaselineIndex rebuiltIndex = baselineIndexHelper.getIndex(baselineFile);
+
+        // then
+        assertThat(baselineIndexHelper.getIndexFile(baselineFile).exists(), Matchers.equalTo(true));
+        assertThat(readIndex.getBlockHashes(), Matchers.equalTo(createdIndex.getBlockHashes()));
+        assertThat(readIndex.getGray(), Matchers.equalTo(createdIndex.getGray()));
+        assertThat(rebuiltIndex.getContentHash(), Matchers.not(Matchers.equalTo(createdIndex.getContentHash())));
+        assertThat(rebuiltIndex.getBlockHash(0, 0), Matchers.not(Matchers.equalTo(createdIndex.getBlockHash(0, 0))));
+        assertThat(rebuiltIndex.getBlockHash(1, 0), Matchers.equalTo(createdIndex.getBlockHash(1, 0)));
+    }
+
+    @Test
+    public void testFindDifferenceRegionsAgainstIndexGivesTheSameRegions() throws Exception {
+        // given
+        BufferedImage baseline = rasterFixture.createImage(70, 50);
+        BufferedImage candidate = rasterFixture.createImage(70, 50);
+        rasterFixture.fill(candidate, 10, 12, 30, 3, Color.RED);
+        rasterFixture.fill(candidate, 60, 40, 10, 10, Color.BLACK);
+        ImageIO.write(baseline, "png", baselineFile);
+        RoiIndex roiIndex = new RoiIndex(Arrays.asList(new Roi(20, 0, 45, 45)), 70, 50);
+        RasterHelper rasterHelper = new RasterHelper();
+
+        // when
+        BaselineIndex index = baselineIndexHelper.getIndex(baselineFile);
+        RegionTable expected = rasterFixture.copy(rasterHelper.findDifferenceRegions(baseline, candidate));
+        RegionTable actual = rasterFixture.copy(rasterHelper.findDifferenceRegions(index, candidate, null));
+        RegionTable expectedInRois = rasterFixture.copy(rasterHelper.findDifferenceRegions(baseline, candidate, roiIndex));
+        RegionTable actualInRois = rasterFixture.copy(rasterHelper.findDifferenceRegions(index, candidate, roiIndex));
+
+        // then
+        assertThat(actual.size(), Matchers.equalTo(2));
+        rasterFixture.assertSameRegions(actual, expected);
+        assertThat(actualInRois.size(), Matchers.equalTo(2));
+        rasterFixture.assertSameRegions(actualInRois, expectedInRois);
+    }
+}
@@ -0,0 +1,74 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.DecodedImage;
+import com.image.diff.core.ImageHeader;
+import com.image.diff.core.PixelFormat;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import javax.imageio.ImageIO;
+import org.apache.commons.io.FileUtils;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DecoderHelperTest {
+
+    private DecoderHelper decoderHelper;
+    private File file;
+
+    @Before
+    public void beforeTest() throws Exception {
+        decoderHelper = new DecoderHelper();
+        file = File.createTempFile("header", ".png");
+    }
+
+    @After
+    public void afterTest() {
+        file.delete();
+    }
+
+    @Test
+    public void testReadHeaderGivesFormatAndSize() throws Exception {
+        // given
+        ImageIO.write(new BufferedImage(37, 21, BufferedImage.TYPE_INT_RGB), "png", file);
+
+        // when
+        ImageHeader header = decoderHelper.readHeader(file);
+
+        // then
+        assertThat(header.getFormatName(), Matchers.equalToIgnoringCase("png"));
+        assertThat(header.getWidth(), Matchers.equalTo(37));
+        assertThat(header.getHeight(), Matchers.equalTo(21));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReadHeaderFailsForUnreadableImage() throws Exception {
+        // given
+        FileUtils.writeStringToFile(file, "not an image");
+
+        // when
+        decoderHelper.readHeader(file);
+
+        // then exception expected
+    }
+
+    @Test
+    public void testCreateBufferedImageSharesDecodedColors() throws Exception {
+        // given
+        BufferedImage image = new BufferedImage(5, 3, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(4, 2, 0x123456);
+        ImageIO.write(image, "png", file);
+        DecodedImage decoded = decoderHelper.decode(file, PixelFormat.RGB, 1, null);
+
+        // when
+        BufferedImage result = decoderHelper.createBufferedImage(decoded);
+
+        // then
+        assertThat(result.getWidth(), Matchers.equalTo(5));
+        assertThat(result.getHeight(), Matchers.equalTo(3));
+        assertThat(result.getRGB(4, 2) & 0xffffff, Matchers.equalTo(0x123456));
+        assertThat(result.getRGB(0, 0) & 0xffffff, Matchers.equalTo(0));
+    }
+}
@@ -0,0 +1,122 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.IntegralImage;
+import com.image.diff.core.MatchResult;
+import com.image.diff.core.Roi;
+import com.image.diff.core.TemplateMatchMethod;
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+public class ExistenceMatcherTest {
+
+    private static final int SOURCE_WIDTH = 120;
+    private static final int SOURCE_HEIGHT = 90;
+    private static final int TEMPLATE_WIDTH = 14;
+    private static final int TEMPLATE_HEIGHT = 10;
+
+    @Test
+    public void testFindFirstFindsEmbeddedTemplate() {
+        // given
+        Random random = new Random(11);
+        byte[] source = createSource(random);
+        byte[] template = new byte[TEMPLATE_WIDTH * TEMPLATE_HEIGHT];
+        for (int y = 0; y < TEMPLATE_HEIGHT; y++) {
+            System.arraycopy(source, (61 + y) * SOURCE_WIDTH + 37, template, y * TEMPLATE_WIDTH, TEMPLATE_WIDTH);
+        }
+        IntegralImage integralImage = new IntegralImage(source, SOURCE_WIDTH, SOURCE_HEIGHT);
+        List<List<Point>> seedings = Arrays.asList(Collections.<Point>emptyList(), Arrays.asList(new Point(100, 5), new Point(36, 60)));
+
+        for (TemplateMatchMethod matchMethod : TemplateMatchMethod.values()) {
+            for (List<Point> seeds : seedings) {
+                // when
+                MatchResult match = new ExistenceMatcher().findFirst(source, SOURCE_WIDTH, integralImage, template, TEMPLATE_WIDTH, TEMPLATE_HEIGHT,
+                    matchMethod, 0.9, seeds, 2);
+
+                // then
+                assertThat(matchMethod + " " + seeds, match, Matchers.notNullValue());
+                assertThat(match.getX(), Matchers.equalTo(37));
+                assertThat(match.getY(), Matchers.equalTo(61));
+                assertThat(match.getScore(), Matchers.closeTo(1, 1e-6));
+            }
+        }
+    }
+
+    @Test
+    public void testFindFirstAgreesWithFullMatchingOnMissingTemplate() {
+        // given
+        Random random = new Random(5);
+        byte[] source = createSource(random);
+        byte[] template = new byte[TEMPLATE_WIDTH * TEMPLATE_HEIGHT];
+        for (int i = 0; i < template.length; i++) {
+            template[i] = (byte) random.nextInt(256);
+        }
+        IntegralImage integralImage = new IntegralImage(source, SOURCE_WIDTH, SOURCE_HEIGHT);
+        Roi window = new Roi(0, 0, SOURCE_WIDTH, SOURCE_HEIGHT);
+
+        for (TemplateMatchMethod matchMethod : TemplateMatchMethod.values()) {
+            float[] scores = new FftMatcher().matchTemplate(source, SOURCE_WIDTH, integralImage, window, template, TEMPLATE_WIDTH, TEMPLATE_HEIGHT,
+                matchMethod);
+            // the best similarity of all windows
+            double minSimilarity = Double.NEGATIVE_INFINITY;
+            for (float score : scores) {
+                double similarity = matchMethod == TemplateMatchMethod.CV_TM_SQDIFF_NORMED ? 1 - score : score;
+                minSimilarity = Math.max(minSimilarity, similarity);
+            }
+
+            // when
+            MatchResult above = new ExistenceMatcher().findFirst(source, SOURCE_WIDTH, integralImage, template, TEMPLATE_WIDTH, TEMPLATE_HEIGHT,
+                matchMethod, minSimilarity + 1e-4, Collections.<Point>emptyList(), 1);
+            MatchResult below = new ExistenceMatcher().findFirst(source, SOURCE_WIDTH, integralImage, template, TEMPLATE_WIDTH, TEMPLATE_HEIGHT,
+                matchMethod, minSimilarity - 1e-4, Collections.<Point>emptyList(), 1);
+
+            // then
+            assertThat(matchMethod.toString(), above, Matchers.nullValue());
+            assertThat(matchMethod.toString(), below, Matchers.notNullValue());
+        }
+    }
+
+    @Test
+    public void testFindFirstRejectsMatchAtTheSimilarity() {
+        // given
+        Random random = new Random(17);
+        byte[] source = createSource(random);
+        byte[] template = new byte[TEMPLATE_WIDTH * TEMPLATE_HEIGHT];
+        for (int y = 0; y < TEMPLATE_HEIGHT; y++) {
+            System.arraycopy(source, (23 + y) * SOURCE_WIDTH + 81, template, y * TEMPLATE_WIDTH, TEMPLATE_WIDTH);
+        }
+        IntegralImage integralImage = new IntegralImage(source, SOURCE_WIDTH, SOURCE_HEIGHT);
+
+        for (TemplateMatchMethod matchMethod : TemplateMatchMethod.values()) {
+            MatchResult exact = new ExistenceMatcher().findFirst(source, SOURCE_WIDTH, integralImage, template, TEMPLATE_WIDTH, TEMPLATE_HEIGHT,
+                matchMethod, 0.9, Collections.<Point>emptyList(), 1);
+            double similarity = exact.getScore();
+
+            // when
+            MatchResult atSimilarity = new ExistenceMatcher().findFirst(source, SOURCE_WIDTH, integralImage, template, TEMPLATE_WIDTH,
+                TEMPLATE_HEIGHT, matchMethod, similarity, Collections.<Point>emptyList(), 1);
+            MatchResult atOne = new ExistenceMatcher().findFirst(source, SOURCE_WIDTH, integralImage, template, TEMPLATE_WIDTH,
+                TEMPLATE_HEIGHT, matchMethod, 1.0, Collections.<Point>emptyList(), 1);
+            MatchResult belowSimilarity = new ExistenceMatcher().findFirst(source, SOURCE_WIDTH, integralImage, template, TEMPLATE_WIDTH,
+                TEMPLATE_HEIGHT, matchMethod, similarity - 1e-9, Collections.<Point>emptyList(), 1);
+
+            // then, peaks are rejected at the similarity as well
+            assertThat(matchMethod.toString(), atSimilarity, Matchers.nullValue());
+            assertThat(matchMethod.toString(), atOne, Matchers.nullValue());
+            assertThat(matchMethod.toString(), belowSimilarity, Matchers.notNullValue());
+        }
+    }
+
+    private byte[] createSource(Random random) {
+        byte[] source = new byte[SOURCE_WIDTH * SOURCE_HEIGHT];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = (byte) random.nextInt(256);
+        }
+        return source;
+    }
+}
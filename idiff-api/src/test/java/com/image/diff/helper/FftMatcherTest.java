@@ -0,0 +1,181 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.IntegralImage;
+import com.image.diff.core.Roi;
+import com.image.diff.core.TemplateMatchMethod;
+import java.util.Random;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FftMatcherTest {
+
+    @Test
+    public void testMatchTemplateGivesTheSameScoresAsSpatialMatching() {
+        Random random = new Random(42);
+        FftMatcher matcher = new FftMatcher();
+        int[][] sizes = new int[][]{{90, 70, 12, 9}, {150, 40, 70, 33}, {20, 20, 1, 3}, {64, 64, 64, 64}};
+
+        for (int[] size : sizes) {
+            // given
+            int sourceWidth = size[0];
+            int sourceHeight = size[1];
+            int templateWidth = size[2];
+            int templateHeight = size[3];
+            byte[] source = new byte[sourceWidth * sourceHeight];
+            for (int i = 0; i < source.length; i++) {
+                source[i] = (byte) random.nextInt(256);
+            }
+            byte[] template = new byte[templateWidth * templateHeight];
+            for (int y = 0; y < templateHeight; y++) {
+                System.arraycopy(source, (sourceHeight - templateHeight + y) * sourceWidth, template, y * templateWidth, templateWidth);
+            }
+
+            for (TemplateMatchMethod matchMethod : TemplateMatchMethod.values()) {
+                // when
+                float[] actual = matcher.matchTemplate(source, sourceWidth, sourceHeight, template, templateWidth, templateHeight, matchMethod);
+
+                // then
+                float[] expected = matchSpatially(source, sourceWidth, sourceHeight, template, templateWidth, templateHeight, matchMethod);
+                assertThat(actual.length, Matchers.equalTo(expected.length));
+                for (int i = 0; i < expected.length; i++) {
+                    assertThat(matchMethod + " " + sourceWidth + "x" + sourceHeight + " at " + i,
+                        (double) actual[i], Matchers.closeTo(expected[i], 1e-5));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMatchTemplateRejectsOnlyWindowsBelowSimilarity() {
+        // given
+        Random random = new Random(7);
+        int sourceWidth = 160;
+        int sourceHeight = 120;
+        byte[] source = new byte[sourceWidth * sourceHeight];
+        for (int y = 0; y < sourceHeight; y++) {
+            for (int x = 0; x < sourceWidth; x++) {
+                // flat left half, noise in the right one
+                source[y * sourceWidth + x] = (byte) (x < sourceWidth / 2 ? 40 : random.nextInt(256));
+            }
+        }
+        int templateWidth = 16;
+        int templateHeight = 12;
+        byte[] template = new byte[templateWidth * templateHeight];
+        for (int y = 0; y < templateHeight; y++) {
+            System.arraycopy(source, (50 + y) * sourceWidth + 120, template, y * templateWidth, templateWidth);
+        }
+        IntegralImage integralImage = new IntegralImage(source, sourceWidth, sourceHeight);
+        Roi window = new Roi(0, 0, sourceWidth, sourceHeight);
+        double minSimilarity = 0.8;
+
+        for (TemplateMatchMethod matchMethod : TemplateMatchMethod.values()) {
+            // when
+            float[] expected = new FftMatcher().matchTemplate(source, sourceWidth, integralImage, window, template, templateWidth, templateHeight,
+                matchMethod);
+            float[] actual = new FftMatcher().matchTemplate(source, sourceWidth, integralImage, window, template, templateWidth, templateHeight,
+                matchMethod, minSimilarity);
+
+            // then
+            for (int i = 0; i < expected.length; i++) {
+                double similarity = matchMethod == TemplateMatchMethod.CV_TM_SQDIFF_NORMED ? 1 - expected[i] : expected[i];
+                if (similarity >= minSimilarity) {
+                    assertThat(matchMethod + " at " + i, actual[i], Matchers.equalTo(expected[i]));
+                } else {
+                    double actualSimilarity = matchMethod == TemplateMatchMethod.CV_TM_SQDIFF_NORMED ? 1 - actual[i] : actual[i];
+                    assertThat(matchMethod + " at " + i, actualSimilarity, Matchers.lessThan(minSimilarity));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMatchTemplateRowsGiveTheSameScoresAsTheWholeWindow() {
+        // given
+        Random random = new Random(11);
+        int sourceWidth = 90;
+        int sourceHeight = 300;
+        byte[] source = new byte[sourceWidth * sourceHeight];
+        random.nextBytes(source);
+        int templateWidth = 13;
+        int templateHeight = 11;
+        byte[] template = new byte[templateWidth * templateHeight];
+        for (int y = 0; y < templateHeight; y++) {
+            System.arraycopy(source, (200 + y) * sourceWidth + 40, template, y * templateWidth, templateWidth);
+        }
+        IntegralImage integralImage = new IntegralImage(source, sourceWidth, sourceHeight);
+        Roi window = new Roi(0, 0, sourceWidth, sourceHeight);
+        int resultWidth = sourceWidth - templateWidth + 1;
+        int resultHeight = sourceHeight - templateHeight + 1;
+        int blockRows = FftMatcher.getBlockRows(templateHeight, sourceHeight);
+
+        for (TemplateMatchMethod matchMethod : TemplateMatchMethod.values()) {
+            // when
+            float[] expected = new FftMatcher().matchTemplate(source, sourceWidth, integralImage, window, template, templateWidth, templateHeight,
+                matchMethod, 0.5);
+            float[] actual = new float[expected.length];
+            for (int firstRow = 0; firstRow < resultHeight; firstRow += blockRows) {
+                int rows = Math.min(blockRows, resultHeight - firstRow);
+                float[] stripe = new FftMatcher().matchTemplate(source, sourceWidth, integralImage, window, template, templateWidth,
+                    templateHeight, matchMethod, 0.5, firstRow, rows);
+                System.arraycopy(stripe, 0, actual, firstRow * resultWidth, stripe.length);
+            }
+
+            // then
+            assertThat(resultHeight / blockRows, Matchers.greaterThan(1));
+            Assert.assertArrayEquals(matchMethod.toString(), expected, actual, 0.0f);
+        }
+    }
+
+    private float[] matchSpatially(byte[] source, int sourceWidth, int sourceHeight, byte[] template, int templateWidth, int templateHeight,
+        TemplateMatchMethod matchMethod) {
+        int resultWidth = sourceWidth - templateWidth + 1;
+        int resultHeight = sourceHeight - templateHeight + 1;
+        double area = templateWidth * templateHeight;
+        double templateMean = 0;
+        if (matchMethod == TemplateMatchMethod.CV_TM_CCOEFF_NORMED) {
+            for (byte value : template) {
+                templateMean += (value & 0xff) / area;
+            }
+        }
+
+        float[] result = new float[resultWidth * resultHeight];
+        for (int y = 0; y < resultHeight; y++) {
+            for (int x = 0; x < resultWidth; x++) {
+                double windowMean = 0;
+                if (matchMethod == TemplateMatchMethod.CV_TM_CCOEFF_NORMED) {
+                    for (int j = 0; j < templateHeight; j++) {
+                        for (int i = 0; i < templateWidth; i++) {
+                            windowMean += (source[(y + j) * sourceWidth + x + i] & 0xff) / area;
+                        }
+                    }
+                }
+
+                double number = 0;
+                double templateNorm = 0;
+                double windowNorm = 0;
+                for (int j = 0; j < templateHeight; j++) {
+                    for (int i = 0; i < templateWidth; i++) {
+                        double t = (template[j * templateWidth + i] & 0xff) - templateMean;
+                        double s = (source[(y + j) * sourceWidth + x + i] & 0xff) - windowMean;
+                        number += matchMethod == TemplateMatchMethod.CV_TM_SQDIFF_NORMED ? (t - s) * (t - s) : t * s;
+                        templateNorm += t * t;
+                        windowNorm += s * s;
+                    }
+                }
+                // scores out of range are clamped as cvMatchTemplate does
+                double norm = Math.sqrt(templateNorm * windowNorm);
+                if (Math.abs(number) < norm) {
+                    number /= norm;
+                } else if (Math.abs(number) < norm * 1.125) {
+                    number = number > 0 ? 1 : -1;
+                } else {
+                    number = matchMethod != TemplateMatchMethod.CV_TM_SQDIFF_NORMED ? 0 : 1;
+                }
+                result[y * resultWidth + x] = (float) number;
+            }
+        }
+        return result;
+    }
+}
@@ -1,7 +1,9 @@
 package com.image.diff.helper;
 
 import com.image.diff.ImagesContainer;
+import com.image.diff.core.DiffEngine;
 import com.image.diff.core.MatchContext;
+import com.image.diff.core.ResultArtifacts;
 import com.image.diff.core.TemplateMatchMethod;
 import java.io.File;
 import org.junit.AfterClass;
@@ -293,5 +295,67 @@ public class FinderArgumentValidationTest {
             limit(100).
             build();
         finder = new Finder.Builder(context).build();
+
+        // try streaming diff with result images, the images are not decoded to draw them on
+        try {
+            context = new MatchContext.Builder().
+                diff().
+                image1(imagesContainer.getDiffImage1File()).
+                image2(imagesContainer.getDiffImage2File()).
+                resultImage(imagesContainer.getResultImageFile()).
+                resultSourceImage(imagesContainer.getResultSourceImageFile()).
+                matchSimilarity(0.5D).
+                matchMethod(TemplateMatchMethod.CV_TM_CCORR_NORMED).
+                limit(100).
+                diffEngine(DiffEngine.RASTER).
+                bandHeight(64).
+                build();
+            finder = new Finder.Builder(context).build();
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+        }
+
+        // try streaming diff without result images
+        context = new MatchContext.Builder().
+            diff().
+            image1(imagesContainer.getDiffImage1File()).
+            image2(imagesContainer.getDiffImage2File()).
+            matchSimilarity(0.5D).
+            matchMethod(TemplateMatchMethod.CV_TM_CCORR_NORMED).
+            limit(100).
+            diffEngine(DiffEngine.RASTER).
+            bandHeight(64).
+            resultArtifacts(ResultArtifacts.NONE).
+            build();
+        finder = new Finder.Builder(context).build();
+
+        // try identical check together with diff mode
+        try {
+            context = new MatchContext.Builder().
+                diff().
+                identicalCheck().
+                image1(imagesContainer.getDiffImage1File()).
+                image2(imagesContainer.getDiffImage2File()).
+                resultArtifacts(ResultArtifacts.NONE).
+                build();
+            finder = new Finder.Builder(context).build();
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+        }
+
+        // try identical check as its own mode, it does not search
+        context = new MatchContext.Builder().
+            identicalCheck().
+            image1(imagesContainer.getDiffImage1File()).
+            image2(imagesContainer.getDiffImage2File()).
+            resultArtifacts(ResultArtifacts.NONE).
+            build();
+        finder = new Finder.Builder(context).build();
+        Assert.assertFalse(finder.isIdentical());
+        try {
+            finder.find();
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+        }
     }
 }
@@ -0,0 +1,71 @@
+package com.image.diff.helper;
+
+import com.image.diff.visual.HighlightElement;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import javax.imageio.ImageIO;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HighlightHelperTest {
+
+    private File file;
+
+    @Before
+    public void beforeTest() throws Exception {
+        file = File.createTempFile("highlighted", ".png");
+    }
+
+    @After
+    public void afterTest() throws Exception {
+        file.delete();
+    }
+
+    @Test
+    public void testWriteHighlightedImageDrawsAllElementsOnCopy() throws Exception {
+        // given
+        BufferedImage image = new BufferedImage(60, 40, BufferedImage.TYPE_INT_RGB);
+        HighlightElement first = new HighlightElement.Builder().x(5).y(5).width(10).height(8).
+            areaColor(new Color(0, 255, 0, 128)).build();
+        HighlightElement second = new HighlightElement.Builder().x(30).y(20).width(20).height(10).
+            borderColor(Color.GREEN).areaColor(new Color(245, 255, 255, 128)).build();
+        HighlightHelper highlightHelper = new HighlightHelper();
+
+        // when
+        highlightHelper.writeHighlightedImage(image, Arrays.asList(first, second), file);
+
+        // then
+        BufferedImage written = ImageIO.read(file);
+        assertThat(image.getRGB(7, 7), Matchers.equalTo(0xff000000));
+        assertThat(image.getRGB(40, 25), Matchers.equalTo(0xff000000));
+        assertThat(written.getRGB(7, 7), Matchers.not(Matchers.equalTo(0xff000000)));
+        assertThat(written.getRGB(40, 25), Matchers.not(Matchers.equalTo(0xff000000)));
+        assertThat(written.getRGB(2, 35), Matchers.equalTo(0xff000000));
+    }
+
+    @Test
+    public void testWriteHighlightedImageWithoutElementsEncodesTheImage() throws Exception {
+        // given
+        BufferedImage image = new BufferedImage(60, 40, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(7, 7, 0x808080);
+        HighlightHelper highlightHelper = new HighlightHelper();
+
+        // when
+        highlightHelper.writeHighlightedImage(image, Collections.<HighlightElement>emptyList(), file);
+
+        // then
+        assertThat(new DecoderHelper().readHeader(file).getFormatName(), Matchers.equalToIgnoringCase("png"));
+        BufferedImage written = ImageIO.read(file);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertThat(x + "," + y, written.getRGB(x, y), Matchers.equalTo(image.getRGB(x, y)));
+            }
+        }
+    }
+}
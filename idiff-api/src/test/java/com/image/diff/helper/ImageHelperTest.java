@@ -0,0 +1,67 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.MatchContainer;
+import com.image.diff.core.MatchEngine;
+import com.image.diff.core.TemplateMatchMethod;
+import static com.googlecode.javacv.cpp.opencv_core.*;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ImageHelperTest {
+
+    @Test
+    public void testStripesGiveTheSameScoresAsSequentialMatching() {
+        // given
+        Random random = new Random(3);
+        // result images are reused, a checked pool finds writes to images given back already
+        ImageHelper imageHelper = new ImageHelper(new ImagePool(ImagePool.DEFAULT_MAX_IDLE_BYTES, true));
+        IplImage sourceImage = createImage(imageHelper, 97, 300, random);
+        IplImage templateImage = createImage(imageHelper, 13, 11, random);
+
+        for (TemplateMatchMethod matchMethod : TemplateMatchMethod.values()) {
+            for (int stripeHeight : new int[]{1, 60, 120}) {
+                // when
+                MatchContainer sequential = imageHelper.computeResultImage(sourceImage, templateImage, matchMethod, MatchEngine.FFT);
+                MatchContainer stripes = imageHelper.computeResultImage(sourceImage, templateImage, matchMethod, stripeHeight, 3);
+
+                // then
+                IplImage expected = sequential.getResultImage();
+                IplImage actual = stripes.getResultImage();
+                assertThat(actual.width(), Matchers.equalTo(expected.width()));
+                assertThat(actual.height(), Matchers.equalTo(expected.height()));
+                Assert.assertArrayEquals(matchMethod + " " + stripeHeight, getScores(expected), getScores(actual), 0.0f);
+                imageHelper.release(expected);
+                imageHelper.release(actual);
+            }
+        }
+        imageHelper.release(sourceImage);
+        imageHelper.release(templateImage);
+    }
+
+    private IplImage createImage(ImageHelper imageHelper, int width, int height, Random random) {
+        IplImage image = imageHelper.createImage(width, height, IPL_DEPTH_8U, 1);
+        ByteBuffer buffer = image.getByteBuffer();
+        byte[] row = new byte[width];
+        for (int y = 0; y < height; y++) {
+            random.nextBytes(row);
+            buffer.position(y * image.widthStep());
+            buffer.put(row);
+        }
+        return image;
+    }
+
+    private float[] getScores(IplImage image) {
+        float[] scores = new float[image.width() * image.height()];
+        FloatBuffer buffer = image.getFloatBuffer();
+        for (int y = 0; y < image.height(); y++) {
+            buffer.position(y * image.widthStep() / 4);
+            buffer.get(scores, y * image.width(), image.width());
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,132 @@
+package com.image.diff.helper;
+
+import static com.googlecode.javacv.cpp.opencv_core.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ImagePoolTest {
+
+    @Test
+    public void testBorrowCountsLiveBytes() {
+        // given
+        ImagePool imagePool = new ImagePool();
+
+        // when
+        IplImage first = imagePool.borrow(16, 8, IPL_DEPTH_8U, 1);
+        IplImage second = imagePool.borrow(4, 4, IPL_DEPTH_32F, 1);
+
+        // then
+        assertThat(imagePool.getBorrowedCount(), Matchers.equalTo(2));
+        assertThat(imagePool.getLiveBytes(), Matchers.equalTo((long) first.imageSize() + second.imageSize()));
+        assertThat(imagePool.getIdleBytes(), Matchers.equalTo(0L));
+
+        imagePool.giveBack(first);
+        imagePool.giveBack(second);
+        assertThat(imagePool.getBorrowedCount(), Matchers.equalTo(0));
+        assertThat(imagePool.getLiveBytes(), Matchers.equalTo(0L));
+    }
+
+    @Test
+    public void testBorrowReusesGivenBackImageOfTheSameFormat() {
+        // given
+        ImagePool imagePool = new ImagePool();
+        IplImage image = imagePool.borrow(16, 8, IPL_DEPTH_8U, 1);
+        imagePool.giveBack(image);
+
+        // when
+        IplImage otherFormat = imagePool.borrow(16, 8, IPL_DEPTH_8U, 3);
+        IplImage sameFormat = imagePool.borrow(16, 8, IPL_DEPTH_8U, 1);
+
+        // then
+        assertThat(otherFormat, Matchers.not(Matchers.sameInstance(image)));
+        assertThat(sameFormat, Matchers.sameInstance(image));
+        assertThat(imagePool.getIdleBytes(), Matchers.equalTo(0L));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGiveBackTwiceFails() {
+        // given
+        ImagePool imagePool = new ImagePool();
+        IplImage image = imagePool.borrow(16, 8, IPL_DEPTH_8U, 1);
+        imagePool.giveBack(image);
+
+        // when
+        imagePool.giveBack(image);
+
+        // then exception expected
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGiveBackOfForeignImageFails() {
+        // given
+        ImagePool imagePool = new ImagePool();
+        IplImage image = IplImage.create(16, 8, IPL_DEPTH_8U, 1);
+
+        // when
+        try {
+            imagePool.giveBack(image);
+        } finally {
+            cvReleaseImage(image);
+        }
+
+        // then exception expected
+    }
+
+    @Test
+    public void testCheckedPoolFindsWriteAfterGiveBack() {
+        // given
+        ImagePool imagePool = new ImagePool(ImagePool.DEFAULT_MAX_IDLE_BYTES, true);
+        IplImage image = imagePool.borrow(16, 8, IPL_DEPTH_8U, 1);
+        imagePool.giveBack(image);
+        IplImage reused = imagePool.borrow(16, 8, IPL_DEPTH_8U, 1);
+        imagePool.giveBack(reused);
+
+        // when
+        reused.getByteBuffer().put(16 * 8 - 1, (byte) 1);
+        try {
+            imagePool.borrow(16, 8, IPL_DEPTH_8U, 1);
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+        }
+
+        // then
+        assertThat(reused, Matchers.sameInstance(image));
+        assertThat(imagePool.getIdleBytes(), Matchers.equalTo(0L));
+        assertThat(imagePool.getBorrowedCount(), Matchers.equalTo(0));
+    }
+
+    @Test
+    public void testGiveBackOverBudgetReleasesImage() {
+        // given, room for one idle image only
+        ImagePool imagePool = new ImagePool(16 * 8);
+        IplImage first = imagePool.borrow(16, 8, IPL_DEPTH_8U, 1);
+        IplImage second = imagePool.borrow(16, 8, IPL_DEPTH_8U, 1);
+
+        // when
+        imagePool.giveBack(first);
+        imagePool.giveBack(second);
+
+        // then
+        assertThat(imagePool.getIdleBytes(), Matchers.equalTo(16L * 8));
+        assertThat(imagePool.borrow(16, 8, IPL_DEPTH_8U, 1), Matchers.sameInstance(first));
+        assertThat(imagePool.borrow(16, 8, IPL_DEPTH_8U, 1), Matchers.not(Matchers.sameInstance(second)));
+    }
+
+    @Test
+    public void testClearFreesIdleImagesOnly() {
+        // given
+        ImagePool imagePool = new ImagePool();
+        IplImage borrowed = imagePool.borrow(16, 8, IPL_DEPTH_8U, 1);
+        imagePool.giveBack(imagePool.borrow(8, 8, IPL_DEPTH_8U, 1));
+
+        // when
+        imagePool.clear();
+
+        // then
+        assertThat(imagePool.getIdleBytes(), Matchers.equalTo(0L));
+        assertThat(imagePool.getLiveBytes(), Matchers.equalTo((long) borrowed.imageSize()));
+        imagePool.giveBack(borrowed);
+    }
+}
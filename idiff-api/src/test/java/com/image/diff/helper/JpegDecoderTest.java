@@ -0,0 +1,73 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.DecodedImage;
+import com.image.diff.core.PixelFormat;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JpegDecoderTest {
+
+    private File file;
+
+    @Before
+    public void beforeTest() throws Exception {
+        file = File.createTempFile("decoded", ".jpg");
+    }
+
+    @After
+    public void afterTest() throws Exception {
+        file.delete();
+    }
+
+    @Test
+    public void testDecodeGivesGrayOfImageIoWithinOneLevel() throws Exception {
+        // given, gradients with mild noise, saturated colors are clipped by color decoding and may differ more
+        Random random = new Random(11);
+        JpegDecoder decoder = new JpegDecoder();
+        ImageIoDecoder expectedDecoder = new ImageIoDecoder();
+        for (int type : new int[]{BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_BYTE_GRAY}) {
+            BufferedImage image = new BufferedImage(75, 53, type);
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    image.setRGB(x, y, (x * 3 + random.nextInt(16)) << 16 | (y * 4 + random.nextInt(16)) << 8 | (x + y + random.nextInt(16)));
+                }
+            }
+            ImageIO.write(image, "jpg", file);
+
+            for (int subsampling : new int[]{1, 2}) {
+                // when
+                DecodedImage actual = decoder.decode(file, PixelFormat.GRAY, subsampling, null);
+
+                // then
+                DecodedImage expected = expectedDecoder.decode(file, PixelFormat.GRAY, subsampling, null);
+                String name = type + " " + subsampling;
+                assertThat(name, actual.getWidth(), Matchers.equalTo(expected.getWidth()));
+                assertThat(name, actual.getHeight(), Matchers.equalTo(expected.getHeight()));
+                for (int i = 0; i < expected.getWidth() * expected.getHeight(); i++) {
+                    assertThat(name + " at " + i, actual.getPixels()[i] & 0xff,
+                        Matchers.both(Matchers.greaterThanOrEqualTo((expected.getPixels()[i] & 0xff) - 1))
+                            .and(Matchers.lessThanOrEqualTo((expected.getPixels()[i] & 0xff) + 1)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDecodeLeavesColorsToTheNextDecoder() throws Exception {
+        // given
+        ImageIO.write(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), "jpg", file);
+
+        // when
+        DecodedImage decoded = new JpegDecoder().decode(file, PixelFormat.RGB, 1, null);
+
+        // then
+        assertThat(decoded, Matchers.nullValue());
+    }
+}
@@ -0,0 +1,110 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.MatchResult;
+import com.image.diff.core.TemplateMatchMethod;
+import java.nio.FloatBuffer;
+import java.util.List;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+public class PeakFinderTest {
+
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 30;
+    // rows are padded like rows of native images
+    private static final int STRIDE = 44;
+
+    @Test
+    public void testFindPeaksReturnsBestSeparatedPeaksFirst() {
+        // given
+        float[] scores = new float[STRIDE * HEIGHT];
+        addPeak(scores, 10, 8, 0.95f);
+        addPeak(scores, 12, 9, 0.9f);
+        addPeak(scores, 30, 20, 0.85f);
+        // plateau gives one match only
+        for (int x = 2; x < 6; x++) {
+            scores[25 * STRIDE + x] = 0.9f;
+        }
+        addPeak(scores, 35, 2, 0.7f);
+
+        // when
+        List<MatchResult> results = new PeakFinder().findPeaks(FloatBuffer.wrap(scores), WIDTH, HEIGHT, STRIDE,
+            TemplateMatchMethod.CV_TM_CCOEFF_NORMED, 0.8, 10, 9, 9);
+        List<MatchResult> limited = new PeakFinder().findPeaks(FloatBuffer.wrap(scores), WIDTH, HEIGHT, STRIDE,
+            TemplateMatchMethod.CV_TM_CCOEFF_NORMED, 0.8, 1, 9, 9);
+
+        // then
+        assertThat(results.size(), Matchers.equalTo(3));
+        assertMatch(results.get(0), 10, 8, 0.95);
+        assertMatch(results.get(1), 2, 25, 0.9);
+        assertMatch(results.get(2), 30, 20, 0.85);
+        assertThat(limited.size(), Matchers.equalTo(1));
+        assertMatch(limited.get(0), 10, 8, 0.95);
+    }
+
+    @Test
+    public void testFindPeaksInvertsSquaredDifference() {
+        // given
+        float[] scores = new float[STRIDE * HEIGHT];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = 1;
+        }
+        scores[14 * STRIDE + 7] = 0.05f;
+        scores[14 * STRIDE + 8] = 0.1f;
+
+        // when
+        List<MatchResult> results = new PeakFinder().findPeaks(FloatBuffer.wrap(scores), WIDTH, HEIGHT, STRIDE,
+            TemplateMatchMethod.CV_TM_SQDIFF_NORMED, 0.8, 10, 3, 3);
+
+        // then
+        assertThat(results.size(), Matchers.equalTo(1));
+        assertMatch(results.get(0), 7, 14, 0.95);
+        assertThat(results.get(0).getWidth(), Matchers.equalTo(3));
+    }
+
+    @Test
+    public void testFindPeaksSkipsDenseClusterForSeparatedPeaks() {
+        // given
+        float[] scores = new float[STRIDE * HEIGHT];
+        // 16 peaks around the best one, all suppressed by it
+        float clusterScore = 0.99f;
+        for (int y = 3; y <= 9; y += 2) {
+            for (int x = 4; x <= 10; x += 2) {
+                scores[y * STRIDE + x] = clusterScore;
+                clusterScore -= 0.005f;
+            }
+        }
+        scores[5 * STRIDE + 30] = 0.85f;
+        scores[20 * STRIDE + 30] = 0.8f;
+
+        // when
+        List<MatchResult> limited = new PeakFinder().findPeaks(FloatBuffer.wrap(scores), WIDTH, HEIGHT, STRIDE,
+            TemplateMatchMethod.CV_TM_CCOEFF_NORMED, 0.5, 2, 21, 21);
+        List<MatchResult> results = new PeakFinder().findPeaks(FloatBuffer.wrap(scores), WIDTH, HEIGHT, STRIDE,
+            TemplateMatchMethod.CV_TM_CCOEFF_NORMED, 0.5, 10, 21, 21);
+
+        // then
+        assertThat(limited.size(), Matchers.equalTo(2));
+        assertMatch(limited.get(0), 4, 3, 0.99);
+        assertMatch(limited.get(1), 30, 5, 0.85);
+        assertThat(results.size(), Matchers.equalTo(3));
+        assertMatch(results.get(2), 30, 20, 0.8);
+    }
+
+    private void assertMatch(MatchResult result, int x, int y, double score) {
+        assertThat(result.getX(), Matchers.equalTo(x));
+        assertThat(result.getY(), Matchers.equalTo(y));
+        assertThat(result.getScore(), Matchers.closeTo(score, 0.0001));
+    }
+
+    private void addPeak(float[] scores, int x, int y, float score) {
+        for (int dy = -2; dy <= 2; dy++) {
+            for (int dx = -2; dx <= 2; dx++) {
+                int index = (y + dy) * STRIDE + x + dx;
+                float value = score - 0.05f * Math.max(Math.abs(dx), Math.abs(dy));
+                scores[index] = Math.max(scores[index], value);
+            }
+        }
+    }
+}
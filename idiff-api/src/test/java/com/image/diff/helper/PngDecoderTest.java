@@ -0,0 +1,76 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.DecodedImage;
+import com.image.diff.core.PixelFormat;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PngDecoderTest {
+
+    private File file;
+
+    @Before
+    public void beforeTest() throws Exception {
+        file = File.createTempFile("decoded", ".png");
+    }
+
+    @After
+    public void afterTest() throws Exception {
+        file.delete();
+    }
+
+    @Test
+    public void testDecodeGivesTheSamePixelsAsImageIo() throws Exception {
+        // given, smooth areas next to noise, so rows are written with different filters
+        Random random = new Random(5);
+        int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_BYTE_GRAY,
+            BufferedImage.TYPE_BYTE_INDEXED};
+        PngDecoder decoder = new PngDecoder();
+        RasterHelper rasterHelper = new RasterHelper();
+        for (int type : types) {
+            BufferedImage image = new BufferedImage(83, 61, type);
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    image.setRGB(x, y, x < 30 ? (x * 5) << 16 | y : random.nextInt());
+                }
+            }
+            ImageIO.write(image, "png", file);
+            BufferedImage expected = ImageIO.read(file);
+            byte[] expectedGray = new byte[image.getWidth()];
+
+            for (int subsampling : new int[]{1, 3}) {
+                // when
+                DecodedImage gray = decoder.decode(file, PixelFormat.GRAY, subsampling, null);
+                DecodedImage rgb = decoder.decode(file, PixelFormat.RGB, subsampling, new byte[100000]);
+
+                // then
+                String name = type + " " + subsampling;
+                assertThat(name, gray.getWidth(), Matchers.equalTo((image.getWidth() + subsampling - 1) / subsampling));
+                assertThat(name, gray.getHeight(), Matchers.equalTo((image.getHeight() + subsampling - 1) / subsampling));
+                for (int y = 0; y < gray.getHeight(); y++) {
+                    rasterHelper.readGrayRow(expected, y * subsampling, expectedGray);
+                    for (int x = 0; x < gray.getWidth(); x++) {
+                        int sample = expectedGray[x * subsampling] & 0xff;
+                        // gray samples are not converted to colors, unlike getRGB of gray images does
+                        int pixel = type == BufferedImage.TYPE_BYTE_GRAY
+                            ? sample << 16 | sample << 8 | sample
+                            : expected.getRGB(x * subsampling, y * subsampling);
+                        int offset = (y * rgb.getWidth() + x) * 3;
+                        assertThat(name + " " + x + "," + y, gray.getPixels()[y * gray.getWidth() + x],
+                            Matchers.equalTo(expectedGray[x * subsampling]));
+                        assertThat(name + " " + x + "," + y, rgb.getPixels()[offset] & 0xff, Matchers.equalTo((pixel >> 16) & 0xff));
+                        assertThat(name + " " + x + "," + y, rgb.getPixels()[offset + 1] & 0xff, Matchers.equalTo((pixel >> 8) & 0xff));
+                        assertThat(name + " " + x + "," + y, rgb.getPixels()[offset + 2] & 0xff, Matchers.equalTo(pixel & 0xff));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.PngFilter;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PngEncoderTest {
+
+    private File file;
+
+    @Before
+    public void beforeTest() throws Exception {
+        file = File.createTempFile("encoded", ".png");
+    }
+
+    @After
+    public void afterTest() throws Exception {
+        file.delete();
+    }
+
+    @Test
+    public void testWriteIsDecodedToTheSamePixels() throws Exception {
+        // given, more rows than one chunk and smooth areas next to noise
+        Random random = new Random(3);
+        int[] types = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_BYTE_GRAY};
+        for (int type : types) {
+            BufferedImage image = new BufferedImage(97, 150, type);
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    int pixel = x < 40 ? (x * 3) << 8 | y : random.nextInt();
+                    image.setRGB(x, y, type == BufferedImage.TYPE_INT_ARGB ? pixel : pixel | 0xff000000);
+                }
+            }
+
+            for (PngFilter filter : PngFilter.values()) {
+                // when
+                new PngEncoder(filter == PngFilter.NONE ? 0 : 6, filter, 3).write(image, file);
+
+                // then
+                BufferedImage decoded = ImageIO.read(file);
+                assertThat(type + " " + filter, decoded.getWidth(), Matchers.equalTo(image.getWidth()));
+                assertThat(type + " " + filter, decoded.getHeight(), Matchers.equalTo(image.getHeight()));
+                for (int y = 0; y < image.getHeight(); y++) {
+                    for (int x = 0; x < image.getWidth(); x++) {
+                        assertThat(type + " " + filter + " " + x + "," + y, decoded.getRGB(x, y), Matchers.equalTo(image.getRGB(x, y)));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.image.diff.helper;
+
+import com.image.diff.RasterFixture;
+import com.image.diff.core.GrayRaster;
+import com.image.diff.core.RegionTable;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.RandomAccessFile;
+import javax.imageio.ImageIO;
+import org.apache.commons.io.FileUtils;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RasterCacheTest {
+
+    private final RasterFixture rasterFixture = new RasterFixture();
+
+    private File directory;
+    private File firstFile;
+    private File secondFile;
+
+    @Before
+    public void beforeTest() throws Exception {
+        directory = File.createTempFile("raster-cache", "");
+        directory.delete();
+        firstFile = File.createTempFile("first", ".png");
+        secondFile = File.createTempFile("second", ".png");
+    }
+
+    @After
+    public void afterTest() throws Exception {
+        FileUtils.deleteDirectory(directory);
+        firstFile.delete();
+        secondFile.delete();
+    }
+
+    @Test
+    public void testGetGrayMapsTheSameRasterAsDecodedImage() throws Exception {
+        // given
+        BufferedImage first = rasterFixture.createImage(70, 50);
+        BufferedImage second = rasterFixture.createImage(70, 50);
+        rasterFixture.fill(second, 10, 12, 30, 3, Color.RED);
+        ImageIO.write(first, "png", firstFile);
+        ImageIO.write(second, "png", secondFile);
+        RasterCache rasterCache = new RasterCache(directory, 1024 * 1024);
+        RasterHelper rasterHelper = new RasterHelper();
+
+        // when
+        rasterCache.getGray(firstFile);
+        long sizeAfterMiss = rasterCache.getSize();
+        GrayRaster firstRaster = rasterCache.getGray(firstFile);
+        GrayRaster secondRaster = rasterCache.getGray(secondFile);
+        RegionTable expected = rasterHelper.findDifferenceRegions(first, second);
+        int expectedX = expected.getX(0);
+        int expectedPixels = expected.getPixels(0);
+        RegionTable actual = rasterHelper.findDifferenceRegions(firstRaster, secondRaster, null);
+
+        // then
+        assertThat(sizeAfterMiss, Matchers.equalTo(16L + 70 * 50));
+        assertThat(rasterCache.getSize(), Matchers.equalTo(2 * sizeAfterMiss));
+        assertThat(actual.size(), Matchers.equalTo(1));
+        assertThat(actual.getX(0), Matchers.equalTo(expectedX));
+        assertThat(actual.getPixels(0), Matchers.equalTo(expectedPixels));
+    }
+
+    @Test
+    public void testGetGrayEvictsLeastRecentlyUsedEntry() throws Exception {
+        // given
+        ImageIO.write(rasterFixture.createImage(70, 50), "png", firstFile);
+        BufferedImage second = rasterFixture.createImage(70, 50);
+        rasterFixture.fill(second, 0, 0, 5, 5, Color.BLUE);
+        ImageIO.write(second, "png", secondFile);
+        RasterCache rasterCache = new RasterCache(directory, 16 + 70 * 50);
+
+        // when
+        rasterCache.getGray(firstFile);
+        GrayRaster secondRaster = rasterCache.getGray(secondFile);
+
+        // then
+        assertThat(rasterCache.getSize(), Matchers.equalTo(16L + 70 * 50));
+        assertThat(secondRaster.getWidth(), Matchers.equalTo(70));
+        assertThat(directory.listFiles().length, Matchers.equalTo(1));
+    }
+
+    @Test
+    public void testGetGrayRebuildsEntryTooLargeToBeMapped() throws Exception {
+        // given, a sparse entry over 2 GiB
+        ImageIO.write(rasterFixture.createImage(70, 50), "png", firstFile);
+        FileHelper fileHelper = new FileHelper();
+        directory.mkdirs();
+        File entry = new File(directory, fileHelper.toHex(fileHelper.hashContent(firstFile)) + ".gray");
+        RandomAccessFile file = new RandomAccessFile(entry, "rw");
+        try {
+            file.setLength(3L * 1024 * 1024 * 1024);
+        } finally {
+            file.close();
+        }
+        RasterCache rasterCache = new RasterCache(directory, 1024 * 1024);
+
+        // when
+        GrayRaster raster = rasterCache.getGray(firstFile);
+
+        // then
+        assertThat(raster.getWidth(), Matchers.equalTo(70));
+        assertThat(raster.getHeight(), Matchers.equalTo(50));
+        assertThat(entry.length(), Matchers.equalTo(16L + 70 * 50));
+    }
+}
@@ -0,0 +1,267 @@
+package com.image.diff.helper;
+
+import com.image.diff.RasterFixture;
+import com.image.diff.ImagesContainer;
+import com.image.diff.core.RegionTable;
+import com.image.diff.core.Roi;
+import com.image.diff.core.RoiIndex;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.hamcrest.Matchers;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RasterHelperTest {
+
+    private final RasterFixture rasterFixture = new RasterFixture();
+
+    private static ImagesContainer imagesContainer;
+
+    @BeforeClass
+    public static void beforeTests() {
+        imagesContainer = new ImagesContainer();
+    }
+
+    @Test
+    public void testFindDifferenceRegionsWithTwoSeparateRegions() {
+        // given
+        BufferedImage firstImage = rasterFixture.createImage(BufferedImage.TYPE_3BYTE_BGR, 40, 30);
+        BufferedImage secondImage = rasterFixture.createImage(BufferedImage.TYPE_3BYTE_BGR, 40, 30);
+        rasterFixture.fill(secondImage, 2, 3, 6, 4, Color.BLACK);
+        rasterFixture.fill(secondImage, 20, 10, 10, 15, Color.BLACK);
+
+        // when
+        RegionTable regions = new RasterHelper().findDifferenceRegions(firstImage, secondImage);
+
+        // then
+        assertThat(regions.size(), Matchers.equalTo(2));
+        rasterFixture.assertRegion(regions, 0, 2, 3, 6, 4, 24);
+        rasterFixture.assertRegion(regions, 1, 20, 10, 10, 15, 150);
+        assertThat(regions.getScore(1), Matchers.equalTo(1.0D));
+    }
+
+    @Test
+    public void testFindDifferenceRegionsJoinsDiagonalAndUShapedPixels() {
+        // given
+        BufferedImage firstImage = rasterFixture.createImage(BufferedImage.TYPE_INT_RGB, 10, 10);
+        BufferedImage secondImage = rasterFixture.createImage(BufferedImage.TYPE_INT_RGB, 10, 10);
+        // U shape, both arms get their own label first and are joined on the bottom row
+        rasterFixture.fill(secondImage, 1, 1, 1, 4, Color.RED);
+        rasterFixture.fill(secondImage, 5, 1, 1, 4, Color.RED);
+        rasterFixture.fill(secondImage, 1, 5, 5, 1, Color.RED);
+        // diagonal neighbour of the U corner
+        rasterFixture.fill(secondImage, 6, 6, 1, 1, Color.RED);
+
+        // when
+        RegionTable regions = new RasterHelper().findDifferenceRegions(firstImage, secondImage);
+
+        // then
+        assertThat(regions.size(), Matchers.equalTo(1));
+        rasterFixture.assertRegion(regions, 0, 1, 1, 6, 6, 14);
+    }
+
+    @Test
+    public void testFindDifferenceRegionsWithEqualImagesOfDifferentTypes() {
+        // given
+        BufferedImage firstImage = rasterFixture.createImage(BufferedImage.TYPE_3BYTE_BGR, 16, 16);
+        BufferedImage secondImage = rasterFixture.createImage(BufferedImage.TYPE_INT_ARGB, 16, 16);
+        rasterFixture.fill(firstImage, 4, 4, 4, 4, new Color(10, 120, 230));
+        rasterFixture.fill(secondImage, 4, 4, 4, 4, new Color(10, 120, 230));
+
+        // when
+        RegionTable regions = new RasterHelper().findDifferenceRegions(firstImage, secondImage);
+
+        // then
+        assertThat(regions.isEmpty(), Matchers.equalTo(true));
+    }
+
+    @Test
+    public void testFindDifferenceRegionsReusesHelperBetweenCalls() throws Exception {
+        // given
+        BufferedImage firstImage = ImageIO.read(imagesContainer.getDiffImage1File());
+        BufferedImage secondImage = ImageIO.read(imagesContainer.getDiffImage2File());
+        RasterHelper rasterHelper = new RasterHelper();
+
+        // when
+        int firstCount = rasterHelper.findDifferenceRegions(firstImage, secondImage).size();
+        int sameCount = rasterHelper.findDifferenceRegions(firstImage, firstImage).size();
+        int secondCount = rasterHelper.findDifferenceRegions(firstImage, secondImage).size();
+
+        // then
+        assertThat(firstCount, Matchers.greaterThan(0));
+        assertThat(sameCount, Matchers.equalTo(0));
+        assertThat(secondCount, Matchers.equalTo(firstCount));
+    }
+
+    @Test
+    public void testFindDifferenceRegionsInsideOfRois() {
+        // given
+        BufferedImage firstImage = rasterFixture.createImage(BufferedImage.TYPE_3BYTE_BGR, 200, 150);
+        BufferedImage secondImage = rasterFixture.createImage(BufferedImage.TYPE_3BYTE_BGR, 200, 150);
+        // crosses the ROI border, only the part inside is found
+        rasterFixture.fill(secondImage, 50, 50, 40, 10, Color.BLACK);
+        // between the ROIs
+        rasterFixture.fill(secondImage, 100, 100, 10, 10, Color.BLACK);
+        // inside of the ROI sticking out of the image
+        rasterFixture.fill(secondImage, 180, 130, 10, 10, Color.BLACK);
+        RoiIndex roiIndex = new RoiIndex(Arrays.asList(new Roi(70, 20, 20, 100), new Roi(170, 120, 100, 100), new Roi(300, 0, 10, 10)), 200, 150);
+
+        // when
+        RegionTable regions = new RasterHelper().findDifferenceRegions(firstImage, secondImage, roiIndex);
+
+        // then
+        assertThat(roiIndex.size(), Matchers.equalTo(2));
+        assertThat(regions.size(), Matchers.equalTo(2));
+        rasterFixture.assertRegion(regions, 0, 70, 50, 20, 10, 200);
+        rasterFixture.assertRegion(regions, 1, 180, 130, 10, 10, 100);
+    }
+
+    @Test
+    public void testFindDifferenceRegionsCoarseToFineGivesTheSameRegions() {
+        Random random = new Random(7);
+        int[] types = new int[]{BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_BYTE_GRAY};
+        RasterHelper rasterHelper = new RasterHelper();
+
+        for (int run = 0; run < 30; run++) {
+            // given
+            int width = 1 + random.nextInt(300);
+            int height = 1 + random.nextInt(200);
+            BufferedImage firstImage = rasterFixture.createImage(types[run % types.length], width, height);
+            BufferedImage secondImage = rasterFixture.createImage(types[(run + run / types.length) % types.length], width, height);
+            for (int i = random.nextInt(8); i > 0; i--) {
+                rasterFixture.fill(secondImage, random.nextInt(width), random.nextInt(height), 1 + random.nextInt(40), 1 + random.nextInt(40),
+                    new Color(random.nextInt(0x1000000)));
+            }
+            RoiIndex roiIndex = new RoiIndex(Arrays.asList(new Roi(random.nextInt(width), random.nextInt(height), 100, 60)), width, height);
+
+            // when
+            RegionTable expected = rasterFixture.copy(rasterHelper.findDifferenceRegions(firstImage, secondImage));
+            RegionTable actual = rasterFixture.copy(rasterHelper.findDifferenceRegionsCoarseToFine(firstImage, secondImage, null));
+            RegionTable expectedInRois = rasterFixture.copy(rasterHelper.findDifferenceRegions(firstImage, secondImage, roiIndex));
+            RegionTable actualInRois = rasterFixture.copy(rasterHelper.findDifferenceRegionsCoarseToFine(firstImage, secondImage, roiIndex));
+
+            // then
+            rasterFixture.assertSameRegions(actual, expected);
+            rasterFixture.assertSameRegions(actualInRois, expectedInRois);
+        }
+    }
+
+    @Test
+    public void testFindDifferenceRegionsStreamedInBands() throws Exception {
+        // given
+        BufferedImage firstImage = rasterFixture.createImage(BufferedImage.TYPE_3BYTE_BGR, 90, 61);
+        BufferedImage secondImage = rasterFixture.createImage(BufferedImage.TYPE_3BYTE_BGR, 90, 61);
+        // spans several bands and is joined only in the last one
+        rasterFixture.fill(secondImage, 5, 3, 2, 50, Color.BLACK);
+        rasterFixture.fill(secondImage, 20, 3, 2, 50, Color.BLACK);
+        rasterFixture.fill(secondImage, 5, 52, 17, 1, Color.BLACK);
+        rasterFixture.fill(secondImage, 60, 20, 25, 25, Color.RED);
+        List<Roi> rois = Arrays.asList(new Roi(0, 10, 70, 30));
+        RasterHelper rasterHelper = new RasterHelper();
+        RegionTable expected = rasterFixture.copy(rasterHelper.findDifferenceRegions(firstImage, secondImage));
+        RegionTable expectedInRois = rasterFixture.copy(rasterHelper.findDifferenceRegions(firstImage, secondImage, new RoiIndex(rois, 90, 61)));
+
+        // PNG is streamed row by row, BMP in bands by its image reader
+        for (String format : new String[]{"png", "bmp"}) {
+            File firstFile = File.createTempFile("first", "." + format);
+            File secondFile = File.createTempFile("second", "." + format);
+            ImageIO.write(firstImage, format, firstFile);
+            ImageIO.write(secondImage, format, secondFile);
+
+            // when
+            RegionTable actual = rasterFixture.copy(rasterHelper.findDifferenceRegions(firstFile, secondFile, 7, Collections.<Roi>emptyList()));
+            RegionTable actualInRois = rasterFixture.copy(rasterHelper.findDifferenceRegions(firstFile, secondFile, 4, rois));
+            firstFile.delete();
+            secondFile.delete();
+
+            // then
+            assertThat(format, actual.size(), Matchers.equalTo(2));
+            rasterFixture.assertSameRegions(actual, expected);
+            assertThat(format, actualInRois.size(), Matchers.equalTo(3));
+            rasterFixture.assertSameRegions(actualInRois, expectedInRois);
+        }
+    }
+
+    @Test
+    public void testIsIdenticalWithSameLayout() {
+        // given
+        BufferedImage firstImage = rasterFixture.createImage(BufferedImage.TYPE_3BYTE_BGR, 33, 17);
+        BufferedImage secondImage = rasterFixture.createImage(BufferedImage.TYPE_3BYTE_BGR, 33, 17);
+        RasterHelper rasterHelper = new RasterHelper();
+
+        // when
+        boolean identical = rasterHelper.isIdentical(firstImage, secondImage);
+        secondImage.setRGB(32, 16, Color.BLACK.getRGB());
+        boolean identicalAfterChange = rasterHelper.isIdentical(firstImage, secondImage);
+
+        // then
+        assertThat(identical, Matchers.equalTo(true));
+        assertThat(identicalAfterChange, Matchers.equalTo(false));
+    }
+
+    @Test
+    public void testIsIdenticalWithDifferentLayoutsAndSizes() {
+        // given
+        BufferedImage firstImage = rasterFixture.createImage(BufferedImage.TYPE_INT_RGB, 16, 16);
+        BufferedImage secondImage = rasterFixture.createImage(BufferedImage.TYPE_3BYTE_BGR, 16, 16);
+        BufferedImage smallerImage = rasterFixture.createImage(BufferedImage.TYPE_INT_RGB, 16, 15);
+        RasterHelper rasterHelper = new RasterHelper();
+
+        // when
+        boolean identical = rasterHelper.isIdentical(firstImage, secondImage);
+        boolean identicalToSmaller = rasterHelper.isIdentical(firstImage, smallerImage);
+
+        // then
+        assertThat(identical, Matchers.equalTo(true));
+        assertThat(identicalToSmaller, Matchers.equalTo(false));
+    }
+
+    @Test
+    public void testIsIdenticalOfFilesComparesColors() throws Exception {
+        // given
+        BufferedImage firstImage = rasterFixture.createImage(BufferedImage.TYPE_3BYTE_BGR, 40, 30);
+        BufferedImage sameImage = rasterFixture.createImage(BufferedImage.TYPE_3BYTE_BGR, 40, 30);
+        BufferedImage colorImage = rasterFixture.createImage(BufferedImage.TYPE_3BYTE_BGR, 40, 30);
+        BufferedImage smallerImage = rasterFixture.createImage(BufferedImage.TYPE_3BYTE_BGR, 40, 29);
+        // both colors have the same gray value, so only the color differs
+        rasterFixture.fill(firstImage, 20, 10, 3, 3, new Color(255, 0, 0));
+        rasterFixture.fill(sameImage, 20, 10, 3, 3, new Color(255, 0, 0));
+        rasterFixture.fill(colorImage, 20, 10, 3, 3, new Color(0, 129, 0));
+        RasterHelper rasterHelper = new RasterHelper();
+        DecoderHelper decoderHelper = new DecoderHelper();
+
+        // PNG rows are streamed, BMP is decoded by the decoders
+        for (String format : new String[]{"png", "bmp"}) {
+            File firstFile = File.createTempFile("first", "." + format);
+            File sameFile = File.createTempFile("same", "." + format);
+            File colorFile = File.createTempFile("color", "." + format);
+            File smallerFile = File.createTempFile("smaller", "." + format);
+            ImageIO.write(firstImage, format, firstFile);
+            ImageIO.write(sameImage, format, sameFile);
+            ImageIO.write(colorImage, format, colorFile);
+            ImageIO.write(smallerImage, format, smallerFile);
+
+            // when
+            boolean identical = rasterHelper.isIdentical(firstFile, sameFile, decoderHelper);
+            boolean identicalToColor = rasterHelper.isIdentical(firstFile, colorFile, decoderHelper);
+            boolean identicalToSmaller = rasterHelper.isIdentical(firstFile, smallerFile, decoderHelper);
+            firstFile.delete();
+            sameFile.delete();
+            colorFile.delete();
+            smallerFile.delete();
+
+            // then
+            assertThat(RasterHelper.toGray(255, 0, 0), Matchers.equalTo(RasterHelper.toGray(0, 129, 0)));
+            assertThat(format, identical, Matchers.equalTo(true));
+            assertThat(format, identicalToColor, Matchers.equalTo(false));
+            assertThat(format, identicalToSmaller, Matchers.equalTo(false));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.MatchResult;
+import com.image.diff.core.TemplateMatchMethod;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+public class TemplateMatcherTest {
+
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 30;
+
+    @Test
+    public void testMergeKeepsTheBestSqdiffMatchesOfAllScales() {
+        // given, squared differences of two scales, 0 is the perfect match
+        float[] nativeScores = new float[WIDTH * HEIGHT];
+        float[] scaledScores = new float[WIDTH * HEIGHT];
+        Arrays.fill(nativeScores, 1f);
+        Arrays.fill(scaledScores, 1f);
+        nativeScores[5 * WIDTH + 5] = 0.2f;
+        scaledScores[20 * WIDTH + 30] = 0f;
+        nativeScores[25 * WIDTH + 10] = 0.1f;
+
+        List<MatchResult> matches = new ArrayList<MatchResult>();
+        matches.addAll(findPeaks(nativeScores, 1));
+        matches.addAll(findPeaks(scaledScores, 1.25));
+
+        // when
+        List<MatchResult> merged = new TemplateMatcher(new ImageHelper()).merge(matches, 2);
+
+        // then
+        assertThat(merged.size(), Matchers.equalTo(2));
+        assertThat(merged.get(0).getX(), Matchers.equalTo(30));
+        assertThat(merged.get(0).getScale(), Matchers.equalTo(1.25));
+        assertThat(merged.get(0).getScore(), Matchers.closeTo(1, 1e-6));
+        assertThat(merged.get(1).getX(), Matchers.equalTo(10));
+        assertThat(merged.get(1).getScore(), Matchers.closeTo(0.9, 1e-6));
+    }
+
+    private List<MatchResult> findPeaks(float[] scores, double scale) {
+        List<MatchResult> result = new ArrayList<MatchResult>();
+        for (MatchResult match : new PeakFinder().findPeaks(FloatBuffer.wrap(scores), WIDTH, HEIGHT, WIDTH,
+            TemplateMatchMethod.CV_TM_SQDIFF_NORMED, 0.7, 10, 6, 6)) {
+            result.add(new MatchResult(match.getScore(), match.getX(), match.getY(), match.getWidth(), match.getHeight(),
+                match.getMatchEngine(), scale));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,77 @@
+package com.image.diff.helper;
+
+import com.image.diff.core.RegionTable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+public class TileRegionsTest {
+
+    @Test
+    public void testStitchGivesTheSameRegionsAsWholeImageLabelling() {
+        Random random = new Random(42);
+        int[] tileSizes = new int[]{1, 2, 3, 7, 16, 64};
+
+        for (int run = 0; run < 20; run++) {
+            // given
+            int width = 1 + random.nextInt(80);
+            int height = 1 + random.nextInt(80);
+            byte[] mask = createMask(random, width, height, random.nextInt(60));
+            RegionTable expected = labelWholeImage(mask, width, height);
+
+            for (int tileSize : tileSizes) {
+                // when
+                RegionTable actual = labelTiles(mask, width, height, tileSize);
+
+                // then
+                assertThat("regions of " + width + "x" + height + " with tile " + tileSize, actual.size(), Matchers.equalTo(expected.size()));
+                for (int i = 0; i < expected.size(); i++) {
+                    assertThat(actual.getX(i), Matchers.equalTo(expected.getX(i)));
+                    assertThat(actual.getY(i), Matchers.equalTo(expected.getY(i)));
+                    assertThat(actual.getWidth(i), Matchers.equalTo(expected.getWidth(i)));
+                    assertThat(actual.getHeight(i), Matchers.equalTo(expected.getHeight(i)));
+                    assertThat(actual.getPixels(i), Matchers.equalTo(expected.getPixels(i)));
+                    assertThat(actual.getStartX(i), Matchers.equalTo(expected.getStartX(i)));
+                }
+            }
+        }
+    }
+
+    private byte[] createMask(Random random, int width, int height, int density) {
+        byte[] mask = new byte[width * height];
+        for (int i = 0; i < mask.length; i++) {
+            mask[i] = random.nextInt(100) < density ? (byte) 255 : 0;
+        }
+        return mask;
+    }
+
+    private RegionTable labelWholeImage(byte[] mask, int width, int height) {
+        RegionLabeler labeler = new RegionLabeler();
+        labeler.begin(width);
+        for (int y = 0; y < height; y++) {
+            labeler.addRow(mask, y * width);
+        }
+        return labeler.end(new RegionTable());
+    }
+
+    private RegionTable labelTiles(byte[] mask, int width, int height, int tileSize) {
+        int columns = (width + tileSize - 1) / tileSize;
+        List<TileRegions> tiles = new ArrayList<TileRegions>();
+        for (int tileY = 0; tileY < height; tileY += tileSize) {
+            for (int tileX = 0; tileX < width; tileX += tileSize) {
+                int tileWidth = Math.min(tileSize, width - tileX);
+                int tileHeight = Math.min(tileSize, height - tileY);
+                TileRegions tile = new TileRegions(tileX, tileY, tileWidth, tileHeight);
+                for (int y = 0; y < tileHeight; y++) {
+                    tile.addRow(mask, (tileY + y) * width + tileX);
+                }
+                tile.end();
+                tiles.add(tile);
+            }
+        }
+        return TileRegions.stitch(tiles, width, height, columns, tileSize, new RegionTable());
+    }
+}
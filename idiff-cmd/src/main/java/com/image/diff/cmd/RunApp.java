@@ -1,6 +1,7 @@
 package com.image.diff.cmd;
 
 import com.image.diff.cmd.core.CmdContextCreator;
+import com.image.diff.cmd.core.Defaults;
 import com.image.diff.core.Match;
 import com.image.diff.core.MatchContext;
 import com.image.diff.helper.Finder;
@@ -24,7 +25,18 @@ public class RunApp {
         CmdContextCreator creator = new CmdContextCreator.Builder(runArg, cmdArgs).build();
         MatchContext matchContext = creator.create();
         Finder finder = new Finder.Builder(matchContext).build();
+        if (matchContext.isIdenticalCheckSpecified()) {
+            boolean identical = finder.isIdentical();
+            logger.info("Images are identical: {}", identical);
+            Defaults defaults = new Defaults();
+            System.exit(identical ? defaults.getIdenticalExitCode() : defaults.getDifferentExitCode());
+        }
+
         List<Match> matches = finder.find();
         logger.info("Found matches regions: {}", matches);
+        if (matchContext.isExistenceCheck()) {
+            Defaults defaults = new Defaults();
+            System.exit(matches.isEmpty() ? defaults.getNotFoundExitCode() : defaults.getFoundExitCode());
+        }
     }
 }
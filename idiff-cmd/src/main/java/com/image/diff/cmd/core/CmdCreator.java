@@ -35,6 +35,16 @@ public class CmdCreator {
             withDescription("Find all differences between two images. Images should have the same size.").
             withType(Boolean.class).
             create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getIdenticalOptionName()).
+            withDescription("Only check whether both images have the same pixels, stops at the first difference. Used instead of find or diff mode. "
+                + "Exit code is " + defaults.getIdenticalExitCode() + " for identical images and " + defaults.getDifferentExitCode() + " otherwise.").
+            withType(Boolean.class).
+            create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getExistsOptionName()).
+            withDescription("Only check whether the template is present, stops at the first match. Used in find mode. "
+                + "Exit code is " + defaults.getFoundExitCode() + " when the template is found and " + defaults.getNotFoundExitCode() + " otherwise.").
+            withType(Boolean.class).
+            create());
         options.addOption(OptionBuilder.withLongOpt(defaults.getTitleOptionName())
             .withDescription("Set title into GUI frame. Default: " + defaults.getTitleValue())
             .hasArg()
@@ -54,13 +64,15 @@ public class CmdCreator {
             .withType(String.class)
             .create());
         options.addOption(OptionBuilder.withLongOpt(defaults.getResultImageOptionName())
-            .withDescription("Path to save result of image comparison. Default location: " + defaults.getResultImageValue().getAbsolutePath())
+            .withDescription("Path to save result of image comparison. Default location: " + defaults.getResultImageValue().getAbsolutePath()
+                + ", its extension follows the result format")
             .hasArg()
             .withArgName(defaults.getResultImageOptionName())
             .withType(String.class)
             .create());
         options.addOption(OptionBuilder.withLongOpt(defaults.getResultSourceImageOptionName())
-            .withDescription("Path to save result of source image comparison. Default location: " + defaults.getResultSourceImageValue().getAbsolutePath())
+            .withDescription("Path to save result of source image comparison. Default location: " + defaults.getResultSourceImageValue().getAbsolutePath()
+                + ", its extension follows the result format")
             .hasArg()
             .withArgName(defaults.getResultSourceImageOptionName())
             .withType(String.class)
@@ -85,6 +97,130 @@ public class CmdCreator {
             .withArgName(defaults.getRoisOptionName())
             .withType(String.class)
             .create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getDiffEngineOptionName())
+            .withDescription("Engine to compute differences with: opencv or raster (pure Java, no native libraries). Default value: "
+                + defaults.getDiffEngineValue().name().toLowerCase())
+            .hasArg()
+            .withArgName(defaults.getDiffEngineOptionName())
+            .withType(String.class)
+            .create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getCoarseToFineOptionName()).
+            withDescription("Compare blocks of images first and compute differences only inside of blocks that differ. "
+                + "Finds the same differences, but faster for large images with few differences. Needs the raster diff engine.").
+            withType(Boolean.class).
+            create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getBaselineIndexOptionName()).
+            withDescription("Keep gray version and block hashes of the first image in an index file next to it and diff against the index. "
+                + "The index is rebuilt when the image changes. Needs the raster diff engine.").
+            withType(Boolean.class).
+            create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getBandHeightOptionName())
+            .withDescription("Stream both images in bands of the given number of rows instead of decoding them at once, "
+                + "for images too large to fit into memory. Needs the raster diff engine. Default value: "
+                + defaults.getBandHeightValue() + " (streaming disabled)")
+            .hasArg()
+            .withArgName(defaults.getBandHeightOptionName())
+            .withType(Number.class)
+            .create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getRasterCacheOptionName())
+            .withDescription("Keep decoded gray versions of images in the given directory and map them from there on later runs "
+                + "instead of decoding the images again. Needs the raster diff engine.")
+            .hasArg()
+            .withArgName(defaults.getRasterCacheOptionName())
+            .withType(String.class)
+            .create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getRasterCacheSizeOptionName())
+            .withDescription("Size budget of the raster cache in megabytes, least recently used images are evicted over it. "
+                + "Default value: " + defaults.getRasterCacheSizeValue())
+            .hasArg()
+            .withArgName(defaults.getRasterCacheSizeOptionName())
+            .withType(Number.class)
+            .create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getTemplateCacheOptionName())
+            .withDescription("Keep templates prepared for matching in the given directory and take them from there on later runs "
+                + "instead of decoding the templates again. Used in find mode.")
+            .hasArg()
+            .withArgName(defaults.getTemplateCacheOptionName())
+            .withType(String.class)
+            .create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getTemplateCacheSizeOptionName())
+            .withDescription("Size budget of the template cache in megabytes, least recently used templates are evicted over it. "
+                + "Default value: " + defaults.getTemplateCacheSizeValue())
+            .hasArg()
+            .withArgName(defaults.getTemplateCacheSizeOptionName())
+            .withType(Number.class)
+            .create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getPyramidLevelsOptionName())
+            .withDescription("Find the template in images halved the given number of times first and match the best candidates "
+                + "at full resolution only. Much faster for large images. Default value: "
+                + defaults.getPyramidLevelsValue() + " (pyramid disabled)")
+            .hasArg()
+            .withArgName(defaults.getPyramidLevelsOptionName())
+            .withType(Number.class)
+            .create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getTileSizeOptionName())
+            .withDescription("Diff images in parallel in square tiles of the given size. Default value: "
+                + defaults.getTileSizeValue() + " (tiling disabled)")
+            .hasArg()
+            .withArgName(defaults.getTileSizeOptionName())
+            .withType(Number.class)
+            .create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getStripeHeightOptionName())
+            .withDescription("Find in parallel in stripes of the given number of rows, rounded up to whole rows of FFT blocks. Needs fft match engine. "
+                + "Default value: " + defaults.getStripeHeightValue() + " (stripes disabled)")
+            .hasArg()
+            .withArgName(defaults.getStripeHeightOptionName())
+            .withType(Number.class)
+            .create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getParallelismOptionName())
+            .withDescription("Number of threads processing tiles or stripes. Default value: "
+                + defaults.getParallelismValue() + " (number of processors)")
+            .hasArg()
+            .withArgName(defaults.getParallelismOptionName())
+            .withType(Number.class)
+            .create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getMatchEngineOptionName())
+            .withDescription("Engine to find the template with: spatial (OpenCV), fft (frequency domain, for large templates) "
+                + "or auto (the cheaper one by estimated cost). Default value: " + defaults.getMatchEngineValue().name().toLowerCase())
+            .hasArg()
+            .withArgName(defaults.getMatchEngineOptionName())
+            .withType(String.class)
+            .create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getScaleRangeOptionName())
+            .withDescription("Find the template resized to every scale from min to max by step, format: min:max:step. "
+                + "Default value: " + defaults.getScaleRangeValue() + " (template size only)")
+            .hasArg()
+            .withArgName(defaults.getScaleRangeOptionName())
+            .withType(String.class)
+            .create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getResultArtifactsOptionName())
+            .withDescription("When to write result images: always, on_matches (only when something is found) or none. "
+                + "Showing the result writes them always. Default value: " + defaults.getResultArtifactsValue().name().toLowerCase())
+            .hasArg()
+            .withArgName(defaults.getResultArtifactsOptionName())
+            .withType(String.class)
+            .create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getResultFormatOptionName())
+            .withDescription("Format of result images: png or tiff (uncompressed, the fastest to write). Showing the result "
+                + "needs png. Default value: " + defaults.getResultFormatValue().name().toLowerCase())
+            .hasArg()
+            .withArgName(defaults.getResultFormatOptionName())
+            .withType(String.class)
+            .create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getCompressionLevelOptionName())
+            .withDescription("Deflate level of png result images from 0 (stored) to 9 (best compression). Default value: "
+                + defaults.getCompressionLevelValue())
+            .hasArg()
+            .withArgName(defaults.getCompressionLevelOptionName())
+            .withType(Number.class)
+            .create());
+        options.addOption(OptionBuilder.withLongOpt(defaults.getPngFilterOptionName())
+            .withDescription("Row filter of png result images: none, sub, up, average, paeth or adaptive (chosen per row). "
+                + "Default value: " + defaults.getPngFilterValue().name().toLowerCase())
+            .hasArg()
+            .withArgName(defaults.getPngFilterOptionName())
+            .withType(String.class)
+            .create());
         options.addOption(OptionBuilder.withLongOpt(defaults.getFindDiffSampleOptionName()).
             withDescription("Find difference with the same bounds sample.").
             create());
@@ -1,5 +1,10 @@
 package com.image.diff.cmd.core;
 
+import com.image.diff.core.DiffEngine;
+import com.image.diff.core.MatchEngine;
+import com.image.diff.core.PngFilter;
+import com.image.diff.core.ResultArtifacts;
+import com.image.diff.core.ResultFormat;
 import com.image.diff.core.MatchContext;
 import com.image.diff.core.Roi;
 import com.image.diff.core.TemplateMatchMethod;
@@ -81,6 +86,22 @@ public class CmdProcessor {
         return commandLine.hasOption(defaults.getDiffOptionName());
     }
 
+    private boolean isIdenticalOptionSpecified(CommandLine commandLine) {
+        return commandLine.hasOption(defaults.getIdenticalOptionName());
+    }
+
+    private boolean isExistsOptionSpecified(CommandLine commandLine) {
+        return commandLine.hasOption(defaults.getExistsOptionName());
+    }
+
+    private boolean isCoarseToFineOptionSpecified(CommandLine commandLine) {
+        return commandLine.hasOption(defaults.getCoarseToFineOptionName());
+    }
+
+    private boolean isBaselineIndexOptionSpecified(CommandLine commandLine) {
+        return commandLine.hasOption(defaults.getBaselineIndexOptionName());
+    }
+
     private String getTitleOption(CommandLine commandLine) {
         String value = defaults.getTitleValue();
         final Object parsedOptionValue = commandLine.getOptionValue(defaults.getTitleOptionName());
@@ -111,8 +132,8 @@ public class CmdProcessor {
         return value;
     }
 
-    private String getResultImageOption(CommandLine commandLine) {
-        String value = defaults.getResultImageValue().getAbsolutePath();
+    private String getResultImageOption(CommandLine commandLine, ResultFormat resultFormat) {
+        String value = defaults.getResultImageValue(resultFormat).getAbsolutePath();
         final Object parsedOptionValue = commandLine.getOptionValue(defaults.getResultImageOptionName());
         if (parsedOptionValue != null) {
             value = String.valueOf(parsedOptionValue);
@@ -121,8 +142,8 @@ public class CmdProcessor {
         return value;
     }
 
-    private String getResultSourceImageOption(CommandLine commandLine) {
-        String value = defaults.getResultSourceImageValue().getAbsolutePath();
+    private String getResultSourceImageOption(CommandLine commandLine, ResultFormat resultFormat) {
+        String value = defaults.getResultSourceImageValue(resultFormat).getAbsolutePath();
         final Object parsedOptionValue = commandLine.getOptionValue(defaults.getResultSourceImageOptionName());
         if (parsedOptionValue != null) {
             value = String.valueOf(parsedOptionValue);
@@ -153,6 +174,101 @@ public class CmdProcessor {
         return value;
     }
 
+    private int getBandHeightOption(CommandLine commandLine) {
+        Integer value = defaults.getBandHeightValue();
+        final Object parsedOptionValue = commandLine.getOptionValue(defaults.getBandHeightOptionName());
+        if (parsedOptionValue != null) {
+            String valueString = String.valueOf(parsedOptionValue);
+            value = Integer.valueOf(valueString);
+        }
+
+        return value;
+    }
+
+    private File getRasterCacheOption(CommandLine commandLine) {
+        final Object parsedOptionValue = commandLine.getOptionValue(defaults.getRasterCacheOptionName());
+        if (parsedOptionValue != null) {
+            return new File(String.valueOf(parsedOptionValue));
+        }
+
+        return null;
+    }
+
+    private long getRasterCacheSizeOption(CommandLine commandLine) {
+        Integer value = defaults.getRasterCacheSizeValue();
+        final Object parsedOptionValue = commandLine.getOptionValue(defaults.getRasterCacheSizeOptionName());
+        if (parsedOptionValue != null) {
+            String valueString = String.valueOf(parsedOptionValue);
+            value = Integer.valueOf(valueString);
+        }
+
+        return value * 1024L * 1024L;
+    }
+
+    private int getPyramidLevelsOption(CommandLine commandLine) {
+        Integer value = defaults.getPyramidLevelsValue();
+        final Object parsedOptionValue = commandLine.getOptionValue(defaults.getPyramidLevelsOptionName());
+        if (parsedOptionValue != null) {
+            String valueString = String.valueOf(parsedOptionValue);
+            value = Integer.valueOf(valueString);
+        }
+
+        return value;
+    }
+
+    private int getTileSizeOption(CommandLine commandLine) {
+        Integer value = defaults.getTileSizeValue();
+        final Object parsedOptionValue = commandLine.getOptionValue(defaults.getTileSizeOptionName());
+        if (parsedOptionValue != null) {
+            String valueString = String.valueOf(parsedOptionValue);
+            value = Integer.valueOf(valueString);
+        }
+
+        return value;
+    }
+
+    private int getStripeHeightOption(CommandLine commandLine) {
+        Integer value = defaults.getStripeHeightValue();
+        final Object parsedOptionValue = commandLine.getOptionValue(defaults.getStripeHeightOptionName());
+        if (parsedOptionValue != null) {
+            String valueString = String.valueOf(parsedOptionValue);
+            value = Integer.valueOf(valueString);
+        }
+
+        return value;
+    }
+
+    private int getParallelismOption(CommandLine commandLine) {
+        Integer value = defaults.getParallelismValue();
+        final Object parsedOptionValue = commandLine.getOptionValue(defaults.getParallelismOptionName());
+        if (parsedOptionValue != null) {
+            String valueString = String.valueOf(parsedOptionValue);
+            value = Integer.valueOf(valueString);
+        }
+
+        return value;
+    }
+
+    private File getTemplateCacheOption(CommandLine commandLine) {
+        final Object parsedOptionValue = commandLine.getOptionValue(defaults.getTemplateCacheOptionName());
+        if (parsedOptionValue != null) {
+            return new File(String.valueOf(parsedOptionValue));
+        }
+
+        return null;
+    }
+
+    private long getTemplateCacheSizeOption(CommandLine commandLine) {
+        Integer value = defaults.getTemplateCacheSizeValue();
+        final Object parsedOptionValue = commandLine.getOptionValue(defaults.getTemplateCacheSizeOptionName());
+        if (parsedOptionValue != null) {
+            String valueString = String.valueOf(parsedOptionValue);
+            value = Integer.valueOf(valueString);
+        }
+
+        return value * 1024L * 1024L;
+    }
+
     private List<Roi> getRoisOption(CommandLine commandLine) {
         List<Roi> values = new ArrayList<Roi>();
         final Object parsedOptionValue = commandLine.getOptionValue(defaults.getRoisOptionName());
@@ -188,6 +304,90 @@ public class CmdProcessor {
         return values;
     }
 
+    private DiffEngine getDiffEngineOption(CommandLine commandLine) {
+        DiffEngine value = defaults.getDiffEngineValue();
+        final Object parsedOptionValue = commandLine.getOptionValue(defaults.getDiffEngineOptionName());
+        if (parsedOptionValue != null) {
+            value = DiffEngine.fromName(String.valueOf(parsedOptionValue));
+        }
+
+        return value;
+    }
+
+    private MatchEngine getMatchEngineOption(CommandLine commandLine) {
+        MatchEngine value = defaults.getMatchEngineValue();
+        final Object parsedOptionValue = commandLine.getOptionValue(defaults.getMatchEngineOptionName());
+        if (parsedOptionValue != null) {
+            value = MatchEngine.fromName(String.valueOf(parsedOptionValue));
+        }
+
+        return value;
+    }
+
+    private ResultArtifacts getResultArtifactsOption(CommandLine commandLine) {
+        ResultArtifacts value = defaults.getResultArtifactsValue();
+        if (isUndecodedDiff(commandLine)) {
+            // images are not decoded, so there is nothing to draw result images on
+            value = ResultArtifacts.NONE;
+        }
+        final Object parsedOptionValue = commandLine.getOptionValue(defaults.getResultArtifactsOptionName());
+        if (parsedOptionValue != null) {
+            value = ResultArtifacts.fromName(String.valueOf(parsedOptionValue));
+        }
+
+        return value;
+    }
+
+    private boolean isUndecodedDiff(CommandLine commandLine) {
+        return commandLine.hasOption(defaults.getDiffOptionName())
+            && (commandLine.hasOption(defaults.getBandHeightOptionName())
+            || commandLine.hasOption(defaults.getRasterCacheOptionName())
+            || commandLine.hasOption(defaults.getBaselineIndexOptionName()));
+    }
+
+    private ResultFormat getResultFormatOption(CommandLine commandLine) {
+        ResultFormat value = defaults.getResultFormatValue();
+        final Object parsedOptionValue = commandLine.getOptionValue(defaults.getResultFormatOptionName());
+        if (parsedOptionValue != null) {
+            value = ResultFormat.fromName(String.valueOf(parsedOptionValue));
+        }
+
+        return value;
+    }
+
+    private int getCompressionLevelOption(CommandLine commandLine) {
+        Integer value = defaults.getCompressionLevelValue();
+        final Object parsedOptionValue = commandLine.getOptionValue(defaults.getCompressionLevelOptionName());
+        if (parsedOptionValue != null) {
+            String valueString = String.valueOf(parsedOptionValue);
+            value = Integer.valueOf(valueString);
+        }
+
+        return value;
+    }
+
+    private PngFilter getPngFilterOption(CommandLine commandLine) {
+        PngFilter value = defaults.getPngFilterValue();
+        final Object parsedOptionValue = commandLine.getOptionValue(defaults.getPngFilterOptionName());
+        if (parsedOptionValue != null) {
+            value = PngFilter.fromName(String.valueOf(parsedOptionValue));
+        }
+
+        return value;
+    }
+
+    // minimum scale, maximum scale and scale step
+    private double[] getScaleRangeOption(CommandLine commandLine) {
+        String valueString = defaults.getScaleRangeValue();
+        final Object parsedOptionValue = commandLine.getOptionValue(defaults.getScaleRangeOptionName());
+        if (parsedOptionValue != null) {
+            valueString = String.valueOf(parsedOptionValue);
+        }
+
+        String[] params = valueString.trim().split(defaults.getScaleRangeDelimiter());
+        return new double[]{Double.valueOf(params[0]), Double.valueOf(params[1]), Double.valueOf(params[2])};
+    }
+
     private TemplateMatchMethod getMatchMethodOption(CommandLine commandLine) {
         TemplateMatchMethod value = defaults.getMatchMethodValue();
 
@@ -238,13 +438,33 @@ public class CmdProcessor {
 
         boolean findSpecified = isFindOptionSpecified(commandLine);
         boolean diffSpecified = isDiffOptionSpecified(commandLine);
+        boolean identicalSpecified = isIdenticalOptionSpecified(commandLine);
+        boolean existsSpecified = isExistsOptionSpecified(commandLine);
 
-        String resultImageOption = getResultImageOption(commandLine);
-        String resultSourceImageOption = getResultSourceImageOption(commandLine);
         List<Roi> roisOption = getRoisOption(commandLine);
         String titleOption = getTitleOption(commandLine);
         TemplateMatchMethod matchMethodOption = getMatchMethodOption(commandLine);
         boolean showResultOptionSpecified = isShowResultOptionSpecified(commandLine);
+        DiffEngine diffEngineOption = getDiffEngineOption(commandLine);
+        boolean coarseToFineSpecified = isCoarseToFineOptionSpecified(commandLine);
+        boolean baselineIndexSpecified = isBaselineIndexOptionSpecified(commandLine);
+        int bandHeightOption = getBandHeightOption(commandLine);
+        File rasterCacheOption = getRasterCacheOption(commandLine);
+        long rasterCacheSizeOption = getRasterCacheSizeOption(commandLine);
+        File templateCacheOption = getTemplateCacheOption(commandLine);
+        long templateCacheSizeOption = getTemplateCacheSizeOption(commandLine);
+        int pyramidLevelsOption = getPyramidLevelsOption(commandLine);
+        int tileSizeOption = getTileSizeOption(commandLine);
+        int stripeHeightOption = getStripeHeightOption(commandLine);
+        int parallelismOption = getParallelismOption(commandLine);
+        MatchEngine matchEngineOption = getMatchEngineOption(commandLine);
+        double[] scaleRangeOption = getScaleRangeOption(commandLine);
+        ResultArtifacts resultArtifactsOption = getResultArtifactsOption(commandLine);
+        ResultFormat resultFormatOption = getResultFormatOption(commandLine);
+        String resultImageOption = getResultImageOption(commandLine, resultFormatOption);
+        String resultSourceImageOption = getResultSourceImageOption(commandLine, resultFormatOption);
+        int compressionLevelOption = getCompressionLevelOption(commandLine);
+        PngFilter pngFilterOption = getPngFilterOption(commandLine);
 
         MatchContext matchContext = new MatchContext.Builder().
             image1(new File(image1Option)).
@@ -253,12 +473,32 @@ public class CmdProcessor {
             matchSimilarity(matchSimilarityOption).
             diff(diffSpecified).
             find(findSpecified).
+            identicalCheck(identicalSpecified).
+            existenceCheck(existsSpecified).
             resultImage(new File(resultImageOption)).
             resultSourceImage(new File(resultSourceImageOption)).
             rois(roisOption).
             title(titleOption).
             matchMethod(matchMethodOption).
             showResult(showResultOptionSpecified).
+            diffEngine(diffEngineOption).
+            coarseToFine(coarseToFineSpecified).
+            baselineIndex(baselineIndexSpecified).
+            bandHeight(bandHeightOption).
+            rasterCacheDirectory(rasterCacheOption).
+            rasterCacheSize(rasterCacheSizeOption).
+            templateCacheDirectory(templateCacheOption).
+            templateCacheSize(templateCacheSizeOption).
+            pyramidLevels(pyramidLevelsOption).
+            tileSize(tileSizeOption).
+            stripeHeight(stripeHeightOption).
+            parallelism(parallelismOption).
+            matchEngine(matchEngineOption).
+            scaleRange(scaleRangeOption[0], scaleRangeOption[1], scaleRangeOption[2]).
+            resultArtifacts(resultArtifactsOption).
+            resultFormat(resultFormatOption).
+            compressionLevel(compressionLevelOption).
+            pngFilter(pngFilterOption).
             build();
 
         return matchContext;
@@ -1,11 +1,16 @@
 package com.image.diff.cmd.core;
 
-import java.awt.image.BufferedImage;
+import com.image.diff.core.DiffEngine;
+import com.image.diff.core.ImageHeader;
+import com.image.diff.core.MatchEngine;
+import com.image.diff.core.PngFilter;
+import com.image.diff.core.ResultArtifacts;
+import com.image.diff.core.ResultFormat;
+import com.image.diff.helper.DecoderHelper;
+import com.image.diff.helper.TemplateMatcher;
 import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import javax.imageio.ImageIO;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
@@ -19,6 +24,7 @@ public class CmdValidator {
     private String[] cmdArgs;
     private CmdCreator cmdCreator;
     private Defaults defaults;
+    private final DecoderHelper decoderHelper = new DecoderHelper();
 
     private CmdValidator() {
     }
@@ -57,11 +63,12 @@ public class CmdValidator {
 
         boolean findModeUsed = commandLine.hasOption(defaults.getFindOptionName());
         boolean diffModeUsed = commandLine.hasOption(defaults.getDiffOptionName());
+        boolean identicalModeUsed = commandLine.hasOption(defaults.getIdenticalOptionName());
 
-        boolean notOneOptionChosen = (!findModeUsed && !diffModeUsed) || (findModeUsed && diffModeUsed);
+        int modesUsed = (findModeUsed ? 1 : 0) + (diffModeUsed ? 1 : 0) + (identicalModeUsed ? 1 : 0);
 
-        if (notOneOptionChosen) {
-            errors.add(new ErrorMessage.Builder().message("Find or Diff mode should be used").build());
+        if (modesUsed != 1) {
+            errors.add(new ErrorMessage.Builder().message("Find, Diff or Identical mode should be used").build());
             return errors;
         }
 
@@ -97,6 +104,233 @@ public class CmdValidator {
             }
         }
 
+        boolean bandHeightUsed = commandLine.hasOption(defaults.getBandHeightOptionName());
+        if (bandHeightUsed) {
+            String bandHeightString = commandLine.getOptionValue(defaults.getBandHeightOptionName());
+            try {
+                int bandHeight = Integer.valueOf(bandHeightString);
+
+                if (bandHeight < 0) {
+                    errors.add(new ErrorMessage.Builder().message("Expected band height should be 0 or greater. Passed: " + bandHeight).build());
+                }
+            } catch (NumberFormatException ex) {
+                String message = "Band height value does not have the appropriate format: " + bandHeightString;
+                logger.debug(message, ex);
+                errors.add(new ErrorMessage.Builder().message(message).build());
+            }
+        }
+
+        boolean rasterCacheSizeUsed = commandLine.hasOption(defaults.getRasterCacheSizeOptionName());
+        if (rasterCacheSizeUsed) {
+            String rasterCacheSizeString = commandLine.getOptionValue(defaults.getRasterCacheSizeOptionName());
+            try {
+                int rasterCacheSize = Integer.valueOf(rasterCacheSizeString);
+
+                if (rasterCacheSize <= 0) {
+                    errors.add(new ErrorMessage.Builder().message("Expected raster cache size should be greater than 0. Passed: " + rasterCacheSize).build());
+                }
+            } catch (NumberFormatException ex) {
+                String message = "Raster cache size value does not have the appropriate format: " + rasterCacheSizeString;
+                logger.debug(message, ex);
+                errors.add(new ErrorMessage.Builder().message(message).build());
+            }
+        }
+
+        boolean pyramidLevelsUsed = commandLine.hasOption(defaults.getPyramidLevelsOptionName());
+        if (pyramidLevelsUsed) {
+            String pyramidLevelsString = commandLine.getOptionValue(defaults.getPyramidLevelsOptionName());
+            try {
+                int pyramidLevels = Integer.valueOf(pyramidLevelsString);
+
+                if (pyramidLevels < 0) {
+                    errors.add(new ErrorMessage.Builder().message("Expected pyramid levels should be 0 or greater. Passed: " + pyramidLevels).build());
+                }
+            } catch (NumberFormatException ex) {
+                String message = "Pyramid levels value does not have the appropriate format: " + pyramidLevelsString;
+                logger.debug(message, ex);
+                errors.add(new ErrorMessage.Builder().message(message).build());
+            }
+        }
+
+        boolean tileSizeUsed = commandLine.hasOption(defaults.getTileSizeOptionName());
+        if (tileSizeUsed) {
+            String tileSizeString = commandLine.getOptionValue(defaults.getTileSizeOptionName());
+            try {
+                int tileSize = Integer.valueOf(tileSizeString);
+
+                if (tileSize < 0) {
+                    errors.add(new ErrorMessage.Builder().message("Expected tile size should be 0 or greater. Passed: " + tileSize).build());
+                }
+            } catch (NumberFormatException ex) {
+                String message = "Tile size value does not have the appropriate format: " + tileSizeString;
+                logger.debug(message, ex);
+                errors.add(new ErrorMessage.Builder().message(message).build());
+            }
+        }
+
+        boolean stripeHeightUsed = commandLine.hasOption(defaults.getStripeHeightOptionName());
+        if (stripeHeightUsed) {
+            String stripeHeightString = commandLine.getOptionValue(defaults.getStripeHeightOptionName());
+            try {
+                int stripeHeight = Integer.valueOf(stripeHeightString);
+
+                if (stripeHeight < 0) {
+                    errors.add(new ErrorMessage.Builder().message("Expected stripe height should be 0 or greater. Passed: " + stripeHeight).build());
+                }
+            } catch (NumberFormatException ex) {
+                String message = "Stripe height value does not have the appropriate format: " + stripeHeightString;
+                logger.debug(message, ex);
+                errors.add(new ErrorMessage.Builder().message(message).build());
+            }
+        }
+
+        boolean parallelismUsed = commandLine.hasOption(defaults.getParallelismOptionName());
+        if (parallelismUsed) {
+            String parallelismString = commandLine.getOptionValue(defaults.getParallelismOptionName());
+            try {
+                int parallelism = Integer.valueOf(parallelismString);
+
+                if (parallelism < 0) {
+                    errors.add(new ErrorMessage.Builder().message("Expected parallelism should be 0 or greater. Passed: " + parallelism).build());
+                }
+            } catch (NumberFormatException ex) {
+                String message = "Parallelism value does not have the appropriate format: " + parallelismString;
+                logger.debug(message, ex);
+                errors.add(new ErrorMessage.Builder().message(message).build());
+            }
+        }
+
+        boolean templateCacheSizeUsed = commandLine.hasOption(defaults.getTemplateCacheSizeOptionName());
+        if (templateCacheSizeUsed) {
+            String templateCacheSizeString = commandLine.getOptionValue(defaults.getTemplateCacheSizeOptionName());
+            try {
+                int templateCacheSize = Integer.valueOf(templateCacheSizeString);
+
+                if (templateCacheSize <= 0) {
+                    errors.add(new ErrorMessage.Builder().message("Expected template cache size should be greater than 0. Passed: " + templateCacheSize).build());
+                }
+            } catch (NumberFormatException ex) {
+                String message = "Template cache size value does not have the appropriate format: " + templateCacheSizeString;
+                logger.debug(message, ex);
+                errors.add(new ErrorMessage.Builder().message(message).build());
+            }
+        }
+
+        boolean diffEngineUsed = commandLine.hasOption(defaults.getDiffEngineOptionName());
+        if (diffEngineUsed) {
+            String diffEngineString = commandLine.getOptionValue(defaults.getDiffEngineOptionName());
+            try {
+                DiffEngine.fromName(diffEngineString);
+            } catch (IllegalArgumentException ex) {
+                String message = "Diff engine value is not supported: " + diffEngineString;
+                logger.debug(message, ex);
+                errors.add(new ErrorMessage.Builder().message(message).build());
+            }
+        }
+
+        boolean matchEngineUsed = commandLine.hasOption(defaults.getMatchEngineOptionName());
+        if (matchEngineUsed) {
+            String matchEngineString = commandLine.getOptionValue(defaults.getMatchEngineOptionName());
+            try {
+                MatchEngine.fromName(matchEngineString);
+            } catch (IllegalArgumentException ex) {
+                String message = "Match engine value is not supported: " + matchEngineString;
+                logger.debug(message, ex);
+                errors.add(new ErrorMessage.Builder().message(message).build());
+            }
+        }
+
+        boolean resultArtifactsUsed = commandLine.hasOption(defaults.getResultArtifactsOptionName());
+        if (resultArtifactsUsed) {
+            String resultArtifactsString = commandLine.getOptionValue(defaults.getResultArtifactsOptionName());
+            try {
+                ResultArtifacts resultArtifacts = ResultArtifacts.fromName(resultArtifactsString);
+
+                if (resultArtifacts == ResultArtifacts.NONE && commandLine.hasOption(defaults.getShowResultOptionName())) {
+                    errors.add(new ErrorMessage.Builder().message("Result can not be shown without result images.").build());
+                }
+                if (resultArtifacts != ResultArtifacts.NONE && isUndecodedDiff(commandLine)) {
+                    errors.add(new ErrorMessage.Builder().message("Result images can not be written by streaming diff, raster cache or baseline index.").build());
+                }
+            } catch (IllegalArgumentException ex) {
+                String message = "Result artifacts value is not supported: " + resultArtifactsString;
+                logger.debug(message, ex);
+                errors.add(new ErrorMessage.Builder().message(message).build());
+            }
+        }
+
+        if (commandLine.hasOption(defaults.getShowResultOptionName()) && isUndecodedDiff(commandLine)) {
+            errors.add(new ErrorMessage.Builder().message("Result can not be shown by streaming diff, raster cache or baseline index.").build());
+        }
+
+        boolean resultFormatUsed = commandLine.hasOption(defaults.getResultFormatOptionName());
+        if (resultFormatUsed) {
+            String resultFormatString = commandLine.getOptionValue(defaults.getResultFormatOptionName());
+            try {
+                ResultFormat resultFormat = ResultFormat.fromName(resultFormatString);
+
+                if (resultFormat != ResultFormat.PNG && commandLine.hasOption(defaults.getShowResultOptionName())) {
+                    errors.add(new ErrorMessage.Builder().message("Result can be shown for png result images only.").build());
+                }
+            } catch (IllegalArgumentException ex) {
+                String message = "Result format value is not supported: " + resultFormatString;
+                logger.debug(message, ex);
+                errors.add(new ErrorMessage.Builder().message(message).build());
+            }
+        }
+
+        boolean compressionLevelUsed = commandLine.hasOption(defaults.getCompressionLevelOptionName());
+        if (compressionLevelUsed) {
+            String compressionLevelString = commandLine.getOptionValue(defaults.getCompressionLevelOptionName());
+            try {
+                int compressionLevel = Integer.valueOf(compressionLevelString);
+
+                if (compressionLevel < 0 || compressionLevel > 9) {
+                    errors.add(new ErrorMessage.Builder().message("Expected compression level should be from 0..9. Passed: " + compressionLevel).build());
+                }
+            } catch (NumberFormatException ex) {
+                String message = "Compression level value does not have the appropriate format: " + compressionLevelString;
+                logger.debug(message, ex);
+                errors.add(new ErrorMessage.Builder().message(message).build());
+            }
+        }
+
+        boolean pngFilterUsed = commandLine.hasOption(defaults.getPngFilterOptionName());
+        if (pngFilterUsed) {
+            String pngFilterString = commandLine.getOptionValue(defaults.getPngFilterOptionName());
+            try {
+                PngFilter.fromName(pngFilterString);
+            } catch (IllegalArgumentException ex) {
+                String message = "PNG filter value is not supported: " + pngFilterString;
+                logger.debug(message, ex);
+                errors.add(new ErrorMessage.Builder().message(message).build());
+            }
+        }
+
+        boolean scaleRangeUsed = commandLine.hasOption(defaults.getScaleRangeOptionName());
+        if (scaleRangeUsed) {
+            String scaleRangeString = commandLine.getOptionValue(defaults.getScaleRangeOptionName());
+            String[] scaleRangeParams = scaleRangeString.trim().split(defaults.getScaleRangeDelimiter());
+            try {
+                if (scaleRangeParams.length != 3) {
+                    throw new NumberFormatException("Expects 3 params. Actual: " + scaleRangeParams.length);
+                }
+                double minScale = Double.valueOf(scaleRangeParams[0]);
+                double maxScale = Double.valueOf(scaleRangeParams[1]);
+                double scaleStep = Double.valueOf(scaleRangeParams[2]);
+
+                if (!(minScale > 0 && maxScale >= minScale && scaleStep > 0)) {
+                    errors.add(new ErrorMessage.Builder().message("Expected scale range should be 0 < min <= max with step greater than 0. Passed: " + scaleRangeString).build());
+                } else if ((maxScale - minScale) / scaleStep >= TemplateMatcher.MAX_SCALES) {
+                    errors.add(new ErrorMessage.Builder().message("Expected scale range should have at most " + TemplateMatcher.MAX_SCALES + " scales. Passed: " + scaleRangeString).build());
+                }
+            } catch (NumberFormatException ex) {
+                String message = "Scale range value does not have the appropriate format: " + scaleRangeString;
+                logger.debug(message, ex);
+                errors.add(new ErrorMessage.Builder().message(message).build());
+            }
+        }
+
         final ValidationContext context = new ValidationContext();
         context.setCommandLine(commandLine);
         if (!errors.isEmpty()) {
@@ -107,6 +341,8 @@ public class CmdValidator {
             validateFindMode(context);
         } else if (diffModeUsed) {
             validateDiffMode(context);
+        } else if (identicalModeUsed) {
+            validateIdenticalMode(context);
         }
 
         return context.getErrors();
@@ -121,7 +357,7 @@ public class CmdValidator {
         }
 
         validateFirstImage(image1Passed, context);
-        BufferedImage bufferedImage1 = context.getBufferedImage1();
+        ImageHeader imageHeader1 = context.getImageHeader1();
 
         boolean image2Passed = commandLine.hasOption(defaults.getImage2OptionName());
         if (!image2Passed) {
@@ -129,11 +365,11 @@ public class CmdValidator {
         }
 
         validateSecondImage(image2Passed, context);
-        BufferedImage bufferedImage2 = context.getBufferedImage2();
+        ImageHeader imageHeader2 = context.getImageHeader2();
 
-        if (bufferedImage1 != null && bufferedImage2 != null) {
-            if (bufferedImage1.getHeight() < bufferedImage2.getHeight()
-                || bufferedImage1.getWidth() < bufferedImage2.getWidth()) {
+        if (imageHeader1 != null && imageHeader2 != null) {
+            if (imageHeader1.getHeight() < imageHeader2.getHeight()
+                || imageHeader1.getWidth() < imageHeader2.getWidth()) {
                 context.addError(new ErrorMessage.Builder().message("First image (the source) should be greater than second image (the template)").build());
             }
         }
@@ -148,7 +384,7 @@ public class CmdValidator {
         }
 
         validateFirstImage(image1Passed, context);
-        BufferedImage bufferedImage1 = context.getBufferedImage1();
+        ImageHeader imageHeader1 = context.getImageHeader1();
 
         boolean image2Passed = commandLine.hasOption(defaults.getImage2OptionName());
         if (!image2Passed) {
@@ -156,19 +392,38 @@ public class CmdValidator {
         }
 
         validateSecondImage(image2Passed, context);
-        BufferedImage bufferedImage2 = context.getBufferedImage2();
+        ImageHeader imageHeader2 = context.getImageHeader2();
 
-        if (bufferedImage1 != null && bufferedImage2 != null) {
-            if (bufferedImage1.getHeight() != bufferedImage2.getHeight()
-                || bufferedImage1.getWidth() != bufferedImage2.getWidth()) {
+        if (imageHeader1 != null && imageHeader2 != null) {
+            if (imageHeader1.getHeight() != imageHeader2.getHeight()
+                || imageHeader1.getWidth() != imageHeader2.getWidth()) {
                 context.addError(new ErrorMessage.Builder().message("First image size should be equals to second image size").build());
             }
         }
     }
 
+    private void validateIdenticalMode(ValidationContext context) {
+        CommandLine commandLine = context.getCommandLine();
+
+        boolean image1Passed = commandLine.hasOption(defaults.getImage1OptionName());
+        if (!image1Passed) {
+            context.addError(new ErrorMessage.Builder().message("First image argument expected").build());
+        }
+
+        validateFirstImage(image1Passed, context);
+
+        boolean image2Passed = commandLine.hasOption(defaults.getImage2OptionName());
+        if (!image2Passed) {
+            context.addError(new ErrorMessage.Builder().message("Second image argument expected").build());
+        }
+
+        // images of different sizes are not identical, that is a result and not an error
+        validateSecondImage(image2Passed, context);
+    }
+
     private void validateFirstImage(boolean image1Passed, ValidationContext context) {
         CommandLine commandLine = context.getCommandLine();
-        BufferedImage bufferedImage1 = null;
+        ImageHeader imageHeader1 = null;
 
         if (image1Passed) {
             File image1File = new File(commandLine.getOptionValue(defaults.getImage1OptionName()));
@@ -176,8 +431,9 @@ public class CmdValidator {
                 context.addError(new ErrorMessage.Builder().message("First image (the source) doesn't exists. Please make sure you provide correct path").build());
             } else {
                 try {
-                    bufferedImage1 = ImageIO.read(image1File);
-                } catch (IOException ex) {
+                    // only the header, the image is decoded once by the search
+                    imageHeader1 = decoderHelper.readHeader(image1File);
+                } catch (IllegalStateException ex) {
                     String message = "Could not read first image (the source): " + image1File.getAbsolutePath();
                     logger.debug(message, ex);
                     context.addError(new ErrorMessage.Builder().message(message).build());
@@ -185,12 +441,12 @@ public class CmdValidator {
             }
         }
 
-        context.setBufferedImage1(bufferedImage1);
+        context.setImageHeader1(imageHeader1);
     }
 
     private void validateSecondImage(boolean image2Passed, ValidationContext context) {
         CommandLine commandLine = context.getCommandLine();
-        BufferedImage bufferedImage2 = null;
+        ImageHeader imageHeader2 = null;
 
         if (image2Passed) {
             File image2File = new File(commandLine.getOptionValue(defaults.getImage2OptionName()));
@@ -198,8 +454,9 @@ public class CmdValidator {
                 context.addError(new ErrorMessage.Builder().message("Second image (the template) doesn't exists. Please make sure you provide correct path").build());
             } else {
                 try {
-                    bufferedImage2 = ImageIO.read(image2File);
-                } catch (IOException ex) {
+                    // only the header, the image is decoded once by the search
+                    imageHeader2 = decoderHelper.readHeader(image2File);
+                } catch (IllegalStateException ex) {
                     String message = "Could not read second image (the template): " + image2File.getAbsolutePath();
                     logger.debug(message, ex);
                     context.addError(new ErrorMessage.Builder().message(message).build());
@@ -207,7 +464,14 @@ public class CmdValidator {
             }
         }
 
-        context.setBufferedImage2(bufferedImage2);
+        context.setImageHeader2(imageHeader2);
+    }
+
+    private boolean isUndecodedDiff(CommandLine commandLine) {
+        return commandLine.hasOption(defaults.getDiffOptionName())
+            && (commandLine.hasOption(defaults.getBandHeightOptionName())
+            || commandLine.hasOption(defaults.getRasterCacheOptionName())
+            || commandLine.hasOption(defaults.getBaselineIndexOptionName()));
     }
 
     private boolean isHelpArgument(CommandLine commandLine) {
@@ -1,5 +1,10 @@
 package com.image.diff.cmd.core;
 
+import com.image.diff.core.DiffEngine;
+import com.image.diff.core.MatchEngine;
+import com.image.diff.core.PngFilter;
+import com.image.diff.core.ResultArtifacts;
+import com.image.diff.core.ResultFormat;
 import com.image.diff.core.MatchContext;
 import com.image.diff.core.Roi;
 import com.image.diff.core.TemplateMatchMethod;
@@ -17,9 +22,29 @@ public class Defaults {
     private static final String MATCH_SIMILARITY_OPTION_NAME = "match-similarity";
     private static final String LIMIT_OPTION_NAME = "limit";
     private static final String ROIS_OPTION_NAME = "rois";
+    private static final String DIFF_ENGINE_OPTION_NAME = "diff-engine";
+    private static final String COARSE_TO_FINE_OPTION_NAME = "coarse-to-fine";
+    private static final String BASELINE_INDEX_OPTION_NAME = "baseline-index";
+    private static final String BAND_HEIGHT_OPTION_NAME = "band-height";
+    private static final String RASTER_CACHE_OPTION_NAME = "raster-cache";
+    private static final String RASTER_CACHE_SIZE_OPTION_NAME = "raster-cache-size";
+    private static final String TEMPLATE_CACHE_OPTION_NAME = "template-cache";
+    private static final String TEMPLATE_CACHE_SIZE_OPTION_NAME = "template-cache-size";
+    private static final String PYRAMID_LEVELS_OPTION_NAME = "pyramid-levels";
+    private static final String TILE_SIZE_OPTION_NAME = "tile-size";
+    private static final String STRIPE_HEIGHT_OPTION_NAME = "stripe-height";
+    private static final String PARALLELISM_OPTION_NAME = "parallelism";
+    private static final String MATCH_ENGINE_OPTION_NAME = "match-engine";
+    private static final String SCALE_RANGE_OPTION_NAME = "scale-range";
+    private static final String RESULT_ARTIFACTS_OPTION_NAME = "result-artifacts";
+    private static final String RESULT_FORMAT_OPTION_NAME = "result-format";
+    private static final String COMPRESSION_LEVEL_OPTION_NAME = "compression-level";
+    private static final String PNG_FILTER_OPTION_NAME = "png-filter";
 
     private static final String FIND_OPTION_NAME = "find";
     private static final String DIFF_OPTION_NAME = "diff";
+    private static final String IDENTICAL_OPTION_NAME = "identical";
+    private static final String EXISTS_OPTION_NAME = "exists";
 
     private static final String FIND_DIFF_SAMPLE_OPTION_NAME = "find-diff-sample";
     private static final String FIND_DIFF_ROI_SAMPLE_OPTION_NAME = "find-diff-roi-sample";
@@ -28,13 +53,36 @@ public class Defaults {
 
     private static final String ROI_DELIMITER = "\\s*;\\s*";
     private static final String ROI_PARAMS_DELIMITER = "\\s*,\\s*";
+    private static final String SCALE_RANGE_DELIMITER = "\\s*:\\s*";
 
     private static final String TITLE_VALUE = "";
-    private static final File RESULT_IMAGE_VALUE = new File("output/result_image.png");
-    private static final File RESULT_SOURCE_IMAGE_VALUE = new File("output/result_source_image.png");
+    // the extension follows the result format
+    private static final String RESULT_IMAGE_NAME = "output/result_image";
+    private static final String RESULT_SOURCE_IMAGE_NAME = "output/result_source_image";
+    private static final File RESULT_IMAGE_VALUE = new File(RESULT_IMAGE_NAME + "." + ResultFormat.PNG.getExtension());
+    private static final File RESULT_SOURCE_IMAGE_VALUE = new File(RESULT_SOURCE_IMAGE_NAME + "." + ResultFormat.PNG.getExtension());
     private static final double MATCH_SIMILARITY_VALUE = 0.8;
     private static final TemplateMatchMethod MATCH_METHOD_VALUE = TemplateMatchMethod.CV_TM_CCOEFF_NORMED;
     private static final int LIMIT_VALUE = 100;
+    private static final DiffEngine DIFF_ENGINE_VALUE = DiffEngine.OPENCV;
+    private static final int BAND_HEIGHT_VALUE = 0;
+    private static final int RASTER_CACHE_SIZE_VALUE = 1024;
+    private static final int TEMPLATE_CACHE_SIZE_VALUE = 1024;
+    private static final int PYRAMID_LEVELS_VALUE = 0;
+    private static final int TILE_SIZE_VALUE = 0;
+    private static final int STRIPE_HEIGHT_VALUE = 0;
+    private static final int PARALLELISM_VALUE = 0;
+    private static final MatchEngine MATCH_ENGINE_VALUE = MatchEngine.AUTO;
+    private static final String SCALE_RANGE_VALUE = "1:1:0.25";
+    private static final ResultArtifacts RESULT_ARTIFACTS_VALUE = ResultArtifacts.ON_MATCHES;
+    private static final ResultFormat RESULT_FORMAT_VALUE = ResultFormat.PNG;
+    private static final int COMPRESSION_LEVEL_VALUE = 1;
+    private static final PngFilter PNG_FILTER_VALUE = PngFilter.ADAPTIVE;
+
+    private static final int IDENTICAL_EXIT_CODE = 0;
+    private static final int DIFFERENT_EXIT_CODE = 1;
+    private static final int FOUND_EXIT_CODE = 0;
+    private static final int NOT_FOUND_EXIT_CODE = 1;
 
     public MatchContext getFindDiffRoiSampleContext() {
 
@@ -127,10 +175,18 @@ public class Defaults {
         return Defaults.RESULT_IMAGE_VALUE;
     }
 
+    public File getResultImageValue(ResultFormat resultFormat) {
+        return new File(Defaults.RESULT_IMAGE_NAME + "." + resultFormat.getExtension());
+    }
+
     public File getResultSourceImageValue() {
         return Defaults.RESULT_SOURCE_IMAGE_VALUE;
     }
 
+    public File getResultSourceImageValue(ResultFormat resultFormat) {
+        return new File(Defaults.RESULT_SOURCE_IMAGE_NAME + "." + resultFormat.getExtension());
+    }
+
     public double getMatchSimilarityValue() {
         return Defaults.MATCH_SIMILARITY_VALUE;
     }
@@ -143,6 +199,78 @@ public class Defaults {
         return Defaults.LIMIT_VALUE;
     }
 
+    public DiffEngine getDiffEngineValue() {
+        return Defaults.DIFF_ENGINE_VALUE;
+    }
+
+    public int getBandHeightValue() {
+        return Defaults.BAND_HEIGHT_VALUE;
+    }
+
+    public int getRasterCacheSizeValue() {
+        return Defaults.RASTER_CACHE_SIZE_VALUE;
+    }
+
+    public int getTemplateCacheSizeValue() {
+        return Defaults.TEMPLATE_CACHE_SIZE_VALUE;
+    }
+
+    public int getPyramidLevelsValue() {
+        return Defaults.PYRAMID_LEVELS_VALUE;
+    }
+
+    public int getTileSizeValue() {
+        return Defaults.TILE_SIZE_VALUE;
+    }
+
+    public int getStripeHeightValue() {
+        return Defaults.STRIPE_HEIGHT_VALUE;
+    }
+
+    public int getParallelismValue() {
+        return Defaults.PARALLELISM_VALUE;
+    }
+
+    public String getScaleRangeValue() {
+        return Defaults.SCALE_RANGE_VALUE;
+    }
+
+    public ResultArtifacts getResultArtifactsValue() {
+        return Defaults.RESULT_ARTIFACTS_VALUE;
+    }
+
+    public ResultFormat getResultFormatValue() {
+        return Defaults.RESULT_FORMAT_VALUE;
+    }
+
+    public int getCompressionLevelValue() {
+        return Defaults.COMPRESSION_LEVEL_VALUE;
+    }
+
+    public PngFilter getPngFilterValue() {
+        return Defaults.PNG_FILTER_VALUE;
+    }
+
+    public MatchEngine getMatchEngineValue() {
+        return Defaults.MATCH_ENGINE_VALUE;
+    }
+
+    public int getIdenticalExitCode() {
+        return Defaults.IDENTICAL_EXIT_CODE;
+    }
+
+    public int getDifferentExitCode() {
+        return Defaults.DIFFERENT_EXIT_CODE;
+    }
+
+    public int getFoundExitCode() {
+        return Defaults.FOUND_EXIT_CODE;
+    }
+
+    public int getNotFoundExitCode() {
+        return Defaults.NOT_FOUND_EXIT_CODE;
+    }
+
     public String getHelpOptionName() {
         return Defaults.HELP_OPTION_NAME;
     }
@@ -183,6 +311,78 @@ public class Defaults {
         return Defaults.ROIS_OPTION_NAME;
     }
 
+    public String getDiffEngineOptionName() {
+        return Defaults.DIFF_ENGINE_OPTION_NAME;
+    }
+
+    public String getCoarseToFineOptionName() {
+        return Defaults.COARSE_TO_FINE_OPTION_NAME;
+    }
+
+    public String getBaselineIndexOptionName() {
+        return Defaults.BASELINE_INDEX_OPTION_NAME;
+    }
+
+    public String getBandHeightOptionName() {
+        return Defaults.BAND_HEIGHT_OPTION_NAME;
+    }
+
+    public String getRasterCacheOptionName() {
+        return Defaults.RASTER_CACHE_OPTION_NAME;
+    }
+
+    public String getRasterCacheSizeOptionName() {
+        return Defaults.RASTER_CACHE_SIZE_OPTION_NAME;
+    }
+
+    public String getTemplateCacheOptionName() {
+        return Defaults.TEMPLATE_CACHE_OPTION_NAME;
+    }
+
+    public String getTemplateCacheSizeOptionName() {
+        return Defaults.TEMPLATE_CACHE_SIZE_OPTION_NAME;
+    }
+
+    public String getPyramidLevelsOptionName() {
+        return Defaults.PYRAMID_LEVELS_OPTION_NAME;
+    }
+
+    public String getTileSizeOptionName() {
+        return Defaults.TILE_SIZE_OPTION_NAME;
+    }
+
+    public String getStripeHeightOptionName() {
+        return Defaults.STRIPE_HEIGHT_OPTION_NAME;
+    }
+
+    public String getParallelismOptionName() {
+        return Defaults.PARALLELISM_OPTION_NAME;
+    }
+
+    public String getMatchEngineOptionName() {
+        return Defaults.MATCH_ENGINE_OPTION_NAME;
+    }
+
+    public String getScaleRangeOptionName() {
+        return Defaults.SCALE_RANGE_OPTION_NAME;
+    }
+
+    public String getResultArtifactsOptionName() {
+        return Defaults.RESULT_ARTIFACTS_OPTION_NAME;
+    }
+
+    public String getResultFormatOptionName() {
+        return Defaults.RESULT_FORMAT_OPTION_NAME;
+    }
+
+    public String getCompressionLevelOptionName() {
+        return Defaults.COMPRESSION_LEVEL_OPTION_NAME;
+    }
+
+    public String getPngFilterOptionName() {
+        return Defaults.PNG_FILTER_OPTION_NAME;
+    }
+
     public String getFindOptionName() {
         return Defaults.FIND_OPTION_NAME;
     }
@@ -191,6 +391,14 @@ public class Defaults {
         return Defaults.DIFF_OPTION_NAME;
     }
 
+    public String getIdenticalOptionName() {
+        return Defaults.IDENTICAL_OPTION_NAME;
+    }
+
+    public String getExistsOptionName() {
+        return Defaults.EXISTS_OPTION_NAME;
+    }
+
     public String getFindDiffSampleOptionName() {
         return Defaults.FIND_DIFF_SAMPLE_OPTION_NAME;
     }
@@ -214,4 +422,8 @@ public class Defaults {
     public String getRoiParamsDelimiter() {
         return Defaults.ROI_PARAMS_DELIMITER;
     }
+
+    public String getScaleRangeDelimiter() {
+        return Defaults.SCALE_RANGE_DELIMITER;
+    }
 }
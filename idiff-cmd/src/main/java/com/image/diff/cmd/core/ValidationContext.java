@@ -1,6 +1,6 @@
 package com.image.diff.cmd.core;
 
-import java.awt.image.BufferedImage;
+import com.image.diff.core.ImageHeader;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.commons.cli.CommandLine;
@@ -9,8 +9,8 @@ public class ValidationContext {
 
     private final List<ErrorMessage> errors = new ArrayList<ErrorMessage>();
     private CommandLine commandLine;
-    private BufferedImage bufferedImage1;
-    private BufferedImage bufferedImage2;
+    private ImageHeader imageHeader1;
+    private ImageHeader imageHeader2;
 
     public List<ErrorMessage> getErrors() {
         return errors;
@@ -32,24 +32,24 @@ public class ValidationContext {
         this.commandLine = commandLine;
     }
 
-    public BufferedImage getBufferedImage1() {
-        return bufferedImage1;
+    public ImageHeader getImageHeader1() {
+        return imageHeader1;
     }
 
-    public void setBufferedImage1(BufferedImage bufferedImage1) {
-        this.bufferedImage1 = bufferedImage1;
+    public void setImageHeader1(ImageHeader imageHeader1) {
+        this.imageHeader1 = imageHeader1;
     }
 
-    public BufferedImage getBufferedImage2() {
-        return bufferedImage2;
+    public ImageHeader getImageHeader2() {
+        return imageHeader2;
     }
 
-    public void setBufferedImage2(BufferedImage bufferedImage2) {
-        this.bufferedImage2 = bufferedImage2;
+    public void setImageHeader2(ImageHeader imageHeader2) {
+        this.imageHeader2 = imageHeader2;
     }
 
     @Override
     public String toString() {
-        return "errors=" + errors + ", commandLine=" + commandLine + ", bufferedImage1=" + bufferedImage1 + ", bufferedImage2=" + bufferedImage2;
+        return "errors=" + errors + ", commandLine=" + commandLine + ", imageHeader1=" + imageHeader1 + ", imageHeader2=" + imageHeader2;
     }
 }
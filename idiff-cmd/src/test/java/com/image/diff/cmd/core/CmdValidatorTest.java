@@ -0,0 +1,102 @@
+package com.image.diff.cmd.core;
+
+import com.image.diff.cmd.ImagesContainer;
+import java.io.File;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.hamcrest.Matchers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CmdValidatorTest {
+
+    private ImagesContainer imagesContainer;
+    private File unreadableFile;
+
+    @Before
+    public void beforeTest() throws Exception {
+        imagesContainer = new ImagesContainer();
+        unreadableFile = File.createTempFile("unreadable", ".png");
+        FileUtils.writeStringToFile(unreadableFile, "not an image");
+    }
+
+    @After
+    public void afterTest() {
+        unreadableFile.delete();
+    }
+
+    @Test
+    public void testValidateReadsSizesOfImagesFromHeaders() {
+        // given
+        String[] cmdArgs = new String[]{"--diff",
+            "--image1", imagesContainer.getDiffImage1File().getPath(),
+            "--image2", imagesContainer.getDiffImage2File().getPath()};
+
+        // when
+        List<ErrorMessage> errors = new CmdValidator.Builder(cmdArgs).build().validate();
+
+        // then
+        assertThat(errors, Matchers.empty());
+    }
+
+    @Test
+    public void testValidateReportsImagesOfDifferentSizes() {
+        // given
+        String[] cmdArgs = new String[]{"--diff",
+            "--image1", imagesContainer.getSourceImageFile().getPath(),
+            "--image2", imagesContainer.getTemplateImageFile().getPath()};
+
+        // when
+        List<ErrorMessage> errors = new CmdValidator.Builder(cmdArgs).build().validate();
+
+        // then
+        assertThat(errors, Matchers.hasSize(1));
+        assertThat(errors.get(0).getMessage(), Matchers.equalTo("First image size should be equals to second image size"));
+    }
+
+    @Test
+    public void testValidateAcceptsIdenticalModeAlone() {
+        // given
+        String[] cmdArgs = new String[]{"--identical",
+            "--image1", imagesContainer.getSourceImageFile().getPath(),
+            "--image2", imagesContainer.getTemplateImageFile().getPath()};
+
+        // when
+        List<ErrorMessage> errors = new CmdValidator.Builder(cmdArgs).build().validate();
+
+        // then
+        assertThat(errors, Matchers.empty());
+    }
+
+    @Test
+    public void testValidateReportsIdenticalModeWithDiffMode() {
+        // given
+        String[] cmdArgs = new String[]{"--identical", "--diff",
+            "--image1", imagesContainer.getDiffImage1File().getPath(),
+            "--image2", imagesContainer.getDiffImage2File().getPath()};
+
+        // when
+        List<ErrorMessage> errors = new CmdValidator.Builder(cmdArgs).build().validate();
+
+        // then
+        assertThat(errors, Matchers.hasSize(1));
+        assertThat(errors.get(0).getMessage(), Matchers.equalTo("Find, Diff or Identical mode should be used"));
+    }
+
+    @Test
+    public void testValidateReportsUnreadableImage() {
+        // given
+        String[] cmdArgs = new String[]{"--find",
+            "--image1", imagesContainer.getSourceImageFile().getPath(),
+            "--image2", unreadableFile.getPath()};
+
+        // when
+        List<ErrorMessage> errors = new CmdValidator.Builder(cmdArgs).build().validate();
+
+        // then
+        assertThat(errors, Matchers.hasSize(1));
+        assertThat(errors.get(0).getMessage(), Matchers.startsWith("Could not read second image (the template)"));
+    }
+}